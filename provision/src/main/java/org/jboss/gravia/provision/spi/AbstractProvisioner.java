@@ -49,6 +49,7 @@ import org.jboss.gravia.resolver.PreferencePolicy;
 import org.jboss.gravia.resolver.ResolutionException;
 import org.jboss.gravia.resolver.ResolveContext;
 import org.jboss.gravia.resolver.Resolver;
+import org.jboss.gravia.resolver.SelectingPreferencePolicy;
 import org.jboss.gravia.resolver.spi.AbstractEnvironment;
 import org.jboss.gravia.resource.Capability;
 import org.jboss.gravia.resource.ContentNamespace;
@@ -63,6 +64,8 @@ import org.jboss.gravia.runtime.DefaultWire;
 import org.jboss.gravia.runtime.DefaultWiring;
 import org.jboss.gravia.runtime.Wire;
 import org.jboss.gravia.runtime.Wiring;
+import org.jboss.gravia.runtime.spi.RuntimeMetrics;
+import org.jboss.gravia.runtime.spi.RuntimeMetricsLocator;
 import org.jboss.gravia.utils.IllegalArgumentAssertion;
 import org.jboss.gravia.utils.IllegalStateAssertion;
 import org.jboss.gravia.utils.ResourceUtils;
@@ -129,6 +132,8 @@ public abstract class AbstractProvisioner implements Provisioner {
         IllegalArgumentAssertion.assertNotNull(reqs, "reqs");
 
         LOGGER.debug("START findResources: {}", reqs);
+        RuntimeMetrics metrics = RuntimeMetricsLocator.getMetrics();
+        long start = metrics.startTimer();
 
         // Install the unresolved resources into the cloned environment
         List<Resource> unresolved = new ArrayList<Resource>();
@@ -176,6 +181,7 @@ public abstract class AbstractProvisioner implements Provisioner {
             LOGGER.warn("Cannot resolve provisioner result", ex);
         }
 
+        metrics.recordLatency(RuntimeMetrics.PROVISIONER_FIND_RESOURCES, reqs.size() + " requirements", start);
         return result;
     }
 
@@ -356,17 +362,20 @@ public abstract class AbstractProvisioner implements Provisioner {
 
         LOGGER.debug("Finding unsatisfied reqs");
 
-        Iterator<Requirement> itun = unstatisfied.iterator();
-        while (itun.hasNext()) {
-            Requirement req = itun.next();
-
-            // Ignore requirements that are already in the environment
-            if (!env.findProviders(req).isEmpty()) {
-                continue;
+        // Ignore requirements that are already in the environment
+        List<Requirement> missing = new ArrayList<Requirement>();
+        for (Requirement req : unstatisfied) {
+            if (env.findProviders(req).isEmpty()) {
+                missing.add(req);
             }
+        }
+
+        // Find the providers for all missing requirements in one repository pass
+        Map<Requirement, Collection<Capability>> providers = missing.isEmpty() ? Collections.<Requirement, Collection<Capability>> emptyMap() : repository.findProviders(missing);
+        for (Requirement req : missing) {
 
             // Continue if we cannot find a provider for a given requirement
-            Capability cap = findProviderInRepository(req);
+            Capability cap = selectProvider(req, providers.get(req));
             if (cap == null) {
                 continue;
             }
@@ -392,11 +401,9 @@ public abstract class AbstractProvisioner implements Provisioner {
         }
     }
 
-    private Capability findProviderInRepository(Requirement req) {
-
-        // Find the providers in the repository
+    private Capability selectProvider(Requirement req, Collection<Capability> providers) {
         LOGGER.debug("Find in repository: {}", req);
-        Collection<Capability> providers = repository.findProviders(req);
+        providers = providers != null ? providers : Collections.<Capability> emptyList();
 
         // Remove abstract resources
         if (providers.size() > 1) {
@@ -415,10 +422,14 @@ public abstract class AbstractProvisioner implements Provisioner {
             cap = providers.iterator().next();
             LOGGER.debug(" Found one: {}", cap);
         } else if (providers.size() > 1) {
-            List<Capability> sorted = new ArrayList<Capability>(providers);
-            preferencePolicy.sort(sorted);
-            LOGGER.debug(" Found multiple: {}", sorted);
-            cap = sorted.get(0);
+            if (preferencePolicy instanceof SelectingPreferencePolicy) {
+                cap = ((SelectingPreferencePolicy) preferencePolicy).selectPreferred(providers);
+            } else {
+                List<Capability> sorted = new ArrayList<Capability>(providers);
+                preferencePolicy.sort(sorted);
+                cap = sorted.get(0);
+            }
+            LOGGER.debug(" Found multiple: {}, selected: {}", providers, cap);
         } else {
             LOGGER.debug(" Not found: {}", req);
         }
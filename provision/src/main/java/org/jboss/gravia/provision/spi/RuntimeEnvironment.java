@@ -44,6 +44,7 @@ import org.jboss.gravia.resource.Requirement;
 import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.ResourceIdentity;
 import org.jboss.gravia.resource.ResourceStore;
+import org.jboss.gravia.resource.spi.AbstractResourceStore;
 import org.jboss.gravia.runtime.Module;
 import org.jboss.gravia.runtime.ModuleContext;
 import org.jboss.gravia.runtime.ModuleEvent;
@@ -171,6 +172,15 @@ public class RuntimeEnvironment extends AbstractEnvironment {
         return Collections.unmodifiableSet(result);
     }
 
+    @Override
+    public long getGeneration() {
+        return super.getGeneration() + getStoreGeneration(systemStore);
+    }
+
+    static long getStoreGeneration(ResourceStore store) {
+        return store instanceof AbstractResourceStore ? ((AbstractResourceStore) store).getGeneration() : 0;
+    }
+
     @Override
     public Environment cloneEnvironment() {
         return new ClonedRuntimeEnvironment(this);
@@ -225,5 +235,10 @@ public class RuntimeEnvironment extends AbstractEnvironment {
             result.addAll(systemStore.findProviders(requirement));
             return Collections.unmodifiableSet(result);
         }
+
+        @Override
+        public long getGeneration() {
+            return super.getGeneration() + getStoreGeneration(systemStore);
+        }
     }
 }
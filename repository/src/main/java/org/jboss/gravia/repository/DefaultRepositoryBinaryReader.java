@@ -0,0 +1,46 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jboss.gravia.repository.spi.AbstractRepositoryBinaryReader;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.ResourceBuilder;
+
+
+/**
+ * Read repository content from the binary format.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class DefaultRepositoryBinaryReader extends AbstractRepositoryBinaryReader {
+
+    public DefaultRepositoryBinaryReader(File file) throws IOException {
+        super(file);
+    }
+
+    @Override
+    protected ResourceBuilder createResourceBuilder() {
+        return new DefaultResourceBuilder();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository;
+
+import java.io.OutputStream;
+
+import org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter;
+
+
+/**
+ * Write repository content in the binary format.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class DefaultRepositoryBinaryWriter extends AbstractRepositoryBinaryWriter {
+
+    public DefaultRepositoryBinaryWriter(OutputStream outputStream) {
+        super(outputStream);
+    }
+}
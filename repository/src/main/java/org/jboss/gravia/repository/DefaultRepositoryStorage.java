@@ -26,20 +26,37 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 import org.jboss.gravia.Constants;
 import org.jboss.gravia.repository.spi.AbstractRepositoryStorage;
 import org.jboss.gravia.repository.spi.RepositoryContentHelper;
 import org.jboss.gravia.resource.ContentNamespace;
 import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.ResourceIdentity;
 import org.jboss.gravia.runtime.Module;
 import org.jboss.gravia.runtime.Runtime;
 import org.jboss.gravia.runtime.RuntimeLocator;
@@ -49,15 +66,32 @@ import org.jboss.gravia.runtime.spi.PropertiesProvider;
  * A simple {@link RepositoryStorage} that uses
  * the local file system.
  *
+ * Unless disabled, changes are appended to a journal next to the storage file.
+ * The journal is compacted into the storage file in the background.
+ *
+ * A binary snapshot of the storage file is kept next to it and used
+ * at startup for as long as it matches the storage file.
+ *
  * @author thomas.diesler@jboss.com
  * @since 16-Jan-2012
  */
 public class DefaultRepositoryStorage extends AbstractRepositoryStorage {
 
     public static final String REPOSITORY_XML_NAME = "repository.xml";
+    public static final String REPOSITORY_JOURNAL_SUFFIX = ".journal";
+    public static final String REPOSITORY_BINARY_SUFFIX = ".bin";
+
+    private static final String SOURCE_STAMP_ATTRIBUTE = "source-stamp";
 
     private final File storageDir;
     private final File repoFile;
+    private final File binaryFile;
+    private boolean binaryStale;
+    private final RepositoryJournal journal;
+    private final long compactThreshold;
+    private final ExecutorService compactExecutor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Object compactLock = new Object();
 
     public DefaultRepositoryStorage(PropertiesProvider propertyProvider, Repository repository) {
         super(repository);
@@ -67,6 +101,26 @@ public class DefaultRepositoryStorage extends AbstractRepositoryStorage {
 
         storageDir = storagePath.toFile();
         repoFile = storagePath.resolve(filename).toFile();
+        binaryFile = new File(repoFile.getPath() + REPOSITORY_BINARY_SUFFIX);
+
+        if (getBooleanProperty(propertyProvider, Constants.PROPERTY_REPOSITORY_STORAGE_JOURNAL, true)) {
+            int syncInterval = getIntegerProperty(propertyProvider, Constants.PROPERTY_REPOSITORY_STORAGE_JOURNAL_SYNC, 1);
+            journal = new RepositoryJournal(new File(repoFile.getPath() + REPOSITORY_JOURNAL_SUFFIX), syncInterval);
+            compactThreshold = getIntegerProperty(propertyProvider, Constants.PROPERTY_REPOSITORY_STORAGE_JOURNAL_COMPACT, 1000);
+            compactExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable run) {
+                    Thread thread = new Thread(run);
+                    thread.setName("RepositoryCompaction");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            journal = null;
+            compactThreshold = 0;
+            compactExecutor = null;
+        }
 
         initRepositoryStorage();
     }
@@ -85,15 +139,232 @@ public class DefaultRepositoryStorage extends AbstractRepositoryStorage {
     	return Paths.get(dirname);
     }
     
+    @Override
+    public void initRepositoryStorage() throws RepositoryStorageException {
+        super.initRepositoryStorage();
+
+        // Refresh the binary snapshot if the storage file had to be parsed
+        if (binaryStale) {
+            try {
+                writeBinarySnapshot(getRepositoryReader());
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot write binary repository snapshot: " + binaryFile, ex);
+            }
+            binaryStale = false;
+        }
+
+        // Replay the journal on top of the storage file
+        if (journal != null) {
+            try {
+                long count = journal.replay(new RepositoryJournal.RecordHandler() {
+                    @Override
+                    public void addResource(Resource res) {
+                        recoverAddResource(res);
+                    }
+
+                    @Override
+                    public void removeResource(ResourceIdentity resid) {
+                        recoverRemoveResource(resid);
+                    }
+                });
+                LOGGER.debug("Replayed {} journal records from: {}", count, journal.getJournalFile());
+            } catch (IOException ex) {
+                throw new RepositoryStorageException("Cannot replay repository journal", ex);
+            }
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Write the current content of this storage to the storage file and discard the journal records it contains.
+     */
+    public void compactRepositoryStorage() throws RepositoryStorageException {
+        if (journal == null)
+            return;
+
+        synchronized (compactLock) {
+            long count;
+            try {
+                RepositoryReader reader;
+                RepositoryReader binaryReader;
+                long position;
+                synchronized (this) {
+                    reader = getRepositoryReader();
+                    binaryReader = getRepositoryReader();
+                    position = journal.getPosition();
+                    count = journal.getRecordCount();
+                }
+                if (count == 0)
+                    return;
+
+                File tmpFile = new File(repoFile.getPath() + ".tmp");
+                tmpFile.getParentFile().mkdirs();
+                FileOutputStream output = new FileOutputStream(tmpFile);
+                try {
+                    writeRepositoryContent(new DefaultRepositoryXMLWriter(output), reader);
+                    output.getFD().sync();
+                } finally {
+                    output.close();
+                }
+                Files.move(tmpFile.toPath(), repoFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                synchronized (this) {
+                    journal.discard(position, count);
+                }
+                writeBinarySnapshot(binaryReader);
+            } catch (IOException ex) {
+                throw new RepositoryStorageException("Cannot compact repository journal", ex);
+            }
+            LOGGER.debug("Compacted {} journal records into: {}", count, repoFile);
+        }
+    }
+
+    @Override
+    protected void persistAddResource(Resource res) throws RepositoryStorageException {
+        if (journal == null) {
+            super.persistAddResource(res);
+            return;
+        }
+        try {
+            journal.appendAdd(res);
+        } catch (IOException ex) {
+            throw new RepositoryStorageException("Cannot append to repository journal", ex);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    protected void persistAddResources(List<Resource> resources) throws RepositoryStorageException {
+        if (journal == null) {
+            super.persistAddResources(resources);
+            return;
+        }
+        try {
+            journal.appendAdd(resources);
+        } catch (IOException ex) {
+            throw new RepositoryStorageException("Cannot append to repository journal", ex);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    protected void persistRemoveResource(Resource res) throws RepositoryStorageException {
+        if (journal == null) {
+            super.persistRemoveResource(res);
+            return;
+        }
+        try {
+            journal.appendRemove(res.getIdentity());
+        } catch (IOException ex) {
+            throw new RepositoryStorageException("Cannot append to repository journal", ex);
+        }
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        if (journal.getRecordCount() >= compactThreshold && compacting.compareAndSet(false, true)) {
+            compactExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compactRepositoryStorage();
+                    } catch (RuntimeException ex) {
+                        LOGGER.warn("Cannot compact repository journal", ex);
+                    } finally {
+                        compacting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    private static boolean getBooleanProperty(PropertiesProvider propertyProvider, String key, boolean defaultValue) {
+        Object value = propertyProvider.getProperty(key, defaultValue);
+        return value != null ? Boolean.parseBoolean(value.toString()) : defaultValue;
+    }
+
+    private static int getIntegerProperty(PropertiesProvider propertyProvider, String key, int defaultValue) {
+        Object value = propertyProvider.getProperty(key, defaultValue);
+        return value != null ? Integer.parseInt(value.toString()) : defaultValue;
+    }
+
     @Override
     public RepositoryReader getPersistentRepositoryReader() throws RepositoryStorageException {
+        if (!repoFile.exists())
+            return null;
         try {
-            return repoFile.exists() ? new DefaultRepositoryXMLReader(new FileInputStream(repoFile)) : null;
+            RepositoryReader reader = getBinaryRepositoryReader();
+            if (reader != null)
+                return reader;
+            binaryStale = true;
+            return new DefaultRepositoryXMLReader(new FileInputStream(repoFile));
         } catch (IOException ex) {
             throw new RepositoryStorageException(ex);
         }
     }
 
+    private RepositoryReader getBinaryRepositoryReader() throws IOException {
+        if (!binaryFile.exists())
+            return null;
+        RepositoryReader reader;
+        try {
+            reader = new DefaultRepositoryBinaryReader(binaryFile);
+        } catch (IOException | RuntimeException ex) {
+            // A damaged snapshot is dropped, the storage file is parsed instead
+            LOGGER.warn("Cannot read binary repository snapshot: " + binaryFile, ex);
+            Files.deleteIfExists(binaryFile.toPath());
+            return null;
+        }
+        String stamp = reader.getRepositoryAttributes().get(SOURCE_STAMP_ATTRIBUTE);
+        if (getSourceStamp().equals(stamp)) {
+            LOGGER.debug("Using binary repository snapshot: {}", binaryFile);
+            return reader;
+        }
+        reader.close();
+        LOGGER.debug("Binary repository snapshot is stale: {}", binaryFile);
+        return null;
+    }
+
+    /**
+     * Write the resources from the given reader to the binary snapshot.
+     * The snapshot is stamped with the length and checksum of the current storage file.
+     */
+    private void writeBinarySnapshot(RepositoryReader reader) throws IOException {
+        final String stamp = getSourceStamp();
+        File tmpFile = new File(binaryFile.getPath() + ".tmp");
+        tmpFile.getParentFile().mkdirs();
+        FileOutputStream output = new FileOutputStream(tmpFile);
+        try {
+            RepositoryWriter writer = new DefaultRepositoryBinaryWriter(output) {
+                @Override
+                public void writeRepositoryElement(Map<String, String> attributes) {
+                    Map<String, String> atts = new HashMap<String, String>(attributes);
+                    atts.put(SOURCE_STAMP_ATTRIBUTE, stamp);
+                    super.writeRepositoryElement(atts);
+                }
+            };
+            writeRepositoryContent(writer, reader);
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+        Files.move(tmpFile.toPath(), binaryFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private String getSourceStamp() throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        InputStream input = new FileInputStream(repoFile);
+        try {
+            int len;
+            while ((len = input.read(buf)) >= 0) {
+                crc.update(buf, 0, len);
+            }
+        } finally {
+            input.close();
+        }
+        return repoFile.length() + ":" + Long.toHexString(crc.getValue());
+    }
+
     @Override
     public RepositoryWriter getPersistentRepositoryWriter() throws RepositoryStorageException {
         try {
@@ -111,32 +382,53 @@ public class DefaultRepositoryStorage extends AbstractRepositoryStorage {
 
     @Override
     protected void addResourceContent(InputStream input, Map<String, Object> atts) throws RepositoryStorageException {
+        String algorithm = RepositoryContentHelper.DEFAULT_DIGEST_ALGORITHM;
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RepositoryStorageException("No such digest algorithm: " + algorithm, ex);
+        }
         try {
-            // Copy the input stream to temporary storage
-            File tempFile = new File(storageDir.getAbsolutePath() + File.separator + "temp-content");
-            Long size = copyResourceContent(input, tempFile);
-            atts.put(ContentNamespace.CAPABILITY_SIZE_ATTRIBUTE, size);
-            // Calculate the SHA-256
-            String sha256;
-            String algorithm = RepositoryContentHelper.DEFAULT_DIGEST_ALGORITHM;
+            // Copy the input stream to a unique temporary file and calculate the SHA-256 on the way
+            storageDir.mkdirs();
+            File tempFile = File.createTempFile("temp-content", null, storageDir);
             try {
-                sha256 = RepositoryContentHelper.getDigest(new FileInputStream(tempFile), algorithm);
+                long size = copyResourceContent(input, tempFile, digest);
+                atts.put(ContentNamespace.CAPABILITY_SIZE_ATTRIBUTE, size);
+                String sha256 = RepositoryContentHelper.toHexString(digest.digest());
                 atts.put(ContentNamespace.CONTENT_NAMESPACE, sha256);
-            } catch (NoSuchAlgorithmException ex) {
-                throw new RepositoryStorageException("No such digest algorithm: " + algorithm, ex);
+
+                // Move the content to storage location, unless the same content is already there
+                String contentPath = sha256.substring(0, 2) + File.separator + sha256.substring(2) + File.separator + "content";
+                File targetFile = new File(storageDir.getAbsolutePath() + File.separator + contentPath);
+                if (!targetFile.isFile()) {
+                    targetFile.getParentFile().mkdirs();
+                    moveResourceContent(tempFile, targetFile);
+                }
+                URL url = targetFile.toURI().toURL();
+                atts.put(ContentNamespace.CAPABILITY_URL_ATTRIBUTE, url);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
             }
-            // Move the content to storage location
-            String contentPath = sha256.substring(0, 2) + File.separator + sha256.substring(2) + File.separator + "content";
-            File targetFile = new File(storageDir.getAbsolutePath() + File.separator + contentPath);
-            targetFile.getParentFile().mkdirs();
-            tempFile.renameTo(targetFile);
-            URL url = targetFile.toURI().toURL();
-            atts.put(ContentNamespace.CAPABILITY_URL_ATTRIBUTE, url);
         } catch (IOException ex) {
             throw new RepositoryStorageException(ex);
         }
     }
 
+    // A concurrent add of the same content may have created the target in the meantime
+    // The content is addressed by its digest, so an existing target is as good as ours
+    private void moveResourceContent(File tempFile, File targetFile) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | AccessDeniedException ex) {
+            if (!targetFile.isFile()) {
+                throw ex;
+            }
+            LOGGER.debug("Content already stored: {}", targetFile);
+        }
+    }
+
     @Override
     protected URL getBaseURL() {
         try {
@@ -147,18 +439,27 @@ public class DefaultRepositoryStorage extends AbstractRepositoryStorage {
         }
     }
 
-    private long copyResourceContent(InputStream input, File targetFile) throws IOException {
-        int len = 0;
+    private long copyResourceContent(InputStream input, File targetFile, MessageDigest digest) throws IOException {
         long total = 0;
-        byte[] buf = new byte[4096];
-        targetFile.getParentFile().mkdirs();
-        OutputStream out = new FileOutputStream(targetFile);
-        while ((len = input.read(buf)) >= 0) {
-            out.write(buf, 0, len);
-            total += len;
-        }
-        input.close();
-        out.close();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        ReadableByteChannel in = Channels.newChannel(input);
+        try {
+            FileChannel out = new FileOutputStream(targetFile).getChannel();
+            try {
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer.array(), 0, buffer.limit());
+                    while (buffer.hasRemaining()) {
+                        total += out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
         return total;
     }
 }
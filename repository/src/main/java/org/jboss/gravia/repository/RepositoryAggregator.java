@@ -20,11 +20,28 @@ package org.jboss.gravia.repository;
  * #L%
  */
 
+import static org.jboss.gravia.repository.spi.RepositoryLogger.LOGGER;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.jboss.gravia.Constants;
 import org.jboss.gravia.repository.spi.AbstractRepository;
 import org.jboss.gravia.resource.Capability;
 import org.jboss.gravia.resource.Requirement;
@@ -34,31 +51,293 @@ import org.jboss.gravia.utils.IllegalArgumentAssertion;
 /**
  * A {@link Repository} aggregator.
  *
+ * By default the delegates are asked in turn and the first non-empty answer wins.
+ * In parallel mode all delegates are asked concurrently. The answer of a delegate is used as soon
+ * as every delegate before it has replied empty, or has not replied within its timeout.
+ * In merge mode the answers of all delegates are combined.
+ *
+ * In parallel mode every delegate runs its lookup, even if an earlier delegate answers first.
+ * Side effects of a lookup, like fallback lookups or resources that a delegate imports into
+ * its storage, happen for every delegate. A lookup that is no longer needed is interrupted,
+ * which does not stop a delegate that ignores interrupts. Call {@link #shutdown()} to release
+ * the lookup threads when the aggregator is no longer used.
+ *
  * @author thomas.diesler@jboss.com
  * @since 11-May-2012
  */
 public class RepositoryAggregator extends AbstractRepository {
 
+    /** The default timeout in milliseconds of a delegate in parallel mode */
+    public static final long DEFAULT_DELEGATE_TIMEOUT = 60000;
+
     private final List<Repository> delegates;
+    private final List<DelegateStatistics> statistics;
+    private final long[] timeouts;
+    private final boolean merge;
+    private final ExecutorService executor;
 
     public RepositoryAggregator(PropertiesProvider propertiesProvider, Repository... delegates) {
         super(propertiesProvider);
         IllegalArgumentAssertion.assertNotNull(delegates, "delegates");
         this.delegates = Arrays.asList(delegates);
+        List<DelegateStatistics> stats = new ArrayList<DelegateStatistics>();
+        for (Repository repo : delegates) {
+            stats.add(new DelegateStatistics(repo.getName()));
+        }
+        this.statistics = Collections.unmodifiableList(stats);
+        this.timeouts = getTimeouts(propertiesProvider, delegates.length);
+        this.merge = getBooleanProperty(propertiesProvider, Constants.PROPERTY_REPOSITORY_AGGREGATOR_MERGE);
+        if (getBooleanProperty(propertiesProvider, Constants.PROPERTY_REPOSITORY_AGGREGATOR_PARALLEL) && delegates.length > 1) {
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable run) {
+                    Thread thread = new Thread(run);
+                    thread.setName("RepositoryAggregator");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            executor = null;
+        }
+    }
+
+    private static boolean getBooleanProperty(PropertiesProvider propertiesProvider, String key) {
+        Object value = propertiesProvider != null ? propertiesProvider.getProperty(key) : null;
+        return value != null ? Boolean.parseBoolean(value.toString().trim()) : false;
+    }
+
+    private static long[] getTimeouts(PropertiesProvider propertiesProvider, int size) {
+        String key = Constants.PROPERTY_REPOSITORY_AGGREGATOR_TIMEOUTS;
+        Object property = propertiesProvider != null ? propertiesProvider.getProperty(key) : null;
+        String[] values = (property != null ? property.toString() : "" + DEFAULT_DELEGATE_TIMEOUT).split(",");
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            String value = values[Math.min(i, values.length - 1)].trim();
+            try {
+                result[i] = Long.parseLong(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid timeout in " + key + ": " + value);
+            }
+        }
+        return result;
     }
 
     public List<Repository> getDelegates() {
         return Collections.unmodifiableList(delegates);
     }
 
+    /**
+     * Get the lookup statistics of the delegates in delegate order
+     */
+    public List<DelegateStatistics> getDelegateStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Release the threads of parallel mode.
+     * Later lookups ask the delegates in turn.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private boolean isParallel() {
+        return executor != null && !executor.isShutdown();
+    }
+
     @Override
     public Collection<Capability> findProviders(Requirement req) {
-        for (Repository repo : delegates) {
-            Collection<Capability> providers = repo.findProviders(req);
-            if (!providers.isEmpty()) {
+        if (isParallel() || merge) {
+            IllegalArgumentAssertion.assertNotNull(req, "req");
+            return findProviders(Collections.singleton(req)).get(req);
+        }
+        for (int i = 0; i < delegates.size(); i++) {
+            Collection<Capability> providers = findProviders(i, Collections.singleton(req)).get(req);
+            if (providers != null && !providers.isEmpty()) {
                 return providers;
             }
         }
         return Collections.emptyList();
     }
+
+    /**
+     * Find the providers for all given requirements.
+     * Unless in merge mode, each delegate is asked once for the requirements that no previous delegate could satisfy.
+     */
+    @Override
+    public Map<Requirement, Collection<Capability>> findProviders(Collection<Requirement> reqs) {
+        IllegalArgumentAssertion.assertNotNull(reqs, "reqs");
+        if (isParallel()) {
+            Map<Requirement, Collection<Capability>> result = findProvidersConcurrently(reqs);
+            if (result != null) {
+                return result;
+            }
+        }
+        Map<Requirement, Collection<Capability>> result = new HashMap<Requirement, Collection<Capability>>();
+        List<Requirement> pending = new ArrayList<Requirement>(reqs);
+        for (int i = 0; i < delegates.size(); i++) {
+            if (pending.isEmpty())
+                break;
+            Map<Requirement, Collection<Capability>> providers = findProviders(i, pending);
+            pending = addProviders(result, providers, pending);
+        }
+        addEmptyProviders(result, reqs);
+        return result;
+    }
+
+    // Returns null if the lookups cannot be submitted after shutdown
+    private Map<Requirement, Collection<Capability>> findProvidersConcurrently(final Collection<Requirement> reqs) {
+        List<Future<Map<Requirement, Collection<Capability>>>> futures = new ArrayList<Future<Map<Requirement, Collection<Capability>>>>();
+        Map<Requirement, Collection<Capability>> result = new HashMap<Requirement, Collection<Capability>>();
+        List<Requirement> pending = new ArrayList<Requirement>(reqs);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < delegates.size(); i++) {
+                final int index = i;
+                try {
+                    futures.add(executor.submit(new Callable<Map<Requirement, Collection<Capability>>>() {
+                        @Override
+                        public Map<Requirement, Collection<Capability>> call() throws Exception {
+                            return findProviders(index, reqs);
+                        }
+                    }));
+                } catch (RejectedExecutionException ex) {
+                    // Shut down in the meantime, the caller asks the delegates in turn
+                    return null;
+                }
+            }
+            for (int i = 0; i < delegates.size(); i++) {
+                if (pending.isEmpty())
+                    break;
+                long remaining = TimeUnit.MILLISECONDS.toNanos(timeouts[i]) - (System.nanoTime() - start);
+                Map<Requirement, Collection<Capability>> providers;
+                try {
+                    providers = futures.get(i).get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException ex) {
+                    statistics.get(i).timeouts.incrementAndGet();
+                    LOGGER.warn("Repository {} did not reply within {}ms", delegates.get(i).getName(), timeouts[i]);
+                    continue;
+                }
+                pending = addProviders(result, providers, pending);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while finding providers", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException("Cannot find providers", cause);
+        } finally {
+            // Cancel the lookups that are no longer needed
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        addEmptyProviders(result, reqs);
+        return result;
+    }
+
+    // Add the providers of a delegate to the result and return the requirements that are still unsatisfied
+    private List<Requirement> addProviders(Map<Requirement, Collection<Capability>> result, Map<Requirement, Collection<Capability>> providers, List<Requirement> pending) {
+        List<Requirement> unsatisfied = new ArrayList<Requirement>();
+        for (Requirement req : pending) {
+            Collection<Capability> caps = providers.get(req);
+            if (caps == null || caps.isEmpty()) {
+                unsatisfied.add(req);
+            } else if (merge) {
+                Collection<Capability> merged = result.get(req);
+                if (merged == null) {
+                    merged = new LinkedHashSet<Capability>();
+                    result.put(req, merged);
+                }
+                merged.addAll(caps);
+            } else {
+                result.put(req, caps);
+            }
+        }
+        // In merge mode every delegate is asked for every requirement
+        return merge ? pending : unsatisfied;
+    }
+
+    private void addEmptyProviders(Map<Requirement, Collection<Capability>> result, Collection<Requirement> reqs) {
+        for (Requirement req : reqs) {
+            if (!result.containsKey(req)) {
+                result.put(req, Collections.<Capability> emptyList());
+            }
+        }
+    }
+
+    private Map<Requirement, Collection<Capability>> findProviders(int index, Collection<Requirement> reqs) {
+        DelegateStatistics stats = statistics.get(index);
+        long start = System.nanoTime();
+        try {
+            return delegates.get(index).findProviders(reqs);
+        } catch (RuntimeException ex) {
+            stats.errors.incrementAndGet();
+            throw ex;
+        } finally {
+            stats.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The lookup statistics of a delegate repository
+     */
+    public static final class DelegateStatistics {
+
+        private final String name;
+        private final AtomicLong lookups = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        DelegateStatistics(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            lookups.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        /** Get the name of the delegate */
+        public String getName() {
+            return name;
+        }
+
+        /** Get the number of completed lookups */
+        public long getLookupCount() {
+            return lookups.get();
+        }
+
+        /** Get the mean lookup latency in milliseconds */
+        public double getMeanLatency() {
+            long count = lookups.get();
+            return count > 0 ? totalNanos.get() / 1000000.0 / count : 0.0;
+        }
+
+        /** Get the maximum lookup latency in milliseconds */
+        public double getMaxLatency() {
+            return maxNanos.get() / 1000000.0;
+        }
+
+        /** Get the number of lookups that did not complete within the delegate timeout */
+        public long getTimeoutCount() {
+            return timeouts.get();
+        }
+
+        /** Get the number of lookups that failed */
+        public long getErrorCount() {
+            return errors.get();
+        }
+    }
 }
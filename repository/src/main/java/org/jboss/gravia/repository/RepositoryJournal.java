@@ -0,0 +1,257 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository;
+
+import static org.jboss.gravia.repository.spi.RepositoryLogger.LOGGER;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceIdentity;
+import org.jboss.gravia.utils.IOUtils;
+
+/**
+ * An append-only journal of the changes to a {@link DefaultRepositoryStorage}.
+ *
+ * A record holds its type, the payload length, a CRC32 of type, length and payload, and the payload. The payload of an added resource
+ * is a repository document with that single resource, the payload of a removed resource is its identity.
+ * The journal is forced to disk after a configurable number of records.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+final class RepositoryJournal {
+
+    private static final byte ADD_RECORD = 'A';
+    private static final byte REMOVE_RECORD = 'R';
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER_SIZE = 9;
+
+    interface RecordHandler {
+
+        void addResource(Resource res);
+
+        void removeResource(ResourceIdentity resid);
+    }
+
+    private final File journalFile;
+    private final int syncInterval;
+    private FileChannel channel;
+    private int unsynced;
+    private long records;
+
+    RepositoryJournal(File journalFile, int syncInterval) {
+        this.journalFile = journalFile;
+        this.syncInterval = Math.max(1, syncInterval);
+    }
+
+    File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Replay the records in this journal.
+     *
+     * Replay stops at the first record that is incomplete, has an invalid type or length, or does not match
+     * its checksum. That record and everything after it is discarded.
+     *
+     * @return The number of records that were replayed
+     */
+    synchronized long replay(RecordHandler handler) throws IOException {
+        if (!journalFile.exists())
+            return 0;
+
+        long count = 0;
+        long position = 0;
+        long length = journalFile.length();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        try {
+            while (position + HEADER_SIZE <= length) {
+                byte type = input.readByte();
+                int size = input.readInt();
+                int checksum = input.readInt();
+                if ((type != ADD_RECORD && type != REMOVE_RECORD) || size < 0 || size > length - position - HEADER_SIZE) {
+                    LOGGER.warn("Discard invalid journal record at {}: {}", position, journalFile);
+                    break;
+                }
+                byte[] payload = new byte[size];
+                input.readFully(payload);
+                if (checksum != getChecksum(type, payload)) {
+                    LOGGER.warn("Discard journal record with invalid checksum at {}: {}", position, journalFile);
+                    break;
+                }
+                if (type == ADD_RECORD) {
+                    RepositoryReader reader = new DefaultRepositoryXMLReader(new ByteArrayInputStream(payload));
+                    Resource res = reader.nextResource();
+                    reader.close();
+                    handler.addResource(res);
+                } else {
+                    handler.removeResource(ResourceIdentity.fromString(new String(payload, UTF8)));
+                }
+                position += HEADER_SIZE + size;
+                count++;
+            }
+        } finally {
+            IOUtils.safeClose(input);
+        }
+
+        // Discard a partially written or corrupt tail
+        if (position < length) {
+            RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+            try {
+                raf.setLength(position);
+            } finally {
+                raf.close();
+            }
+        }
+        records = count;
+        return count;
+    }
+
+    synchronized void appendAdd(Resource res) throws IOException {
+        append(ADD_RECORD, getAddPayload(res));
+    }
+
+    /**
+     * Append an add record for each of the given resources.
+     * The journal is synced at most once for the whole batch.
+     */
+    synchronized void appendAdd(Collection<Resource> resources) throws IOException {
+        for (Resource res : resources) {
+            write(ADD_RECORD, getAddPayload(res));
+        }
+        if (unsynced >= syncInterval) {
+            sync();
+        }
+    }
+
+    private static byte[] getAddPayload(Resource res) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RepositoryWriter writer = new DefaultRepositoryXMLWriter(out);
+        writer.writeRepositoryElement(Collections.<String, String> emptyMap());
+        writer.writeResource(res);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    synchronized void appendRemove(ResourceIdentity resid) throws IOException {
+        append(REMOVE_RECORD, resid.toString().getBytes(UTF8));
+    }
+
+    /**
+     * Get the number of records in this journal.
+     */
+    synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Get the current end of this journal.
+     */
+    synchronized long getPosition() throws IOException {
+        return channel != null ? channel.size() : journalFile.length();
+    }
+
+    /**
+     * Discard the records before the given position.
+     *
+     * The remaining records are written to a new journal, which then atomically replaces this journal.
+     */
+    synchronized void discard(long position, long count) throws IOException {
+        close();
+        File tmpFile = new File(journalFile.getPath() + ".tmp");
+        FileChannel source = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+        try {
+            FileChannel target = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            try {
+                long size = source.size();
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                target.force(true);
+            } finally {
+                target.close();
+            }
+        } finally {
+            source.close();
+        }
+        Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        records = Math.max(0, records - count);
+    }
+
+    synchronized void sync() throws IOException {
+        if (channel != null && unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        write(type, payload);
+        if (unsynced >= syncInterval) {
+            sync();
+        }
+    }
+
+    private void write(byte type, byte[] payload) throws IOException {
+        if (channel == null) {
+            journalFile.getParentFile().mkdirs();
+            channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.put(type).putInt(payload.length).putInt(getChecksum(type, payload)).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        records++;
+        unsynced++;
+    }
+
+    private static int getChecksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(5).put(type).putInt(payload.length).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
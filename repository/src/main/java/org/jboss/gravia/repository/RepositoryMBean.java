@@ -68,4 +68,11 @@ public interface RepositoryMBean {
      * Get a a {@link Resource} by {@link ResourceIdentity}
      */
     CompositeData getResource(String identity);
+
+    /**
+     * Get the lookup statistics of the delegates of the {@link RepositoryAggregator}
+     *
+     * @return A table with one row per delegate. If there is no aggregator the table is empty.
+     */
+    TabularData getDelegateStatistics();
 }
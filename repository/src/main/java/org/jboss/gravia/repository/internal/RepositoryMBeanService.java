@@ -20,15 +20,25 @@
 package org.jboss.gravia.repository.internal;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.StandardMBean;
 import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
 import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
 
 import org.jboss.gravia.repository.Repository;
+import org.jboss.gravia.repository.RepositoryAggregator;
+import org.jboss.gravia.repository.RepositoryAggregator.DelegateStatistics;
 import org.jboss.gravia.repository.RepositoryMBean;
 import org.jboss.gravia.resource.CompositeDataResourceBuilder;
 import org.jboss.gravia.resource.Resource;
@@ -116,5 +126,27 @@ public final class RepositoryMBeanService {
             Resource resource = repository.getResource(resid);
             return resource != null ? resource.adapt(CompositeData.class) : null;
         }
+
+        @Override
+        public TabularData getDelegateStatistics() {
+            String[] itemNames = new String[] { "index", "name", "lookupCount", "meanLatency", "maxLatency", "timeoutCount", "errorCount" };
+            OpenType<?>[] itemTypes = new OpenType<?>[] { SimpleType.INTEGER, SimpleType.STRING, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.LONG, SimpleType.LONG };
+            try {
+                CompositeType rowType = new CompositeType("DelegateStatistics", "Repository delegate statistics", itemNames, itemNames, itemTypes);
+                TabularData result = new TabularDataSupport(new TabularType("DelegateStatisticsTable", "Repository delegate statistics", rowType, new String[] { "index" }));
+                Repository fallback = repository.getFallbackRepository();
+                if (fallback instanceof RepositoryAggregator) {
+                    List<DelegateStatistics> statistics = ((RepositoryAggregator) fallback).getDelegateStatistics();
+                    for (int i = 0; i < statistics.size(); i++) {
+                        DelegateStatistics stats = statistics.get(i);
+                        Object[] itemValues = new Object[] { i, stats.getName(), stats.getLookupCount(), stats.getMeanLatency(), stats.getMaxLatency(), stats.getTimeoutCount(), stats.getErrorCount() };
+                        result.put(new CompositeDataSupport(rowType, itemNames, itemValues));
+                    }
+                }
+                return result;
+            } catch (OpenDataException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
     }
 }
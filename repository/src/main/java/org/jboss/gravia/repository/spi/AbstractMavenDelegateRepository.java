@@ -22,15 +22,29 @@ package org.jboss.gravia.repository.spi;
 import static org.jboss.gravia.repository.spi.RepositoryLogger.LOGGER;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import org.jboss.gravia.Constants;
+import org.jboss.gravia.repository.DefaultRepositoryStorage;
 import org.jboss.gravia.repository.MavenDelegateRepository;
 import org.jboss.gravia.repository.Repository;
 import org.jboss.gravia.resource.Capability;
@@ -40,8 +54,10 @@ import org.jboss.gravia.resource.MavenCoordinates;
 import org.jboss.gravia.resource.Requirement;
 import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.runtime.RuntimeLocator;
 import org.jboss.gravia.runtime.spi.DefaultPropertiesProvider;
 import org.jboss.gravia.runtime.spi.PropertiesProvider;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
 
 /**
  * A simple {@link Repository} that delegates to a maven repositories.
@@ -51,7 +67,19 @@ import org.jboss.gravia.runtime.spi.PropertiesProvider;
  */
 public abstract class AbstractMavenDelegateRepository extends AbstractRepository implements MavenDelegateRepository {
 
+    /** The name of the lookup cache file in the repository storage directory */
+    public static final String LOOKUP_CACHE_FILE = "maven-lookup.cache";
+
+    /** The default connect timeout in milliseconds */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    /** The default read timeout in milliseconds */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
     private final List<URL> baserepos;
+    private final int[] connectTimeouts;
+    private final int[] readTimeouts;
+    private final MavenLookupCache lookupCache;
+    private final ExecutorService lookupExecutor;
 
     /** The configuration for the {@link AbstractMavenDelegateRepository} */
     public interface Configuration {
@@ -74,6 +102,52 @@ public abstract class AbstractMavenDelegateRepository extends AbstractRepository
         super(propertyProvider);
         Configuration configuration = getConfiguration(propertyProvider);
         baserepos = Collections.unmodifiableList(configuration.getBaseURLs());
+        connectTimeouts = getTimeouts(propertyProvider, Constants.PROPERTY_MAVEN_REPOSITORY_CONNECT_TIMEOUTS, baserepos.size(), DEFAULT_CONNECT_TIMEOUT);
+        readTimeouts = getTimeouts(propertyProvider, Constants.PROPERTY_MAVEN_REPOSITORY_READ_TIMEOUTS, baserepos.size(), DEFAULT_READ_TIMEOUT);
+        long foundTTL = getLongProperty(propertyProvider, Constants.PROPERTY_MAVEN_LOOKUP_CACHE_TTL, 24 * 60 * 60 * 1000L);
+        long notFoundTTL = getLongProperty(propertyProvider, Constants.PROPERTY_MAVEN_LOOKUP_CACHE_NEGATIVE_TTL, 10 * 60 * 1000L);
+        lookupCache = new MavenLookupCache(foundTTL, notFoundTTL, getLookupCacheFile(propertyProvider));
+        Object concurrent = propertyProvider.getProperty(Constants.PROPERTY_MAVEN_REPOSITORY_CONCURRENT_LOOKUP);
+        if (concurrent != null && Boolean.parseBoolean(concurrent.toString().trim()) && baserepos.size() > 1) {
+            lookupExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable run) {
+                    Thread thread = new Thread(run);
+                    thread.setName("MavenLookup");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            lookupExecutor = null;
+        }
+    }
+
+    private static int[] getTimeouts(PropertiesProvider propertyProvider, String key, int size, int defaultValue) {
+        int[] result = new int[size];
+        Object property = propertyProvider.getProperty(key);
+        String[] values = (property != null ? property.toString() : "" + defaultValue).split(",");
+        for (int i = 0; i < size; i++) {
+            String value = values[Math.min(i, values.length - 1)].trim();
+            try {
+                result[i] = Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid timeout in " + key + ": " + value);
+            }
+        }
+        return result;
+    }
+
+    private static long getLongProperty(PropertiesProvider propertyProvider, String key, long defaultValue) {
+        Object value = propertyProvider.getProperty(key);
+        return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+    }
+
+    // The lookup cache is only persisted if there is a repository storage location
+    private static File getLookupCacheFile(PropertiesProvider propertyProvider) {
+        if (propertyProvider.getProperty(Constants.PROPERTY_REPOSITORY_STORAGE_DIR) == null && RuntimeLocator.getRuntime() == null)
+            return null;
+        return DefaultRepositoryStorage.getRepositoryStoragePath(propertyProvider).resolve(LOOKUP_CACHE_FILE).toFile();
     }
 
     /**
@@ -107,6 +181,27 @@ public abstract class AbstractMavenDelegateRepository extends AbstractRepository
         };
     }
 
+    /**
+     * Write the pending lookup results to the lookup cache file and release the lookup threads.
+     * Later lookups probe the bases in turn.
+     */
+    public void shutdown() {
+        lookupCache.flush();
+        if (lookupExecutor != null) {
+            lookupExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public Map<Requirement, Collection<Capability>> findProviders(Collection<Requirement> reqs) {
+        IllegalArgumentAssertion.assertNotNull(reqs, "reqs");
+        Map<Requirement, Collection<Capability>> result = new HashMap<Requirement, Collection<Capability>>();
+        for (Requirement req : reqs) {
+            result.put(req, findProviders(req));
+        }
+        return result;
+    }
+
     @Override
     public Collection<Capability> findProviders(Requirement req) {
 
@@ -123,19 +218,10 @@ public abstract class AbstractMavenDelegateRepository extends AbstractRepository
 
     @Override
     public Resource findMavenResource(MavenCoordinates mavenid) {
-        LOGGER.info("Find maven providers for: {}", mavenid);
+        LOGGER.debug("Find maven providers for: {}", mavenid);
 
-        URL contentURL = null;
-        for (URL baseURL : baserepos) {
-            URL url = mavenid.getArtifactURL(baseURL);
-            try {
-                url.openStream().close();
-                contentURL = url;
-                break;
-            } catch (IOException e) {
-                LOGGER.debug("Cannot access input stream for: {}", url);
-            }
-        }
+        boolean concurrent = lookupExecutor != null && !lookupExecutor.isShutdown();
+        URL contentURL = concurrent ? findArtifactConcurrently(mavenid) : findArtifact(mavenid);
 
         Resource result = null;
         if (contentURL != null) {
@@ -149,6 +235,156 @@ public abstract class AbstractMavenDelegateRepository extends AbstractRepository
         return result;
     }
 
+    private URL findArtifact(MavenCoordinates mavenid) {
+        for (int i = 0; i < baserepos.size(); i++) {
+            URL url = mavenid.getArtifactURL(baserepos.get(i));
+            Boolean found = getCachedLookup(url);
+            if (found == null) {
+                found = probeArtifact(url, i);
+            } else {
+                LOGGER.trace("Cached lookup {}: {}", found ? "found" : "not found", url);
+            }
+            if (Boolean.TRUE.equals(found)) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    // Probe the bases concurrently, but give precedence to the base that comes first
+    private URL findArtifactConcurrently(MavenCoordinates mavenid) {
+        int size = baserepos.size();
+        URL[] urls = new URL[size];
+        Boolean[] cached = new Boolean[size];
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            final URL url = urls[i] = mavenid.getArtifactURL(baserepos.get(i));
+            cached[i] = getCachedLookup(url);
+            if (cached[i] == null) {
+                try {
+                    futures.add(lookupExecutor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            return probeArtifact(url, index);
+                        }
+                    }));
+                    continue;
+                } catch (RejectedExecutionException ex) {
+                    // Shut down in the meantime, probe on the calling thread
+                    cached[i] = probeArtifact(url, index);
+                }
+            }
+            futures.add(null);
+            if (Boolean.TRUE.equals(cached[i])) {
+                break;
+            }
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Boolean found = cached[i];
+                Future<Boolean> future = futures.get(i);
+                if (future != null) {
+                    try {
+                        found = future.get();
+                    } catch (ExecutionException ex) {
+                        LOGGER.debug("Cannot probe: " + urls[i], ex.getCause());
+                    }
+                }
+                if (Boolean.TRUE.equals(found)) {
+                    return urls[i];
+                }
+            }
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            // Cancel the probes that lost the race
+            for (Future<Boolean> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    // A local file is cheaper to check than the cache and may appear at any time
+    private static boolean isCacheable(URL url) {
+        return !"file".equals(url.getProtocol());
+    }
+
+    private Boolean getCachedLookup(URL url) {
+        return isCacheable(url) ? lookupCache.get(url) : null;
+    }
+
+    // Returns null if the existence of the artifact cannot be determined
+    private Boolean probeArtifact(URL url, int index) {
+        try {
+            boolean found = artifactExists(url, connectTimeouts[index], readTimeouts[index]);
+            if (isCacheable(url)) {
+                lookupCache.put(url, found);
+            }
+            return found;
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot access: {}", url);
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the artifact at the given URL exists without downloading it.
+     *
+     * @return false if the artifact definitely does not exist
+     * @throws IOException if the existence of the artifact cannot be determined
+     */
+    protected boolean artifactExists(URL url, int connectTimeout, int readTimeout) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).isFile();
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                throw new IOException("Invalid file URL: " + url, ex);
+            }
+        }
+        URLConnection conn = url.openConnection();
+        if (conn instanceof HttpURLConnection) {
+            int status = getResponseCode((HttpURLConnection) conn, "HEAD", connectTimeout, readTimeout);
+            if (status != HttpURLConnection.HTTP_OK && !isNotFound(status)) {
+                // Some servers and proxies reject HEAD, but serve the artifact on GET
+                LOGGER.debug("HEAD status {}, trying GET: {}", status, url);
+                status = getResponseCode((HttpURLConnection) url.openConnection(), "GET", connectTimeout, readTimeout);
+            }
+            if (status == HttpURLConnection.HTTP_OK)
+                return true;
+            if (isNotFound(status))
+                return false;
+            throw new IOException("Unexpected status " + status + " for: " + url);
+        }
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        try {
+            conn.getInputStream().close();
+            return true;
+        } catch (FileNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static int getResponseCode(HttpURLConnection conn, String method, int connectTimeout, int readTimeout) throws IOException {
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        try {
+            return conn.getResponseCode();
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static boolean isNotFound(int status) {
+        return status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE;
+    }
+
     private static URL getBaseURL(String urlspec) {
         try {
             return new URL(urlspec);
@@ -20,10 +20,13 @@ package org.jboss.gravia.repository.spi;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.gravia.repository.Repository;
@@ -145,47 +148,100 @@ public abstract class AbstractRepository implements Repository {
         return getRequiredRepositoryStorage().getResource(identity);
     }
 
+    /**
+     * Find the providers for all given requirements in one pass.
+     *
+     * The storage is queried once per requirement. The requirements without providers
+     * are passed to the fallback repository together and the resources it
+     * discovers are imported into the storage in a single batch.
+     */
     @Override
     public Map<Requirement, Collection<Capability>> findProviders(Collection<Requirement> reqs) {
         IllegalArgumentAssertion.assertNotNull(reqs, "reqs");
 
+        // Try to find the providers in the storage
+        RepositoryStorage repositoryStorage = getRequiredRepositoryStorage();
         Map<Requirement, Collection<Capability>> result = new HashMap<Requirement, Collection<Capability>>();
+        List<Requirement> misses = new ArrayList<Requirement>();
         for (Requirement req : reqs) {
-            Collection<Capability> providers = findProviders(req);
+            Collection<Capability> providers = repositoryStorage.findProviders(req);
+            if (providers.isEmpty()) {
+                misses.add(req);
+            }
             result.put(req, providers);
         }
 
+        // Try to find the missing providers in the fallback
+        Repository fallback = getFallbackRepository();
+        if (!misses.isEmpty() && fallback != null) {
+            Map<Requirement, Collection<Capability>> fallbackProviders = fallback.findProviders(misses);
+
+            // Import the resources that are not yet in the storage
+            Map<ResourceIdentity, Resource> imports = new LinkedHashMap<ResourceIdentity, Resource>();
+            for (Requirement req : misses) {
+                Collection<Capability> caps = fallbackProviders.get(req);
+                if (caps != null) {
+                    for (Capability cap : caps) {
+                        Resource res = cap.getResource();
+                        ResourceIdentity resid = res.getIdentity();
+                        if (!imports.containsKey(resid) && repositoryStorage.getResource(resid) == null) {
+                            imports.put(resid, res);
+                        }
+                    }
+                }
+            }
+            Map<ResourceIdentity, Resource> imported = new HashMap<ResourceIdentity, Resource>();
+            if (!imports.isEmpty()) {
+                for (Resource res : addResources(repositoryStorage, imports.values())) {
+                    imported.put(res.getIdentity(), res);
+                }
+            }
+
+            // Use the capabilities of the imported resources
+            for (Requirement req : misses) {
+                Collection<Capability> caps = fallbackProviders.get(req);
+                Collection<Capability> providers = new HashSet<Capability>();
+                if (caps != null) {
+                    for (Capability cap : caps) {
+                        Resource storageResource = imported.get(cap.getResource().getIdentity());
+                        providers.add(getStorageCapability(cap, storageResource, req.getNamespace()));
+                    }
+                }
+                result.put(req, providers);
+            }
+        }
+
         return result;
     }
 
     @Override
     public Collection<Capability> findProviders(Requirement req) {
         IllegalArgumentAssertion.assertNotNull(req, "req");
+        Collection<Capability> providers = findProviders(Collections.singleton(req)).get(req);
+        return Collections.unmodifiableCollection(providers);
+    }
 
-        // Try to find the providers in the storage
-        RepositoryStorage repositoryStorage = getRequiredRepositoryStorage();
-        Collection<Capability> providers = repositoryStorage.findProviders(req);
-
-        // Try to find the providers in the fallback
-        if (providers.isEmpty() && getFallbackRepository() != null) {
-            providers = new HashSet<Capability>();
-            for (Capability cap : getFallbackRepository().findProviders(req)) {
-                Resource res = cap.getResource();
-                ResourceIdentity resid = res.getIdentity();
-                Resource storageResource = repositoryStorage.getResource(resid);
-                if (storageResource == null) {
-                    storageResource = repositoryStorage.addResource(res);
-                    for (Capability aux : storageResource.getCapabilities(req.getNamespace())) {
-                        if (cap.getAttributes().equals(aux.getAttributes())) {
-                            cap = aux;
-                            break;
-                        }
-                    }
+    // Other storage implementations add the resources one by one
+    private static List<Resource> addResources(RepositoryStorage storage, Collection<Resource> resources) {
+        if (storage instanceof MemoryRepositoryStorage) {
+            return ((MemoryRepositoryStorage) storage).addResources(resources);
+        }
+        List<Resource> result = new ArrayList<Resource>();
+        for (Resource res : resources) {
+            result.add(storage.addResource(res));
+        }
+        return result;
+    }
+
+    private static Capability getStorageCapability(Capability cap, Resource storageResource, String namespace) {
+        if (storageResource != null) {
+            for (Capability aux : storageResource.getCapabilities(namespace)) {
+                if (cap.getAttributes().equals(aux.getAttributes())) {
+                    return aux;
                 }
-                providers.add(cap);
             }
         }
-        return Collections.unmodifiableCollection(providers);
+        return cap;
     }
 
     private RepositoryStorage getRequiredRepositoryStorage() {
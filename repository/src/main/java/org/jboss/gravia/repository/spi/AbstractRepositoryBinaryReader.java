@@ -0,0 +1,267 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository.spi;
+
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.FORMAT_VERSION;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.MAGIC;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_BOOLEAN;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_DOUBLE;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_FLOAT;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_INTEGER;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_LIST;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_LONG;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_MAVEN;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_URL;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_VERSION;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.TAG_VERSION_RANGE;
+import static org.jboss.gravia.repository.spi.AbstractRepositoryBinaryWriter.UTF8;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.jboss.gravia.repository.RepositoryReader;
+import org.jboss.gravia.repository.RepositoryStorageException;
+import org.jboss.gravia.resource.MavenCoordinates;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+import org.jboss.gravia.utils.IllegalStateAssertion;
+
+/**
+ * Read repository content in the binary format of the {@link AbstractRepositoryBinaryWriter}.
+ *
+ * A repository file is read into a heap buffer, so that no mapping keeps the file open after the
+ * reader is done. The checksum of the content is verified before anything is decoded.
+ * Strings are decoded once, when they are first referenced. A resource is decoded when it is
+ * requested from {@link #nextResource()}.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public abstract class AbstractRepositoryBinaryReader implements RepositoryReader {
+
+    private final ByteBuffer buffer;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final Map<String, String> attributes;
+    private final int[] resourceOffsets;
+    private int nextResource;
+
+    public AbstractRepositoryBinaryReader(File file) throws IOException {
+        this(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    public AbstractRepositoryBinaryReader(ByteBuffer buffer) {
+        IllegalArgumentAssertion.assertNotNull(buffer, "buffer");
+        this.buffer = verifyChecksum(buffer.duplicate());
+        IllegalStateAssertion.assertEquals(MAGIC, this.buffer.getInt(), "Not a binary repository");
+        IllegalStateAssertion.assertEquals(FORMAT_VERSION, this.buffer.getInt(), "Unsupported binary repository format");
+
+        // Locate the strings, which are decoded on demand
+        int count = getCount(this.buffer);
+        stringOffsets = new int[count];
+        strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            stringOffsets[i] = this.buffer.position();
+            int length = this.buffer.getInt();
+            this.buffer.position(this.buffer.position() + length);
+        }
+
+        count = getCount(this.buffer);
+        Map<String, String> atts = new LinkedHashMap<String, String>();
+        for (int i = 0; i < count; i++) {
+            atts.put(getString(this.buffer.getInt()), getString(this.buffer.getInt()));
+        }
+        attributes = Collections.unmodifiableMap(atts);
+
+        // Resource offsets are relative to the start of the records
+        count = getCount(this.buffer);
+        resourceOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            resourceOffsets[i] = this.buffer.getInt();
+        }
+        int recordsStart = this.buffer.position();
+        for (int i = 0; i < count; i++) {
+            resourceOffsets[i] += recordsStart;
+        }
+    }
+
+    // Verify the trailing checksum and return the buffer without it
+    private static ByteBuffer verifyChecksum(ByteBuffer buffer) {
+        int length = buffer.remaining() - 4;
+        IllegalStateAssertion.assertTrue(length >= 8, "Truncated binary repository");
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.limit(content.position() + length);
+        byte[] chunk = new byte[8192];
+        while (content.hasRemaining()) {
+            int len = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, len);
+            crc.update(chunk, 0, len);
+        }
+        int checksum = buffer.getInt(buffer.position() + length);
+        IllegalStateAssertion.assertTrue(checksum == (int) crc.getValue(), "Invalid binary repository checksum");
+        buffer.limit(buffer.position() + length);
+        return buffer;
+    }
+
+    // Each counted element takes at least four bytes
+    private static int getCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        IllegalStateAssertion.assertTrue(count >= 0 && count <= buffer.remaining() / 4, "Invalid binary repository count: " + count);
+        return count;
+    }
+
+    protected abstract ResourceBuilder createResourceBuilder();
+
+    @Override
+    public Map<String, String> getRepositoryAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the number of resources in the repository.
+     */
+    public int getResourceCount() {
+        return resourceOffsets.length;
+    }
+
+    @Override
+    public Resource nextResource() {
+        return nextResource < resourceOffsets.length ? getResource(nextResource++) : null;
+    }
+
+    /**
+     * Decode the resource at the given index.
+     */
+    public Resource getResource(int index) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(resourceOffsets[index]);
+        ResourceBuilder builder = createResourceBuilder();
+        int count = record.getInt();
+        for (int i = 0; i < count; i++) {
+            String namespace = getString(record.getInt());
+            Map<String, Object> atts = readAttributes(record);
+            Map<String, String> dirs = readDirectives(record);
+            builder.addCapability(namespace, atts, dirs);
+        }
+        count = record.getInt();
+        for (int i = 0; i < count; i++) {
+            String namespace = getString(record.getInt());
+            Map<String, Object> atts = readAttributes(record);
+            Map<String, String> dirs = readDirectives(record);
+            builder.addRequirement(namespace, atts, dirs);
+        }
+        return builder.getResource();
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    private Map<String, Object> readAttributes(ByteBuffer record) {
+        int count = record.getInt();
+        Map<String, Object> atts = new HashMap<String, Object>();
+        for (int i = 0; i < count; i++) {
+            String key = getString(record.getInt());
+            byte tag = record.get();
+            Object value;
+            if (tag == TAG_LIST) {
+                byte elementTag = record.get();
+                int size = record.getInt();
+                List<Object> list = new ArrayList<Object>(size);
+                for (int j = 0; j < size; j++) {
+                    list.add(readValue(record, elementTag));
+                }
+                value = list;
+            } else {
+                value = readValue(record, tag);
+            }
+            atts.put(key, value);
+        }
+        return atts;
+    }
+
+    private Map<String, String> readDirectives(ByteBuffer record) {
+        int count = record.getInt();
+        Map<String, String> dirs = new HashMap<String, String>();
+        for (int i = 0; i < count; i++) {
+            dirs.put(getString(record.getInt()), getString(record.getInt()));
+        }
+        return dirs;
+    }
+
+    private Object readValue(ByteBuffer record, byte tag) {
+        switch (tag) {
+            case TAG_BOOLEAN:
+                return record.get() != 0;
+            case TAG_DOUBLE:
+                return record.getDouble();
+            case TAG_FLOAT:
+                return record.getFloat();
+            case TAG_INTEGER:
+                return record.getInt();
+            case TAG_LONG:
+                return record.getLong();
+            case TAG_MAVEN:
+                return MavenCoordinates.parse(getString(record.getInt()));
+            case TAG_URL:
+                String urlspec = getString(record.getInt());
+                try {
+                    return new URL(urlspec);
+                } catch (MalformedURLException ex) {
+                    throw new RepositoryStorageException("Invalid URL: " + urlspec, ex);
+                }
+            case TAG_VERSION:
+                return Version.parseVersion(getString(record.getInt()));
+            case TAG_VERSION_RANGE:
+                return new VersionRange(getString(record.getInt()));
+            default:
+                return getString(record.getInt());
+        }
+    }
+
+    private String getString(int index) {
+        String result = strings[index];
+        if (result == null) {
+            ByteBuffer source = buffer.duplicate();
+            source.position(stringOffsets[index]);
+            byte[] bytes = new byte[source.getInt()];
+            source.get(bytes);
+            result = new String(bytes, UTF8);
+            strings[index] = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository.spi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.jboss.gravia.repository.RepositoryStorageException;
+import org.jboss.gravia.repository.RepositoryWriter;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.spi.AttributeValueHandler.AttributeValue;
+import org.jboss.gravia.resource.spi.AttributeValueHandler.Type;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * Write repository content in a compact binary format.
+ *
+ * All strings go to a string table and are referenced by index. Attribute values are written
+ * with their type, so that they can be read without parsing. A table of resource offsets
+ * allows a reader to decode every resource on demand. The content is followed by its CRC32,
+ * so that a reader can detect a truncated or otherwise damaged file.
+ *
+ * The binary format is meant for fast loading of a repository that is also available as XML.
+ * It is not an interchange format.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ * @see AbstractRepositoryBinaryReader
+ */
+public abstract class AbstractRepositoryBinaryWriter implements RepositoryWriter {
+
+    static final int MAGIC = 0x47525642;
+    static final int FORMAT_VERSION = 2;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte TAG_LIST = 0;
+    static final byte TAG_STRING = 1;
+    static final byte TAG_BOOLEAN = 2;
+    static final byte TAG_DOUBLE = 3;
+    static final byte TAG_FLOAT = 4;
+    static final byte TAG_INTEGER = 5;
+    static final byte TAG_LONG = 6;
+    static final byte TAG_MAVEN = 7;
+    static final byte TAG_URL = 8;
+    static final byte TAG_VERSION = 9;
+    static final byte TAG_VERSION_RANGE = 10;
+
+    private final OutputStream outputStream;
+    private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+    private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+    private final List<Integer> offsets = new ArrayList<Integer>();
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(records);
+
+    public AbstractRepositoryBinaryWriter(OutputStream outputStream) {
+        IllegalArgumentAssertion.assertNotNull(outputStream, "outputStream");
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void writeRepositoryElement(Map<String, String> attributes) {
+        this.attributes.putAll(attributes);
+    }
+
+    @Override
+    public void writeResource(Resource resource) {
+        try {
+            offsets.add(recordOutput.size());
+            List<Capability> caps = resource.getCapabilities(null);
+            recordOutput.writeInt(caps.size());
+            for (Capability cap : caps) {
+                writeElement(cap.getNamespace(), cap.getAttributes(), cap.getDirectives());
+            }
+            List<Requirement> reqs = resource.getRequirements(null);
+            recordOutput.writeInt(reqs.size());
+            for (Requirement req : reqs) {
+                writeElement(req.getNamespace(), req.getAttributes(), req.getDirectives());
+            }
+        } catch (IOException ex) {
+            throw new RepositoryStorageException("Cannot write resource", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(outputStream, new CRC32());
+            DataOutputStream output = new DataOutputStream(checked);
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+
+            // The attribute strings must be in the string table
+            for (Entry<String, String> entry : attributes.entrySet()) {
+                stringIndex(entry.getKey());
+                stringIndex(entry.getValue());
+            }
+
+            output.writeInt(strings.size());
+            for (String str : strings.keySet()) {
+                byte[] bytes = str.getBytes(UTF8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+            output.writeInt(attributes.size());
+            for (Entry<String, String> entry : attributes.entrySet()) {
+                output.writeInt(stringIndex(entry.getKey()));
+                output.writeInt(stringIndex(entry.getValue()));
+            }
+            output.writeInt(offsets.size());
+            for (Integer offset : offsets) {
+                output.writeInt(offset);
+            }
+            recordOutput.flush();
+            records.writeTo(output);
+            output.flush();
+
+            // The checksum covers everything before it
+            new DataOutputStream(outputStream).writeInt((int) checked.getChecksum().getValue());
+            outputStream.flush();
+        } catch (IOException ex) {
+            throw new RepositoryStorageException("Cannot write repository", ex);
+        }
+    }
+
+    private void writeElement(String namespace, Map<String, Object> atts, Map<String, String> dirs) throws IOException {
+        recordOutput.writeInt(stringIndex(namespace));
+        recordOutput.writeInt(atts.size());
+        for (Entry<String, Object> entry : atts.entrySet()) {
+            recordOutput.writeInt(stringIndex(entry.getKey()));
+            writeValue(AttributeValue.create(entry.getValue()));
+        }
+        recordOutput.writeInt(dirs.size());
+        for (Entry<String, String> entry : dirs.entrySet()) {
+            recordOutput.writeInt(stringIndex(entry.getKey()));
+            recordOutput.writeInt(stringIndex(entry.getValue()));
+        }
+    }
+
+    private void writeValue(AttributeValue attval) throws IOException {
+        byte tag = getTag(attval.getType());
+        if (attval.isListType()) {
+            List<?> list = (List<?>) attval.getValue();
+            recordOutput.writeByte(TAG_LIST);
+            recordOutput.writeByte(tag);
+            recordOutput.writeInt(list.size());
+            for (Object value : list) {
+                writeValue(tag, value);
+            }
+        } else {
+            recordOutput.writeByte(tag);
+            writeValue(tag, attval.getValue());
+        }
+    }
+
+    private void writeValue(byte tag, Object value) throws IOException {
+        switch (tag) {
+            case TAG_BOOLEAN:
+                recordOutput.writeBoolean((Boolean) value);
+                break;
+            case TAG_DOUBLE:
+                recordOutput.writeDouble((Double) value);
+                break;
+            case TAG_FLOAT:
+                recordOutput.writeFloat((Float) value);
+                break;
+            case TAG_INTEGER:
+                recordOutput.writeInt((Integer) value);
+                break;
+            case TAG_LONG:
+                recordOutput.writeLong((Long) value);
+                break;
+            default:
+                recordOutput.writeInt(stringIndex(value.toString()));
+                break;
+        }
+    }
+
+    private static byte getTag(Type type) {
+        switch (type) {
+            case Boolean:
+                return TAG_BOOLEAN;
+            case Double:
+                return TAG_DOUBLE;
+            case Float:
+                return TAG_FLOAT;
+            case Integer:
+                return TAG_INTEGER;
+            case Long:
+                return TAG_LONG;
+            case Maven:
+                return TAG_MAVEN;
+            case URL:
+                return TAG_URL;
+            case Version:
+                return TAG_VERSION;
+            case VersionRange:
+                return TAG_VERSION_RANGE;
+            default:
+                return TAG_STRING;
+        }
+    }
+
+    private int stringIndex(String str) {
+        Integer index = strings.get(str);
+        if (index == null) {
+            index = strings.size();
+            strings.put(str, index);
+        }
+        return index;
+    }
+}
@@ -19,10 +19,14 @@
  */
 package org.jboss.gravia.repository.spi;
 
+import static org.jboss.gravia.repository.spi.RepositoryLogger.LOGGER;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +95,30 @@ public abstract class AbstractRepositoryStorage extends MemoryRepositoryStorage
         return addResourceInternal(res, true);
     }
 
+    @Override
+    public synchronized List<Resource> addResources(Collection<Resource> resources) throws RepositoryStorageException {
+        List<Resource> result = new ArrayList<Resource>();
+        try {
+            for (Resource res : resources) {
+                result.add(addResourceInternal(res, false));
+            }
+        } catch (RuntimeException ex) {
+            // Persist the resources that were added before the failure
+            if (!result.isEmpty()) {
+                try {
+                    persistAddResources(result);
+                } catch (RuntimeException persistex) {
+                    LOGGER.error("Cannot persist resources: " + result, persistex);
+                }
+            }
+            throw ex;
+        }
+        if (!result.isEmpty()) {
+            persistAddResources(result);
+        }
+        return result;
+    }
+
     private synchronized Resource addResourceInternal(Resource resource, boolean writeXML) throws RepositoryStorageException {
         if (resource == null)
             throw new IllegalArgumentException("Null resource");
@@ -164,7 +192,7 @@ public abstract class AbstractRepositoryStorage extends MemoryRepositoryStorage
 
         Resource result = super.addResource(res);
         if (writeXML == true) {
-            writeRepositoryXML();
+            persistAddResource(result);
         }
 
         return result;
@@ -173,7 +201,7 @@ public abstract class AbstractRepositoryStorage extends MemoryRepositoryStorage
     private Resource addAbstractResource(Resource res, boolean writeXML) throws RepositoryStorageException {
         Resource result = super.addResource(res);
         if (writeXML == true) {
-            writeRepositoryXML();
+            persistAddResource(result);
         }
         return result;
     }
@@ -196,11 +224,52 @@ public abstract class AbstractRepositoryStorage extends MemoryRepositoryStorage
         }
         super.removeResource(res.getIdentity());
         if (writeXML == true) {
-            writeRepositoryXML();
+            persistRemoveResource(res);
         }
         return res;
     }
 
+    /**
+     * Add a resource that is recovered from persistent storage.
+     * The resource is not persisted again. A resource that already exists is not added.
+     */
+    protected final synchronized Resource recoverAddResource(Resource res) throws RepositoryStorageException {
+        Resource result = getResource(res.getIdentity());
+        return result != null ? result : addResourceInternal(res, false);
+    }
+
+    /**
+     * Remove a resource while recovering from persistent storage.
+     * The removal is not persisted again. A resource that does not exist is ignored.
+     */
+    protected final synchronized Resource recoverRemoveResource(ResourceIdentity resid) {
+        return getResource(resid) != null ? removeResourceInternal(resid, false) : null;
+    }
+
+    /**
+     * Persist a resource that was added to this storage.
+     * By default the complete repository is written.
+     */
+    protected void persistAddResource(Resource res) throws RepositoryStorageException {
+        writeRepositoryXML();
+    }
+
+    /**
+     * Persist the resources that were added to this storage in one batch.
+     * By default the complete repository is written once.
+     */
+    protected void persistAddResources(List<Resource> resources) throws RepositoryStorageException {
+        writeRepositoryXML();
+    }
+
+    /**
+     * Persist a resource that was removed from this storage.
+     * By default the complete repository is written.
+     */
+    protected void persistRemoveResource(Resource res) throws RepositoryStorageException {
+        writeRepositoryXML();
+    }
+
     private InputStream getResourceContent(ContentCapability ccap) {
         InputStream input;
         Resource resource = ccap.getResource();
@@ -218,18 +287,24 @@ public abstract class AbstractRepositoryStorage extends MemoryRepositoryStorage
         return input;
     }
 
-    private void writeRepositoryXML() {
+    protected void writeRepositoryXML() {
         RepositoryWriter writer;
         try {
             writer = getPersistentRepositoryWriter();
         } catch (RepositoryStorageException ex) {
             throw new IllegalStateException("Cannot initialize repository writer", ex);
         }
+        writeRepositoryContent(writer, getRepositoryReader());
+    }
+
+    /**
+     * Write the resources from the given reader to the given writer.
+     */
+    protected void writeRepositoryContent(RepositoryWriter writer, RepositoryReader reader) {
         Map<String, String> attributes = new HashMap<String, String>();
         attributes.put(Attribute.NAME.getLocalName(), getRepository().getName());
         attributes.put(Attribute.INCREMENT.getLocalName(), increment.toString());
         writer.writeRepositoryElement(attributes);
-        RepositoryReader reader = getRepositoryReader();
         Resource resource = reader.nextResource();
         while (resource != null) {
             writer.writeResource(resource);
@@ -0,0 +1,217 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.repository.spi;
+
+import static org.jboss.gravia.repository.spi.RepositoryLogger.LOGGER;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache of maven artifact lookups.
+ *
+ * An artifact URL maps to whether the artifact was found at that URL.
+ * Found and not found results expire after their own time to live.
+ * If a cache file is given, unexpired results survive a restart. New results are written
+ * in batches, when {@link #FLUSH_BATCH} results are pending or {@link #FLUSH_INTERVAL} has passed
+ * since the last write, and on {@link #flush()}.
+ *
+ * The cache holds at most a maximum number of results. Expired results are dropped when
+ * the cache is written or full.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class MavenLookupCache {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    static final int FLUSH_BATCH = 100;
+    static final long FLUSH_INTERVAL = 10000;
+
+    private final ConcurrentMap<String, LookupResult> results = new ConcurrentHashMap<String, LookupResult>();
+    private final AtomicInteger unwritten = new AtomicInteger();
+    private final long foundTTL;
+    private final long notFoundTTL;
+    private final int maximumSize;
+    private final File cacheFile;
+    private volatile long lastWrite;
+
+    MavenLookupCache(long foundTTL, long notFoundTTL, File cacheFile) {
+        this(foundTTL, notFoundTTL, DEFAULT_MAXIMUM_SIZE, cacheFile);
+    }
+
+    MavenLookupCache(long foundTTL, long notFoundTTL, int maximumSize, File cacheFile) {
+        this.foundTTL = foundTTL;
+        this.notFoundTTL = notFoundTTL;
+        this.maximumSize = maximumSize;
+        this.cacheFile = cacheFile;
+        if (cacheFile != null && cacheFile.isFile()) {
+            loadCacheFile();
+        }
+    }
+
+    /**
+     * Get the cached lookup result for the given artifact URL
+     * @return true if found, false if not found, null if unknown
+     */
+    Boolean get(URL url) {
+        String key = url.toExternalForm();
+        LookupResult result = results.get(key);
+        if (result == null)
+            return null;
+        if (result.expires < System.currentTimeMillis()) {
+            results.remove(key, result);
+            return null;
+        }
+        return result.found;
+    }
+
+    /**
+     * Cache the lookup result for the given artifact URL
+     */
+    void put(URL url, boolean found) {
+        long ttl = found ? foundTTL : notFoundTTL;
+        if (ttl > 0) {
+            long now = System.currentTimeMillis();
+            results.put(url.toExternalForm(), new LookupResult(found, now + ttl));
+            if (results.size() > maximumSize) {
+                prune(now);
+            }
+            if (cacheFile != null && (unwritten.incrementAndGet() >= FLUSH_BATCH || now - lastWrite >= FLUSH_INTERVAL)) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Write the results that are not yet in the cache file
+     */
+    synchronized void flush() {
+        if (cacheFile != null && unwritten.getAndSet(0) > 0) {
+            writeCacheFile();
+        }
+    }
+
+    // Drop the expired results, then as many others as needed to get below the maximum size
+    private void prune(long now) {
+        Iterator<LookupResult> iterator = results.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expires < now) {
+                iterator.remove();
+            }
+        }
+        iterator = results.values().iterator();
+        while (results.size() > maximumSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    private void loadCacheFile() {
+        Properties props = new Properties();
+        try {
+            InputStream input = new FileInputStream(cacheFile);
+            try {
+                props.load(input);
+            } finally {
+                input.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot read maven lookup cache: " + cacheFile, ex);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String key : props.stringPropertyNames()) {
+            LookupResult result = LookupResult.parse(props.getProperty(key));
+            if (result != null && result.expires >= now && results.size() < maximumSize) {
+                results.put(key, result);
+            }
+        }
+        LOGGER.debug("Loaded {} maven lookups from: {}", results.size(), cacheFile);
+    }
+
+    private void writeCacheFile() {
+        Properties props = new Properties();
+        long now = System.currentTimeMillis();
+        prune(now);
+        for (Entry<String, LookupResult> entry : results.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        lastWrite = now;
+        try {
+            File tmpFile = new File(cacheFile.getPath() + ".tmp");
+            tmpFile.getParentFile().mkdirs();
+            FileOutputStream output = new FileOutputStream(tmpFile);
+            try {
+                props.store(output, "Maven artifact lookups");
+            } finally {
+                output.close();
+            }
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot write maven lookup cache: " + cacheFile, ex);
+        }
+    }
+
+    static final class LookupResult {
+
+        private final boolean found;
+        private final long expires;
+
+        LookupResult(boolean found, long expires) {
+            this.found = found;
+            this.expires = expires;
+        }
+
+        static LookupResult parse(String value) {
+            int index = value != null ? value.indexOf(':') : -1;
+            if (index < 0)
+                return null;
+            try {
+                return new LookupResult(Boolean.parseBoolean(value.substring(0, index)), Long.parseLong(value.substring(index + 1)));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return found + ":" + expires;
+        }
+    }
+}
@@ -19,9 +19,12 @@
  */
 package org.jboss.gravia.repository.spi;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -85,6 +88,20 @@ public class MemoryRepositoryStorage extends DefaultResourceStore implements Rep
         return result;
     }
 
+    /**
+     * Add the given resources in one batch.
+     * A persistent storage writes its state once for the whole batch.
+     *
+     * @return The added resources in the given order
+     */
+    public List<Resource> addResources(Collection<Resource> resources) {
+        List<Resource> result = new ArrayList<Resource>();
+        for (Resource res : resources) {
+            result.add(addResource(res));
+        }
+        return result;
+    }
+
     @Override
     public Resource removeResource(ResourceIdentity resid) {
         Resource result = super.removeResource(resid);
@@ -59,10 +59,18 @@ public final class RepositoryContentHelper {
         } finally {
             input.close();
         }
-        StringBuilder builder = new StringBuilder();
-        for (byte b : md.digest()) {
-            builder.append(String.format("%02x", b));
+        return toHexString(md.digest());
+    }
+
+    /**
+     * Get the lower case hex representation of the given digest
+     */
+    public static String toHexString(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[2 * i] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+            chars[2 * i + 1] = Character.forDigit(digest[i] & 0xf, 16);
         }
-        return builder.toString();
+        return new String(chars);
     }
 }
@@ -19,17 +19,27 @@ package org.jboss.test.gravia.repository;
  * #L%
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.gravia.repository.DefaultRepositoryBinaryReader;
+import org.jboss.gravia.repository.DefaultRepositoryBinaryWriter;
 import org.jboss.gravia.repository.DefaultRepositoryXMLReader;
 import org.jboss.gravia.repository.DefaultRepositoryXMLWriter;
 import org.jboss.gravia.repository.RepositoryReader;
 import org.jboss.gravia.repository.RepositoryWriter;
+import org.jboss.gravia.repository.spi.AbstractRepositoryBinaryReader;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
 import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.junit.Assert;
 import org.junit.Test;
 
 /** 
@@ -58,4 +68,74 @@ public class AbstractResourcesWriterTestCase extends AbstractRepositoryTest {
         reader = new DefaultRepositoryXMLReader(new FileInputStream(file));
         AbstractResourcesReaderTestCase.verifyContent(reader.getRepositoryAttributes(), getResources(reader));
     }
+
+    @Test
+    public void testBinaryWriter() throws Exception {
+
+        RepositoryReader reader = getRepositoryReader("xml/abstract-resources.xml");
+        Map<String, String> attributes = reader.getRepositoryAttributes();
+        List<Resource> resources = getResources(reader);
+
+        File file = new File("target/abstract-resources.bin");
+        FileOutputStream output = new FileOutputStream(file);
+        RepositoryWriter writer = new DefaultRepositoryBinaryWriter(output);
+        writer.writeRepositoryElement(attributes);
+        for (Resource res : resources) {
+            writer.writeResource(res);
+        }
+        writer.close();
+        output.close();
+
+        reader = new DefaultRepositoryBinaryReader(file);
+        AbstractResourcesReaderTestCase.verifyContent(reader.getRepositoryAttributes(), getResources(reader));
+    }
+
+    @Test
+    public void testBinaryChecksum() throws Exception {
+
+        RepositoryReader reader = getRepositoryReader("xml/abstract-resources.xml");
+        Map<String, String> attributes = reader.getRepositoryAttributes();
+        List<Resource> resources = getResources(reader);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RepositoryWriter writer = new DefaultRepositoryBinaryWriter(output);
+        writer.writeRepositoryElement(attributes);
+        for (Resource res : resources) {
+            writer.writeResource(res);
+        }
+        writer.close();
+        byte[] bytes = output.toByteArray();
+
+        // A damaged byte anywhere in the content is detected
+        byte[] damaged = bytes.clone();
+        damaged[damaged.length / 2] ^= 0x01;
+        assertInvalidBinary(damaged);
+
+        // A truncated file is detected
+        assertInvalidBinary(Arrays.copyOf(bytes, bytes.length - 1));
+        assertInvalidBinary(new byte[4]);
+
+        File file = new File("target/abstract-resources-damaged.bin");
+        Files.write(file.toPath(), damaged);
+        try {
+            new DefaultRepositoryBinaryReader(file);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private void assertInvalidBinary(byte[] bytes) {
+        try {
+            new AbstractRepositoryBinaryReader(ByteBuffer.wrap(bytes)) {
+                @Override
+                protected ResourceBuilder createResourceBuilder() {
+                    return new DefaultResourceBuilder();
+                }
+            };
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.gravia.repository.DefaultRepository;
+import org.jboss.gravia.repository.Repository;
+import org.jboss.gravia.repository.RepositoryAggregator;
+import org.jboss.gravia.repository.spi.AbstractRepository;
+import org.jboss.gravia.repository.spi.MemoryRepositoryStorage;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.DefaultRequirementBuilder;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.IdentityNamespace;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the batch {@link Repository#findProviders(Collection)}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BatchFindProvidersTestCase extends AbstractRepositoryTest {
+
+    private CountingStorage storage;
+    private CountingRepository fallback;
+    private Repository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = new CountingStorage();
+        storage.addResource(newResource("A"));
+        fallback = new CountingRepository();
+        fallback.getRepositoryStorage().addResource(newResource("B"));
+        fallback.getRepositoryStorage().addResource(newResource("C"));
+        repository = new DefaultRepository(null, storage, fallback);
+    }
+
+    @Test
+    public void testSinglePassFallback() throws Exception {
+        Requirement reqA = newRequirement("A");
+        Requirement reqB = newRequirement("B");
+        Requirement reqC = newRequirement("C");
+        Requirement reqD = newRequirement("D");
+
+        Map<Requirement, Collection<Capability>> result = repository.findProviders(Arrays.asList(reqA, reqB, reqC, reqD));
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals(1, result.get(reqA).size());
+        Assert.assertEquals(1, result.get(reqB).size());
+        Assert.assertEquals(1, result.get(reqC).size());
+        Assert.assertTrue(result.get(reqD).isEmpty());
+
+        // The misses are passed to the fallback together
+        Assert.assertEquals(1, fallback.batches.size());
+        Assert.assertEquals(Arrays.asList(reqB, reqC, reqD), fallback.batches.get(0));
+
+        // The fallback resources are imported in one batch
+        Assert.assertEquals(1, storage.batches);
+        Resource resB = result.get(reqB).iterator().next().getResource();
+        Assert.assertSame(storage.getResource(resB.getIdentity()), resB);
+
+        // The imported resources are found in storage
+        result = repository.findProviders(Arrays.asList(reqB, reqC));
+        Assert.assertEquals(1, result.get(reqB).size());
+        Assert.assertEquals(1, fallback.batches.size());
+        Assert.assertEquals(1, storage.batches);
+    }
+
+    @Test
+    public void testSingleRequirement() throws Exception {
+        Requirement reqB = newRequirement("B");
+        Collection<Capability> providers = repository.findProviders(reqB);
+        Assert.assertEquals(1, providers.size());
+        Assert.assertNotNull(storage.getResource(providers.iterator().next().getResource().getIdentity()));
+        Assert.assertEquals(1, fallback.batches.size());
+    }
+
+    @Test
+    public void testAggregatorBatch() throws Exception {
+        CountingRepository other = new CountingRepository();
+        other.getRepositoryStorage().addResource(newResource("D"));
+        RepositoryAggregator aggregator = new RepositoryAggregator(null, fallback, other);
+
+        Requirement reqB = newRequirement("B");
+        Requirement reqD = newRequirement("D");
+        Requirement reqE = newRequirement("E");
+        Map<Requirement, Collection<Capability>> result = aggregator.findProviders(Arrays.asList(reqB, reqD, reqE));
+        Assert.assertEquals(1, result.get(reqB).size());
+        Assert.assertEquals(1, result.get(reqD).size());
+        Assert.assertTrue(result.get(reqE).isEmpty());
+        Assert.assertEquals(Arrays.asList(reqB, reqD, reqE), fallback.batches.get(0));
+        Assert.assertEquals(Arrays.asList(reqD, reqE), other.batches.get(0));
+    }
+
+    private static Resource newResource(String name) {
+        return new DefaultResourceBuilder().addIdentityCapability(name, "1.0.0").getResource();
+    }
+
+    private static Requirement newRequirement(String name) {
+        return new DefaultRequirementBuilder(IdentityNamespace.IDENTITY_NAMESPACE, name).getRequirement();
+    }
+
+    static class CountingStorage extends MemoryRepositoryStorage {
+
+        int batches;
+
+        CountingStorage() {
+            super(null);
+        }
+
+        @Override
+        public List<Resource> addResources(Collection<Resource> resources) {
+            batches++;
+            return super.addResources(resources);
+        }
+    }
+
+    static class CountingRepository extends AbstractRepository {
+
+        final List<List<Requirement>> batches = new ArrayList<List<Requirement>>();
+
+        CountingRepository() {
+            super(null);
+            setRepositoryStorage(new MemoryRepositoryStorage(this));
+        }
+
+        @Override
+        public Map<Requirement, Collection<Capability>> findProviders(Collection<Requirement> reqs) {
+            batches.add(new ArrayList<Requirement>(reqs));
+            return super.findProviders(reqs);
+        }
+    }
+}
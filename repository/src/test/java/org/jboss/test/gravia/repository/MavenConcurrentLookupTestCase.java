@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.repository;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.repository.DefaultMavenDelegateRepository;
+import org.jboss.gravia.repository.MavenDelegateRepository;
+import org.jboss.gravia.resource.ContentCapability;
+import org.jboss.gravia.resource.ContentNamespace;
+import org.jboss.gravia.resource.MavenCoordinates;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.runtime.spi.DefaultPropertiesProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test concurrent lookups of the {@link DefaultMavenDelegateRepository}
+ * against local HTTP repositories that respond slowly.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class MavenConcurrentLookupTestCase {
+
+    private static final MavenCoordinates MAVENID = MavenCoordinates.parse("org.acme:acme-foo:1.0.0");
+
+    private final List<HttpServer> servers = new ArrayList<HttpServer>();
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger maxInflight = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        inflight.set(0);
+        maxInflight.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        servers.clear();
+    }
+
+    @Test
+    public void testBasesProbedConcurrently() throws Exception {
+        URL baseA = startServer(false, 500);
+        URL baseB = startServer(true, 500);
+
+        MavenDelegateRepository repository = createRepository(baseA + "," + baseB, "10000", true);
+        assertContentURL(repository.findMavenResource(MAVENID), baseB);
+        Assert.assertEquals("Both probes in flight", 2, maxInflight.get());
+    }
+
+    @Test
+    public void testBasesProbedSequentially() throws Exception {
+        URL baseA = startServer(false, 100);
+        URL baseB = startServer(true, 100);
+
+        MavenDelegateRepository repository = createRepository(baseA + "," + baseB, "10000", false);
+        assertContentURL(repository.findMavenResource(MAVENID), baseB);
+        Assert.assertEquals("One probe in flight", 1, maxInflight.get());
+    }
+
+    @Test
+    public void testPriorityRespected() throws Exception {
+        URL baseA = startServer(true, 500);
+        URL baseB = startServer(true, 0);
+
+        MavenDelegateRepository repository = createRepository(baseA + "," + baseB, "10000", true);
+        assertContentURL(repository.findMavenResource(MAVENID), baseA);
+    }
+
+    @Test
+    public void testLosingProbesCancelled() throws Exception {
+        URL baseA = startServer(true, 0);
+        URL baseB = startServer(true, 5000);
+
+        MavenDelegateRepository repository = createRepository(baseA + "," + baseB, "10000", true);
+        long start = System.nanoTime();
+        assertContentURL(repository.findMavenResource(MAVENID), baseA);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("Did not wait for the slow base: " + millis + "ms", millis < 4000);
+    }
+
+    @Test
+    public void testPerBaseReadTimeout() throws Exception {
+        URL baseA = startServer(true, 5000);
+        URL baseB = startServer(true, 0);
+
+        MavenDelegateRepository repository = createRepository(baseA + "," + baseB, "200,10000", true);
+        long start = System.nanoTime();
+        assertContentURL(repository.findMavenResource(MAVENID), baseB);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("Timed out on the slow base: " + millis + "ms", millis < 4000);
+    }
+
+    @Test
+    public void testHeadRejected() throws Exception {
+        for (int status : new int[] { 405, 501, 403 }) {
+            URL base = startHeadRejectingServer(status);
+            MavenDelegateRepository repository = createRepository(base.toString(), "10000", false);
+            assertContentURL(repository.findMavenResource(MAVENID), base);
+        }
+    }
+
+    private MavenDelegateRepository createRepository(String baseURLs, String readTimeouts, boolean concurrent) {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.PROPERTY_MAVEN_REPOSITORY_BASE_URLS, baseURLs);
+        props.put(Constants.PROPERTY_MAVEN_REPOSITORY_READ_TIMEOUTS, readTimeouts);
+        props.put(Constants.PROPERTY_MAVEN_REPOSITORY_CONCURRENT_LOOKUP, "" + concurrent);
+        return new DefaultMavenDelegateRepository(new DefaultPropertiesProvider(props, false));
+    }
+
+    private URL startServer(final boolean found, final long delay) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int count = inflight.incrementAndGet();
+                int max = maxInflight.get();
+                while (count > max && !maxInflight.compareAndSet(max, count)) {
+                    max = maxInflight.get();
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inflight.decrementAndGet();
+                }
+                Assert.assertEquals("HEAD", exchange.getRequestMethod());
+                exchange.sendResponseHeaders(found ? 200 : 404, -1);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/maven2");
+    }
+
+    // A server that rejects HEAD with the given status, but serves the artifact on GET
+    private URL startHeadRejectingServer(final int status) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else {
+                    byte[] content = new byte[] { 'P', 'K' };
+                    exchange.sendResponseHeaders(200, content.length);
+                    exchange.getResponseBody().write(content);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        servers.add(server);
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/maven2");
+    }
+
+    private void assertContentURL(Resource res, URL base) throws Exception {
+        Assert.assertNotNull("Resource found", res);
+        ContentCapability ccap = res.getCapabilities(ContentNamespace.CONTENT_NAMESPACE).get(0).adapt(ContentCapability.class);
+        Assert.assertEquals(MAVENID.getArtifactURL(base), ccap.getContentURL());
+    }
+}
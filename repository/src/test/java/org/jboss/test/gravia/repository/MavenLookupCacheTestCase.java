@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.repository.DefaultMavenDelegateRepository;
+import org.jboss.gravia.repository.spi.AbstractMavenDelegateRepository;
+import org.jboss.gravia.resource.ContentCapability;
+import org.jboss.gravia.resource.ContentNamespace;
+import org.jboss.gravia.resource.MavenCoordinates;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.runtime.spi.DefaultPropertiesProvider;
+import org.jboss.gravia.runtime.spi.PropertiesProvider;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the lookup cache of the {@link AbstractMavenDelegateRepository}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class MavenLookupCacheTestCase extends AbstractRepositoryTest {
+
+    private static final MavenCoordinates MAVENID = MavenCoordinates.parse("org.acme:acme-foo:1.0.0");
+
+    // The remote bases are never contacted, the test decides which artifacts exist
+    private static final String BASE_A = "http://localhost:1/baseA";
+    private static final String BASE_B = "http://localhost:1/baseB";
+
+    private final Set<String> artifacts = Collections.synchronizedSet(new HashSet<String>());
+    private File baseDir;
+    private File storageDir;
+
+    @Before
+    public void setUp() throws IOException {
+        baseDir = new File("./target/maven-lookup");
+        deleteRecursive(baseDir);
+        storageDir = new File(baseDir, "storage");
+        artifacts.clear();
+        artifacts.add(MAVENID.getArtifactURL(new URL(BASE_B)).toExternalForm());
+    }
+
+    @Test
+    public void testFoundAndNotFoundCached() throws Exception {
+        CountingRepository repository = new CountingRepository(getPropertiesProvider(BASE_A + "," + BASE_B, null));
+
+        Resource res = repository.findMavenResource(MAVENID);
+        assertContentURL(res, BASE_B);
+        Assert.assertEquals("Probed both bases", 2, repository.probes.get());
+
+        res = repository.findMavenResource(MAVENID);
+        assertContentURL(res, BASE_B);
+        Assert.assertEquals("No further probes", 2, repository.probes.get());
+
+        MavenCoordinates unknown = MavenCoordinates.parse("org.acme:acme-bar:1.0.0");
+        Assert.assertNull(repository.findMavenResource(unknown));
+        Assert.assertNull(repository.findMavenResource(unknown));
+        Assert.assertEquals("Misses cached per base", 4, repository.probes.get());
+    }
+
+    @Test
+    public void testCachePersisted() throws Exception {
+        CountingRepository repository = new CountingRepository(getPropertiesProvider(BASE_A + "," + BASE_B, null));
+        assertContentURL(repository.findMavenResource(MAVENID), BASE_B);
+        Assert.assertEquals(2, repository.probes.get());
+        repository.shutdown();
+        Assert.assertTrue(new File(storageDir, AbstractMavenDelegateRepository.LOOKUP_CACHE_FILE).isFile());
+
+        repository = new CountingRepository(getPropertiesProvider(BASE_A + "," + BASE_B, null));
+        assertContentURL(repository.findMavenResource(MAVENID), BASE_B);
+        Assert.assertEquals("Lookups recovered from storage", 0, repository.probes.get());
+    }
+
+    @Test
+    public void testNotFoundExpires() throws Exception {
+        CountingRepository repository = new CountingRepository(getPropertiesProvider(BASE_A + "," + BASE_B, "1"));
+        assertContentURL(repository.findMavenResource(MAVENID), BASE_B);
+        Assert.assertEquals(2, repository.probes.get());
+
+        // The artifact appears in the first base after the negative result expired
+        artifacts.add(MAVENID.getArtifactURL(new URL(BASE_A)).toExternalForm());
+        Thread.sleep(20);
+
+        assertContentURL(repository.findMavenResource(MAVENID), BASE_A);
+        Assert.assertEquals(3, repository.probes.get());
+    }
+
+    @Test
+    public void testFileBaseNotCached() throws Exception {
+        File localBase = new File(baseDir, "local");
+        localBase.mkdirs();
+        String localURL = localBase.toURI().toString();
+        CountingRepository repository = new CountingRepository(getPropertiesProvider(localURL + "," + BASE_B, null));
+        assertContentURL(repository.findMavenResource(MAVENID), BASE_B);
+
+        // An artifact installed into the local base is found right away
+        File artifact = new File(localBase, MAVENID.getArtifactPath());
+        artifact.getParentFile().mkdirs();
+        Assert.assertTrue(artifact.createNewFile());
+        assertContentURL(repository.findMavenResource(MAVENID), localURL);
+        Assert.assertEquals("Local base probed on every lookup", 3, repository.probes.get());
+    }
+
+    private void assertContentURL(Resource res, String base) throws Exception {
+        Assert.assertNotNull("Resource found", res);
+        ContentCapability ccap = res.getCapabilities(ContentNamespace.CONTENT_NAMESPACE).get(0).adapt(ContentCapability.class);
+        Assert.assertEquals(MAVENID.getArtifactURL(new URL(base)), ccap.getContentURL());
+    }
+
+    private PropertiesProvider getPropertiesProvider(String baseURLs, String negativeTTL) throws IOException {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.PROPERTY_MAVEN_REPOSITORY_BASE_URLS, baseURLs);
+        props.put(Constants.PROPERTY_REPOSITORY_STORAGE_DIR, storageDir.getPath());
+        if (negativeTTL != null) {
+            props.put(Constants.PROPERTY_MAVEN_LOOKUP_CACHE_NEGATIVE_TTL, negativeTTL);
+        }
+        return new DefaultPropertiesProvider(props, false);
+    }
+
+    class CountingRepository extends DefaultMavenDelegateRepository {
+
+        final AtomicInteger probes = new AtomicInteger();
+
+        CountingRepository(PropertiesProvider propertyProvider) {
+            super(propertyProvider);
+        }
+
+        @Override
+        protected boolean artifactExists(URL url, int connectTimeout, int readTimeout) throws IOException {
+            probes.incrementAndGet();
+            if ("file".equals(url.getProtocol()))
+                return super.artifactExists(url, connectTimeout, readTimeout);
+            return artifacts.contains(url.toExternalForm());
+        }
+    }
+}
@@ -186,6 +186,50 @@ public class PersistentRepositoryStorageTestCase extends AbstractRepositoryTest
         Assert.assertEquals("No provider", 0, providers.size());
     }
 
+    @Test
+    public void testConcurrentContentIngestion() throws Exception {
+        PropertiesProvider otherProvider = Mockito.mock(PropertiesProvider.class);
+        Mockito.when(otherProvider.getProperty(Constants.PROPERTY_REPOSITORY_STORAGE_DIR)).thenReturn(storageDir.getPath());
+        Mockito.when(otherProvider.getProperty(Constants.PROPERTY_REPOSITORY_STORAGE_FILE, DefaultRepositoryStorage.REPOSITORY_XML_NAME)).thenReturn("other.xml");
+        final RepositoryStorage other = new DefaultRepositoryStorage(otherProvider, repository);
+
+        // Add the same content to two storages that share the storage directory
+        final Resource[] results = new Resource[2];
+        final Exception[] failures = new Exception[2];
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            final RepositoryStorage target = i == 0 ? storage : other;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        RepositoryReader reader = getRepositoryReader("xml/repository-testA.xml");
+                        results[index] = target.addResource(reader.nextResource());
+                    } catch (Exception ex) {
+                        failures[index] = ex;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failures[0]);
+        Assert.assertNull(failures[1]);
+        verifyResource(results[0]);
+        verifyResource(results[1]);
+
+        // The content is stored once and no temporary files are left behind
+        URL urlA = (URL) results[0].getCapabilities(ContentNamespace.CONTENT_NAMESPACE).get(0).getAttribute(ContentNamespace.CAPABILITY_URL_ATTRIBUTE);
+        URL urlB = (URL) results[1].getCapabilities(ContentNamespace.CONTENT_NAMESPACE).get(0).getAttribute(ContentNamespace.CAPABILITY_URL_ATTRIBUTE);
+        Assert.assertEquals(urlA, urlB);
+        for (String name : storageDir.list()) {
+            Assert.assertFalse("Temporary file left: " + name, name.startsWith("temp-content"));
+        }
+    }
+
     private void verifyResource(Resource resource) throws Exception {
         verifyDefaultContent(resource);
         Assert.assertEquals(3, resource.getCapabilities(null).size());
@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.repository.RepositoryAggregator;
+import org.jboss.gravia.repository.RepositoryAggregator.DelegateStatistics;
+import org.jboss.gravia.repository.spi.AbstractRepository;
+import org.jboss.gravia.repository.spi.MemoryRepositoryStorage;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.DefaultRequirementBuilder;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.IdentityNamespace;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.runtime.spi.MapPropertiesProvider;
+import org.jboss.gravia.runtime.spi.PropertiesProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link RepositoryAggregator} lookup modes
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class RepositoryAggregatorTestCase extends AbstractRepositoryTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void testParallelLookup() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", 300, "X");
+        SlowRepository repoB = new SlowRepository("B", 300, "Y");
+        SlowRepository repoC = new SlowRepository("C", 300, "X");
+        RepositoryAggregator aggregator = new RepositoryAggregator(properties(true, false, null), repoA, repoB, repoC);
+
+        Requirement reqX = newRequirement("X");
+        Requirement reqY = newRequirement("Y");
+        Requirement reqZ = newRequirement("Z");
+        long start = System.currentTimeMillis();
+        Map<Requirement, Collection<Capability>> result = aggregator.findProviders(Arrays.asList(reqX, reqY, reqZ));
+        long duration = System.currentTimeMillis() - start;
+        Assert.assertTrue("Delegates not asked concurrently: " + duration + "ms", duration < 800);
+
+        // The answer of the first delegate in order wins
+        Assert.assertEquals(1, result.get(reqX).size());
+        Assert.assertEquals("A", providerOrigin(result.get(reqX)));
+        Assert.assertEquals("B", providerOrigin(result.get(reqY)));
+        Assert.assertTrue(result.get(reqZ).isEmpty());
+    }
+
+    @Test
+    public void testPriorityBeforeSpeed() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", 300, "X");
+        SlowRepository repoB = new SlowRepository("B", 0, "X");
+        RepositoryAggregator aggregator = new RepositoryAggregator(properties(true, false, null), repoA, repoB);
+
+        Collection<Capability> providers = aggregator.findProviders(newRequirement("X"));
+        Assert.assertEquals(1, providers.size());
+        Assert.assertEquals("A", providerOrigin(providers));
+    }
+
+    @Test
+    public void testMergeMode() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", 0, "X");
+        SlowRepository repoB = new SlowRepository("B", 0, "X", "Y");
+        Requirement reqX = newRequirement("X");
+        Requirement reqY = newRequirement("Y");
+
+        for (boolean parallel : new boolean[] { false, true }) {
+            RepositoryAggregator aggregator = new RepositoryAggregator(properties(parallel, true, null), repoA, repoB);
+            Map<Requirement, Collection<Capability>> result = aggregator.findProviders(Arrays.asList(reqX, reqY));
+            Assert.assertEquals(2, result.get(reqX).size());
+            Assert.assertEquals(1, result.get(reqY).size());
+            Assert.assertEquals(2, aggregator.findProviders(reqX).size());
+        }
+    }
+
+    @Test
+    public void testDelegateTimeout() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", -1, "X");
+        SlowRepository repoB = new SlowRepository("B", 0, "X");
+        RepositoryAggregator aggregator = new RepositoryAggregator(properties(true, false, "100,5000"), repoA, repoB);
+
+        long start = System.currentTimeMillis();
+        Collection<Capability> providers = aggregator.findProviders(newRequirement("X"));
+        long duration = System.currentTimeMillis() - start;
+        Assert.assertTrue("Timeout not applied: " + duration + "ms", duration < 2000);
+        Assert.assertEquals("B", providerOrigin(providers));
+
+        List<DelegateStatistics> statistics = aggregator.getDelegateStatistics();
+        Assert.assertEquals(1, statistics.get(0).getTimeoutCount());
+        Assert.assertEquals(0, statistics.get(1).getTimeoutCount());
+        Assert.assertEquals(1, statistics.get(1).getLookupCount());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", 0, "X");
+        SlowRepository repoB = new SlowRepository("B", 0, "Y");
+        RepositoryAggregator aggregator = new RepositoryAggregator(properties(true, false, null), repoA, repoB);
+
+        // After shutdown the delegates are asked in turn
+        aggregator.shutdown();
+        Assert.assertEquals("A", providerOrigin(aggregator.findProviders(newRequirement("X"))));
+        Assert.assertEquals(0, aggregator.getDelegateStatistics().get(1).getLookupCount());
+        Assert.assertEquals("B", providerOrigin(aggregator.findProviders(newRequirement("Y"))));
+        Assert.assertEquals(1, aggregator.getDelegateStatistics().get(1).getLookupCount());
+    }
+
+    @Test
+    public void testSequentialStatistics() throws Exception {
+        SlowRepository repoA = new SlowRepository("A", 50, "X");
+        SlowRepository repoB = new SlowRepository("B", 0, "Y");
+        RepositoryAggregator aggregator = new RepositoryAggregator(null, repoA, repoB);
+
+        Assert.assertEquals("A", providerOrigin(aggregator.findProviders(newRequirement("X"))));
+        Assert.assertEquals("B", providerOrigin(aggregator.findProviders(newRequirement("Y"))));
+
+        List<DelegateStatistics> statistics = aggregator.getDelegateStatistics();
+        Assert.assertEquals("A", statistics.get(0).getName());
+        Assert.assertEquals(2, statistics.get(0).getLookupCount());
+        Assert.assertEquals(1, statistics.get(1).getLookupCount());
+        Assert.assertTrue(statistics.get(0).getMaxLatency() >= 50);
+        Assert.assertTrue(statistics.get(0).getMeanLatency() >= 25);
+        Assert.assertEquals(0, statistics.get(0).getErrorCount());
+    }
+
+    private static PropertiesProvider properties(boolean parallel, boolean merge, String timeouts) {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.PROPERTY_REPOSITORY_AGGREGATOR_PARALLEL, "" + parallel);
+        props.put(Constants.PROPERTY_REPOSITORY_AGGREGATOR_MERGE, "" + merge);
+        if (timeouts != null) {
+            props.put(Constants.PROPERTY_REPOSITORY_AGGREGATOR_TIMEOUTS, timeouts);
+        }
+        return new MapPropertiesProvider(props);
+    }
+
+    // The version qualifier of a provider names the delegate it comes from
+    private static String providerOrigin(Collection<Capability> providers) {
+        return providers.iterator().next().getResource().getIdentity().getVersion().getQualifier();
+    }
+
+    private static Requirement newRequirement(String name) {
+        return new DefaultRequirementBuilder(IdentityNamespace.IDENTITY_NAMESPACE, name).getRequirement();
+    }
+
+    class SlowRepository extends AbstractRepository {
+
+        private final String name;
+        private final long delay;
+
+        // A negative delay blocks until the test is done
+        SlowRepository(String name, long delay, String... resources) {
+            super(null);
+            this.name = name;
+            this.delay = delay;
+            setRepositoryStorage(new MemoryRepositoryStorage(this));
+            for (String resname : resources) {
+                Resource res = new DefaultResourceBuilder().addIdentityCapability(resname, "1.0.0." + name).getResource();
+                getRepositoryStorage().addResource(res);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Map<Requirement, Collection<Capability>> findProviders(Collection<Requirement> reqs) {
+            try {
+                if (delay < 0) {
+                    release.await();
+                } else {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.findProviders(reqs);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * Gravia :: Repository
+ * %%
+ * Copyright (C) 2012 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.repository;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.repository.DefaultRepositoryStorage;
+import org.jboss.gravia.repository.Repository;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.ResourceIdentity;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.runtime.spi.PropertiesProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test the journal of the {@link DefaultRepositoryStorage}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class RepositoryJournalTestCase extends AbstractRepositoryTest {
+
+    private File storageDir;
+    private File repoFile;
+    private File journalFile;
+    private Repository repository;
+    private PropertiesProvider propertyProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        storageDir = new File("./target/repository/" + System.currentTimeMillis()).getCanonicalFile();
+        repoFile = new File(storageDir, DefaultRepositoryStorage.REPOSITORY_XML_NAME);
+        journalFile = new File(storageDir, DefaultRepositoryStorage.REPOSITORY_XML_NAME + DefaultRepositoryStorage.REPOSITORY_JOURNAL_SUFFIX);
+        repository = Mockito.mock(Repository.class);
+        Mockito.when(repository.getName()).thenReturn("MockedRepo");
+        propertyProvider = Mockito.mock(PropertiesProvider.class);
+        Mockito.when(propertyProvider.getProperty(Constants.PROPERTY_REPOSITORY_STORAGE_DIR)).thenReturn(storageDir.getPath());
+        Mockito.when(propertyProvider.getProperty(Constants.PROPERTY_REPOSITORY_STORAGE_FILE, DefaultRepositoryStorage.REPOSITORY_XML_NAME)).thenReturn(DefaultRepositoryStorage.REPOSITORY_XML_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursive(storageDir);
+    }
+
+    @Test
+    public void testJournalReplay() throws Exception {
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        storage.addResource(abstractResource("resA"));
+        storage.addResource(abstractResource("resB"));
+        storage.addResource(abstractResource("resC"));
+        storage.removeResource(identity("resB"));
+
+        // Changes go to the journal only
+        Assert.assertFalse("No storage file", repoFile.exists());
+        Assert.assertTrue("Journal exists", journalFile.exists());
+
+        DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNull(other.getResource(identity("resB")));
+        Assert.assertNotNull(other.getResource(identity("resC")));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        storage.addResource(abstractResource("resA"));
+        storage.addResource(abstractResource("resB"));
+        storage.compactRepositoryStorage();
+
+        Assert.assertTrue("Storage file exists", repoFile.exists());
+        Assert.assertEquals(0, journalFile.length());
+
+        storage.removeResource(identity("resA"));
+        DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNull(other.getResource(identity("resA")));
+        Assert.assertNotNull(other.getResource(identity("resB")));
+
+        // Replaying records that are already in the storage file is harmless
+        storage.addResource(abstractResource("resA"));
+        storage.compactRepositoryStorage();
+        other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNotNull(other.getResource(identity("resB")));
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception {
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        try {
+            storage.addResources(Arrays.asList(abstractResource("resA"), null, abstractResource("resC")));
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        Assert.assertNotNull(storage.getResource(identity("resA")));
+        Assert.assertNull(storage.getResource(identity("resC")));
+
+        // The resources added before the failure are persisted
+        DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNull(other.getResource(identity("resC")));
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        storage.addResource(abstractResource("resA"));
+        long length = journalFile.length();
+
+        // Simulate a record that was not completely written
+        OutputStream output = new FileOutputStream(journalFile, true);
+        output.write(new byte[] { 'A', 0, 0, 1, 0, '<' });
+        output.close();
+
+        DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertEquals(length, journalFile.length());
+    }
+
+    @Test
+    public void testCorruptTail() throws Exception {
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        storage.addResource(abstractResource("resA"));
+        long length = journalFile.length();
+
+        byte[][] tails = new byte[][] {
+                // A zero filled block
+                new byte[64],
+                // An invalid record type
+                new byte[] { 'X', 0, 0, 0, 1, 0, 0, 0, 0, 'x' },
+                // A length beyond the end of the journal
+                new byte[] { 'A', 0x7f, -1, -1, -1, 0, 0, 0, 0, '<' },
+                // A negative length
+                new byte[] { 'A', -1, -1, -1, -1, 0, 0, 0, 0, '<' },
+                // A checksum that does not match
+                new byte[] { 'R', 0, 0, 0, 1, 0, 0, 0, 0, 'x' } };
+        for (byte[] tail : tails) {
+            OutputStream output = new FileOutputStream(journalFile, true);
+            output.write(tail);
+            output.close();
+
+            DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+            Assert.assertNotNull(other.getResource(identity("resA")));
+            Assert.assertEquals(length, journalFile.length());
+        }
+    }
+
+    @Test
+    public void testBinarySnapshot() throws Exception {
+        File binaryFile = new File(repoFile.getPath() + DefaultRepositoryStorage.REPOSITORY_BINARY_SUFFIX);
+        DefaultRepositoryStorage storage = new DefaultRepositoryStorage(propertyProvider, repository);
+        storage.addResource(abstractResource("resA"));
+        storage.addResource(abstractResource("resB"));
+        storage.compactRepositoryStorage();
+        Assert.assertTrue("Binary snapshot exists", binaryFile.exists());
+
+        // Start from the binary snapshot
+        DefaultRepositoryStorage other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNotNull(other.getResource(identity("resB")));
+
+        // A stale snapshot is ignored and rewritten from the storage file
+        long lastModified = binaryFile.lastModified();
+        OutputStream output = new FileOutputStream(repoFile, true);
+        output.write(new byte[] { '\n' });
+        output.close();
+        other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNotNull(other.getResource(identity("resB")));
+        Assert.assertTrue("Binary snapshot rewritten", binaryFile.lastModified() >= lastModified);
+
+        // A corrupt snapshot is ignored
+        output = new FileOutputStream(binaryFile);
+        output.write(new byte[] { 0, 1, 2, 3 });
+        output.close();
+        other = new DefaultRepositoryStorage(propertyProvider, repository);
+        Assert.assertNotNull(other.getResource(identity("resA")));
+        Assert.assertNotNull(other.getResource(identity("resB")));
+    }
+
+    private Resource abstractResource(String symbolicName) {
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability(symbolicName, Version.emptyVersion);
+        return builder.getResource();
+    }
+
+    private ResourceIdentity identity(String symbolicName) {
+        return ResourceIdentity.create(symbolicName, Version.emptyVersion);
+    }
+}
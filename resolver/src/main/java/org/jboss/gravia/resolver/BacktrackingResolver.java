@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Gravia :: Resolver
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resolver;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.jboss.gravia.resolver.spi.AbstractBacktrackingResolver;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.runtime.DefaultWire;
+import org.jboss.gravia.runtime.DefaultWiring;
+import org.jboss.gravia.runtime.Wire;
+import org.jboss.gravia.runtime.spi.AbstractWire;
+import org.jboss.gravia.runtime.spi.AbstractWiring;
+
+/**
+ * A conflict driven {@link Resolver} that can be used instead of the {@link DefaultResolver}.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BacktrackingResolver extends AbstractBacktrackingResolver {
+
+    public BacktrackingResolver() {
+    }
+
+    /**
+     * Create a resolver that resolves independent resources concurrently with the given executor.
+     */
+    public BacktrackingResolver(ExecutorService executor) {
+        super(executor);
+    }
+
+    @Override
+    protected AbstractWire createWire(Requirement req, Capability cap) {
+        return new DefaultWire(req, cap);
+    }
+
+    @Override
+    protected AbstractWiring createWiring(Resource resource, List<Wire> reqwires, List<Wire> provwires) {
+        return new DefaultWiring(resource, reqwires, provwires);
+    }
+}
@@ -20,9 +20,11 @@
 
 package org.jboss.gravia.resolver;
 
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 import org.jboss.gravia.resource.Capability;
@@ -35,42 +37,100 @@ import org.jboss.gravia.runtime.Wiring;
 /**
  * The default {@link PreferencePolicy}.
  *
+ * Providers of wired resources are preferred over unwired ones, then higher versions over lower ones.
+ * The sort key of every provider is computed once per sort. The comparator compares the
+ * attributes directly, so that it does not allocate.
+ *
  * @author thomas.diesler@jboss.com
  * @since 02-Apr-2012
  */
-public class DefaultPreferencePolicy implements PreferencePolicy {
+public class DefaultPreferencePolicy implements SelectingPreferencePolicy {
 
+    private final Map<Resource, Wiring> wirings;
     private final Comparator<Capability> comparator;
 
     public DefaultPreferencePolicy(final Map<Resource, Wiring> wirings) {
-        comparator = new Comparator<Capability>() {
+        this.wirings = wirings;
+        this.comparator = new Comparator<Capability>() {
             @Override
             public int compare(Capability cap1, Capability cap2) {
-
-                // Prefer already wired
-                if (wirings != null) {
-                    Wiring w1 = wirings.get(cap1.getResource());
-                    Wiring w2 = wirings.get(cap2.getResource());
-                    if (w1 != null && w2 == null)
-                        return -1;
-                    if (w1 == null && w2 != null)
-                        return +1;
-                }
-
-                // Prefer higher version
-                Version v1 = AbstractCapability.getVersion(cap1, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
-                Version v2 = AbstractCapability.getVersion(cap2, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
-                return v2.compareTo(v1);
+                return compareProviders(isWired(cap1), getVersion(cap1), isWired(cap2), getVersion(cap2));
             }
-        };    }
+        };
+    }
 
     @Override
     public void sort(List<Capability> providers) {
-        Collections.sort(providers, comparator);
+        if (providers.size() < 2)
+            return;
+
+        SortKey[] keys = new SortKey[providers.size()];
+        int index = 0;
+        for (Capability cap : providers) {
+            keys[index++] = getSortKey(cap);
+        }
+        Arrays.sort(keys);
+        ListIterator<Capability> itcap = providers.listIterator();
+        for (SortKey key : keys) {
+            itcap.next();
+            itcap.set(key.capability);
+        }
+    }
+
+    @Override
+    public Capability selectPreferred(Collection<Capability> providers) {
+        SortKey result = null;
+        for (Capability cap : providers) {
+            SortKey key = getSortKey(cap);
+            if (result == null || key.compareTo(result) < 0) {
+                result = key;
+            }
+        }
+        return result != null ? result.capability : null;
     }
 
     @Override
     public Comparator<Capability> getComparator() {
         return comparator;
     }
+
+    private SortKey getSortKey(Capability cap) {
+        return new SortKey(cap, isWired(cap), getVersion(cap));
+    }
+
+    private boolean isWired(Capability cap) {
+        return wirings != null && wirings.get(cap.getResource()) != null;
+    }
+
+    private static Version getVersion(Capability cap) {
+        return AbstractCapability.getVersion(cap, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
+    }
+
+    private static int compareProviders(boolean wired1, Version version1, boolean wired2, Version version2) {
+
+        // Prefer already wired
+        if (wired1 != wired2)
+            return wired1 ? -1 : +1;
+
+        // Prefer higher version
+        return version2.compareTo(version1);
+    }
+
+    private static class SortKey implements Comparable<SortKey> {
+
+        private final Capability capability;
+        private final boolean wired;
+        private final Version version;
+
+        SortKey(Capability capability, boolean wired, Version version) {
+            this.capability = capability;
+            this.wired = wired;
+            this.version = version;
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            return compareProviders(wired, version, other.wired, other.version);
+        }
+    }
 }
@@ -20,6 +20,7 @@
 package org.jboss.gravia.resolver;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.jboss.gravia.resolver.spi.AbstractResolver;
 import org.jboss.gravia.resource.Capability;
@@ -39,6 +40,16 @@ import org.jboss.gravia.runtime.spi.AbstractWiring;
  */
 public class DefaultResolver extends AbstractResolver {
 
+    public DefaultResolver() {
+    }
+
+    /**
+     * Create a resolver that resolves independent resources concurrently with the given executor.
+     */
+    public DefaultResolver(ExecutorService executor) {
+        super(executor);
+    }
+
     @Override
     protected AbstractWire createWire(Requirement req, Capability cap) {
         return new DefaultWire(req, cap);
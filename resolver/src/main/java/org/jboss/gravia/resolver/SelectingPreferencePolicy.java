@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * Gravia :: Resolver
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resolver;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.jboss.gravia.resource.Capability;
+
+/**
+ * A {@link PreferencePolicy} that can select the most preferred provider without sorting all providers.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface SelectingPreferencePolicy extends PreferencePolicy {
+
+    /**
+     * Select the most preferred of the given providers.
+     * This is the provider that {@link #sort(List)} would put first.
+     *
+     * @return null if there are no providers
+     */
+    Capability selectPreferred(Collection<Capability> providers);
+}
@@ -0,0 +1,385 @@
+/*
+ * #%L
+ * Gravia :: Resolver
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resolver.spi;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.jboss.gravia.resolver.ResolutionException;
+import org.jboss.gravia.resolver.ResolveContext;
+import org.jboss.gravia.resolver.Resolver;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.runtime.Wire;
+import org.jboss.gravia.runtime.Wiring;
+
+/**
+ * An abstract conflict driven {@link Resolver}.
+ *
+ * Instead of enumerating every combination of candidate wires for a resource, the requirements
+ * of a resource are assigned one after another. A candidate that clashes with the space built so far
+ * is pruned immediately and the clash is remembered against the requirement that introduced the
+ * conflicting resource. When a requirement runs out of candidates, the search jumps back to the most recent
+ * requirement that took part in a clash, skipping assignments that cannot change the outcome.
+ *
+ * Provider lists are computed once per requirement and resources that fail to resolve are remembered
+ * for the duration of the resolve operation.
+ *
+ * The search visits candidates in the same order as {@link AbstractResolver}. Unlike {@link AbstractResolver},
+ * a candidate whose provider cannot be resolved is skipped and the next candidate is tried, instead of failing
+ * the resolve operation. The wirings are the same whenever {@link AbstractResolver} succeeds; where it fails
+ * on an unresolvable provider this resolver may still find a solution. If no candidate remains, the
+ * failure of the first unresolvable provider is reported.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public abstract class AbstractBacktrackingResolver extends AbstractResolver {
+
+    public AbstractBacktrackingResolver() {
+    }
+
+    public AbstractBacktrackingResolver(ExecutorService executor) {
+        super(executor);
+    }
+
+    @Override
+    ResolverState createResolverState(ResolveContext context) {
+        return new BacktrackingState(context);
+    }
+
+    private ResourceSpace resolveResource(BacktrackingState state, Resource res) throws ResolutionException {
+
+        // Check if we already have a resolved space for resource
+        ResourceSpaces spaces = state.getResourceSpaces();
+        ResourceSpace resspace = spaces.getResourceSpace(res);
+        if (resspace != null)
+            return resspace;
+
+        // Check if the resource is already known not to resolve
+        ResolutionException nogood = state.getNoGood(res);
+        if (nogood != null)
+            throw nogood;
+
+        ResolveContext context = state.getResolveContext();
+        Wiring wiring = context.getWirings().get(res);
+        List<Requirement> reqs = res.getRequirements(null);
+        int size = reqs.size();
+
+        // Get the candidates for every requirement, this fails early if a mandatory requirement has none
+        List<List<Capability>> candidates = new ArrayList<List<Capability>>(size);
+        try {
+            for (Requirement req : reqs) {
+                candidates.add(state.getProviders(req));
+            }
+        } catch (ResolutionException ex) {
+            state.putNoGood(res, ex);
+            throw ex;
+        }
+
+        ConflictSpace space = new ConflictSpace(res, wiring);
+        ResourceSpace[] provspaces = new ResourceSpace[size];
+        Wire[] wires = new Wire[size];
+        int[] next = new int[size];
+        BitSet[] conflicts = new BitSet[size];
+        for (int i = 0; i < size; i++) {
+            conflicts[i] = new BitSet();
+        }
+
+        ResolutionException provex = null;
+        boolean clashed = false;
+        boolean cyclic = false;
+
+        state.enter(res);
+        try {
+            int level = 0;
+            while (level >= 0 && level < size) {
+
+                // Retract everything that was bound at this level or above
+                space.retract(level);
+                provspaces[level] = null;
+                wires[level] = null;
+
+                // Find the next candidate that is consistent with the space so far
+                Requirement req = reqs.get(level);
+                List<Capability> caps = candidates.get(level);
+                boolean assigned = caps.isEmpty();
+                while (!assigned && next[level] < caps.size()) {
+                    Capability cap = caps.get(next[level]++);
+                    Resource provider = cap.getResource();
+
+                    // A resource may provide its own requirement
+                    if (provider == res) {
+                        wires[level] = createWire(req, cap);
+                        assigned = true;
+                        continue;
+                    }
+
+                    // Prune candidates that clash with what is already in the space
+                    int origin = space.getConflictOrigin(provider);
+                    if (origin != ConflictSpace.NO_CONFLICT) {
+                        state.pruned++;
+                        clashed = true;
+                        addConflict(conflicts[level], origin);
+                        continue;
+                    }
+
+                    // Prune candidates that are currently being resolved or known not to resolve
+                    if (state.isResolving(provider)) {
+                        state.pruned++;
+                        cyclic = true;
+                        continue;
+                    }
+                    ResourceSpace provspace;
+                    try {
+                        provspace = resolveResource(state, provider);
+                    } catch (ResolutionException ex) {
+                        state.pruned++;
+                        cyclic |= state.getNoGood(provider) == null;
+                        provex = provex != null ? provex : ex;
+                        continue;
+                    }
+
+                    origin = space.getConflictOrigin(provspace);
+                    if (origin != ConflictSpace.NO_CONFLICT) {
+                        state.pruned++;
+                        clashed = true;
+                        addConflict(conflicts[level], origin);
+                        continue;
+                    }
+
+                    space.addDependencySpace(provspace, level);
+                    provspaces[level] = provspace;
+                    wires[level] = createWire(req, cap);
+                    assigned = true;
+                }
+
+                if (assigned) {
+                    level++;
+                    continue;
+                }
+
+                // Jump back to the most recent requirement that took part in a clash
+                int target = conflicts[level].length() - 1;
+                if (target >= 0) {
+                    state.backjumps++;
+                    conflicts[level].clear(target);
+                    conflicts[target].or(conflicts[level]);
+                    for (int i = target + 1; i <= level; i++) {
+                        conflicts[i].clear();
+                        next[i] = 0;
+                    }
+                }
+                level = target;
+            }
+
+            if (level < 0) {
+                ResolutionException resex;
+                if (provex != null && !clashed) {
+                    resex = provex;
+                } else {
+                    List<Requirement> manreqs = res.getRequirements(null);
+                    Iterator<Requirement> itreqs = manreqs.iterator();
+                    while (itreqs.hasNext()) {
+                        if (itreqs.next().isOptional()) {
+                            itreqs.remove();
+                        }
+                    }
+                    resex = new ResolutionException("Requirements map to candidates in disconnetced spaces", null, manreqs);
+                }
+
+                // A failure that depends on a cycle in progress is not remembered
+                if (!cyclic) {
+                    state.putNoGood(res, resex);
+                }
+                throw resex;
+            }
+        } finally {
+            state.exit(res);
+        }
+
+        // Build the resource space from the chosen dependency spaces
+        resspace = new ResourceSpace(res, wiring);
+        List<Wire> reswires = new ArrayList<Wire>(size);
+        for (int i = 0; i < size; i++) {
+            if (provspaces[i] != null) {
+                boolean added = resspace.addDependencySpace(provspaces[i]);
+                assert added : "Consistent dependency space: " + provspaces[i];
+            }
+            if (wires[i] != null) {
+                reswires.add(wires[i]);
+            }
+        }
+        spaces.addResourceSpace(resspace);
+        state.getResult().put(res, Collections.unmodifiableList(reswires));
+        return resspace;
+    }
+
+    private static void addConflict(BitSet conflicts, int origin) {
+        // Clashes with the primary or its existing wiring cannot be fixed by backtracking
+        if (origin >= 0) {
+            conflicts.set(origin);
+        }
+    }
+
+    private class BacktrackingState extends ResolverState {
+
+        private final Map<Requirement, List<Capability>> providers = new HashMap<Requirement, List<Capability>>();
+        private final Map<Resource, ResolutionException> nogoods = new HashMap<Resource, ResolutionException>();
+        private final Set<Resource> resolving = new HashSet<Resource>();
+        private int pruned;
+        private int backjumps;
+
+        BacktrackingState(ResolveContext context) {
+            super(context);
+        }
+
+        @Override
+        void resolve(Resource res) throws ResolutionException {
+            resolveResource(this, res);
+        }
+
+        List<Capability> getProviders(Requirement req) throws ResolutionException {
+            ResolveContext context = getResolveContext();
+            List<Capability> result = providers.get(req);
+            if (result == null) {
+                result = Collections.unmodifiableList(context.findProviders(req));
+                providers.put(req, result);
+            }
+
+            // Fail early if there are no providers for a non-optional requirement
+            Collection<Resource> optres = context.getOptionalResources();
+            if (!optres.contains(req.getResource()) && !req.isOptional() && result.isEmpty()) {
+                Set<Requirement> unresolved = Collections.singleton(req);
+                throw new ResolutionException("Cannot find provider for: " + req, null, unresolved);
+            }
+            return result;
+        }
+
+        ResolutionException getNoGood(Resource res) {
+            return nogoods.get(res);
+        }
+
+        void putNoGood(Resource res, ResolutionException ex) {
+            nogoods.put(res, ex);
+        }
+
+        boolean isResolving(Resource res) {
+            return resolving.contains(res);
+        }
+
+        void enter(Resource res) {
+            resolving.add(res);
+        }
+
+        void exit(Resource res) {
+            resolving.remove(res);
+        }
+
+        @Override
+        public String toString() {
+            return "[resolved=" + getResult().size() + ",nogoods=" + nogoods.size() + ",pruned=" + pruned + ",backjumps=" + backjumps + "]";
+        }
+    }
+
+    /**
+     * The space of a resource that is being resolved.
+     *
+     * Every resource in the space remembers the lowest requirement index that brought it in,
+     * so that bindings can be retracted on backtrack and clashes can be traced to a requirement.
+     */
+    static class ConflictSpace {
+
+        static final int NO_CONFLICT = Integer.MIN_VALUE;
+        static final int PRIMARY = -1;
+
+        private final Map<String, Resource> resources = new HashMap<String, Resource>();
+        private final Map<String, Integer> origins = new HashMap<String, Integer>();
+
+        ConflictSpace(Resource primary, Wiring wiring) {
+            bind(primary, PRIMARY);
+            if (wiring != null) {
+                for (Wire wire : wiring.getRequiredResourceWires(null)) {
+                    bind(wire.getProvider(), PRIMARY);
+                }
+            }
+        }
+
+        /**
+         * Get the origin of a resource in the space that clashes with the given resource
+         * or {@link #NO_CONFLICT}.
+         */
+        int getConflictOrigin(Resource res) {
+            String uniquekey = res.getIdentity().getSymbolicName();
+            Resource other = resources.get(uniquekey);
+            return other != null && other != res ? origins.get(uniquekey) : NO_CONFLICT;
+        }
+
+        /**
+         * Get the lowest origin of a resource in the space that clashes with the given dependency
+         * or {@link #NO_CONFLICT}.
+         */
+        int getConflictOrigin(ResourceSpace dependency) {
+            int result = NO_CONFLICT;
+            for (Resource aux : dependency.getResources()) {
+                int origin = getConflictOrigin(aux);
+                if (origin != NO_CONFLICT && (result == NO_CONFLICT || origin < result)) {
+                    result = origin;
+                }
+            }
+            return result;
+        }
+
+        void addDependencySpace(ResourceSpace dependency, int level) {
+            for (Resource aux : dependency.getResources()) {
+                bind(aux, level);
+            }
+        }
+
+        void retract(int level) {
+            Iterator<Map.Entry<String, Integer>> iterator = origins.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Integer> entry = iterator.next();
+                if (entry.getValue() >= level) {
+                    resources.remove(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void bind(Resource res, int level) {
+            String uniquekey = res.getIdentity().getSymbolicName();
+            if (!resources.containsKey(uniquekey)) {
+                resources.put(uniquekey, res);
+                origins.put(uniquekey, level);
+            }
+        }
+    }
+}
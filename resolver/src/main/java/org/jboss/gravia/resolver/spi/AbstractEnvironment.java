@@ -19,14 +19,20 @@
  */
 package org.jboss.gravia.resolver.spi;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.gravia.resolver.Environment;
 import org.jboss.gravia.resource.MatchPolicy;
 import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.spi.AbstractResourceStore;
+import org.jboss.gravia.runtime.Wire;
 import org.jboss.gravia.runtime.Wiring;
 
 /**
@@ -38,10 +44,13 @@ import org.jboss.gravia.runtime.Wiring;
 public abstract class AbstractEnvironment extends AbstractResourceStore implements Environment {
 
     private final Map<Resource, Wiring> wirings;
+    private final ConcurrentMap<Resource, Collection<Resource>> wiredSpaces;
+    private final AtomicLong wiringGeneration = new AtomicLong();
 
     public AbstractEnvironment(String storeName, MatchPolicy matchPolicy) {
         super(storeName, matchPolicy);
         this.wirings = new ConcurrentHashMap<Resource, Wiring>();
+        this.wiredSpaces = new ConcurrentHashMap<Resource, Collection<Resource>>();
     }
 
     public static AbstractEnvironment assertAbstractEnvironment(Environment env) {
@@ -55,7 +64,65 @@ public abstract class AbstractEnvironment extends AbstractResourceStore implemen
         return Collections.unmodifiableMap(wirings);
     }
 
+    /**
+     * Put the wiring for the given resource.
+     *
+     * This must also be called when the required wires of an existing wiring change.
+     */
     public void putWiring(Resource resource, Wiring wiring) {
         wirings.put(resource, wiring);
+        // Bump the generation before removing the space, see getWiredSpace
+        wiringGeneration.incrementAndGet();
+        wiredSpaces.remove(resource);
+    }
+
+    /**
+     * Get the generation of the wirings in this environment.
+     * The generation changes on every call to {@link #putWiring(Resource, Wiring)}.
+     */
+    public long getWiringGeneration() {
+        return wiringGeneration.get();
+    }
+
+    /**
+     * Get the generation of this environment.
+     * The generation changes whenever a resource is added or removed and on every call to {@link #putWiring(Resource, Wiring)}.
+     */
+    @Override
+    public long getGeneration() {
+        return super.getGeneration() + getWiringGeneration();
+    }
+
+    /**
+     * Get the resources in the space of a wired resource.
+     *
+     * The space contains the resource itself and the providers of its required wires.
+     * It is computed once and kept until the wiring of the resource is put again.
+     *
+     * @return The resources in the space or null if the resource is not wired
+     */
+    public Collection<Resource> getWiredSpace(Resource resource) {
+        Collection<Resource> result = wiredSpaces.get(resource);
+        if (result == null) {
+            long generation = wiringGeneration.get();
+            Wiring wiring = wirings.get(resource);
+            if (wiring != null) {
+                Map<String, Resource> resources = new LinkedHashMap<String, Resource>();
+                resources.put(resource.getIdentity().getSymbolicName(), resource);
+                for (Wire wire : wiring.getRequiredResourceWires(null)) {
+                    Resource provider = wire.getProvider();
+                    resources.put(provider.getIdentity().getSymbolicName(), provider);
+                }
+                result = Collections.unmodifiableList(new ArrayList<Resource>(resources.values()));
+
+                // A concurrent putWiring may have invalidated the wiring this space was built from.
+                // Publish first and check after, so that either putWiring removes the entry or we do.
+                wiredSpaces.put(resource, result);
+                if (wiringGeneration.get() != generation) {
+                    wiredSpaces.remove(resource, result);
+                }
+            }
+        }
+        return result;
     }
 }
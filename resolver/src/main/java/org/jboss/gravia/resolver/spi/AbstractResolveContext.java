@@ -27,6 +27,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.gravia.resolver.Environment;
 import org.jboss.gravia.resolver.PreferencePolicy;
@@ -49,6 +51,9 @@ public abstract class AbstractResolveContext implements ResolveContext {
     private final Environment environment;
     private final List<Resource> mandatory;
     private final List<Resource> optional;
+    private final Map<Requirement, CachedProviders> providerCache = new ConcurrentHashMap<Requirement, CachedProviders>();
+    private final AtomicLong providerCacheHits = new AtomicLong();
+    private final AtomicLong providerCacheMisses = new AtomicLong();
     private PreferencePolicy preferencePolicy;
 
     public AbstractResolveContext(Environment environment, Set<Resource> manres, Set<Resource> optres) {
@@ -88,7 +93,7 @@ public abstract class AbstractResolveContext implements ResolveContext {
 
     protected abstract PreferencePolicy createPreferencePolicy();
 
-    private PreferencePolicy getPreferencePolicyInternal() {
+    private synchronized PreferencePolicy getPreferencePolicyInternal() {
         if (preferencePolicy == null) {
             preferencePolicy = createPreferencePolicy();
         }
@@ -122,11 +127,55 @@ public abstract class AbstractResolveContext implements ResolveContext {
         absenv.putWiring(resource, wiring);
     }
 
+    Collection<Resource> getWiredSpace(Resource resource) {
+        if (environment instanceof AbstractEnvironment) {
+            return ((AbstractEnvironment) environment).getWiredSpace(resource);
+        }
+        return null;
+    }
+
+    /**
+     * Find the providers for the given requirement.
+     *
+     * The sorted providers are cached for the lifetime of this context.
+     * Cached providers are dropped when the generation of an {@link AbstractEnvironment} changes.
+     *
+     * @return A new list of providers that is the property of the caller
+     */
     @Override
     public List<Capability> findProviders(Requirement req) {
+        long generation = environment instanceof AbstractEnvironment ? ((AbstractEnvironment) environment).getGeneration() : -1;
+        CachedProviders cached = providerCache.get(req);
+        if (cached != null && cached.generation == generation) {
+            providerCacheHits.incrementAndGet();
+            return new ArrayList<Capability>(cached.providers);
+        }
+        providerCacheMisses.incrementAndGet();
         List<Capability> result = new ArrayList<Capability>();
         result.addAll(environment.findProviders(req));
         getPreferencePolicyInternal().sort(result);
+        if (generation >= 0) {
+            providerCache.put(req, new CachedProviders(generation, new ArrayList<Capability>(result)));
+        }
         return result;
     }
+
+    long getProviderCacheHits() {
+        return providerCacheHits.get();
+    }
+
+    long getProviderCacheMisses() {
+        return providerCacheMisses.get();
+    }
+
+    private static class CachedProviders {
+
+        private final long generation;
+        private final List<Capability> providers;
+
+        CachedProviders(long generation, List<Capability> providers) {
+            this.generation = generation;
+            this.providers = providers;
+        }
+    }
 }
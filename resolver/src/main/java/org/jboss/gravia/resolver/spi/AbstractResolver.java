@@ -24,6 +24,7 @@ import static org.jboss.gravia.resolver.spi.ResolverLogger.LOGGER;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -32,6 +33,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.jboss.gravia.resolver.ResolutionException;
 import org.jboss.gravia.resolver.ResolveContext;
@@ -44,6 +49,8 @@ import org.jboss.gravia.runtime.Wire;
 import org.jboss.gravia.runtime.Wiring;
 import org.jboss.gravia.runtime.spi.AbstractWire;
 import org.jboss.gravia.runtime.spi.AbstractWiring;
+import org.jboss.gravia.runtime.spi.RuntimeMetrics;
+import org.jboss.gravia.runtime.spi.RuntimeMetricsLocator;
 
 /**
  * An abstract resolver {@link Resolver}.
@@ -56,6 +63,24 @@ import org.jboss.gravia.runtime.spi.AbstractWiring;
  */
 public abstract class AbstractResolver implements Resolver {
 
+    private final ExecutorService executor;
+
+    public AbstractResolver() {
+        this(null);
+    }
+
+    /**
+     * Create a resolver that resolves independent resources concurrently.
+     *
+     * Resources are independent if their candidate closures do not share any unwired resource.
+     * The result is the same as that of a sequential resolve.
+     *
+     * @param executor The executor to resolve independent resources with or null for sequential resolution
+     */
+    public AbstractResolver(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     protected abstract AbstractWire createWire(Requirement req, Capability cap);
 
     protected abstract AbstractWiring createWiring(Resource resource, List<Wire> reqwires, List<Wire> provwires);
@@ -81,6 +106,8 @@ public abstract class AbstractResolver implements Resolver {
     private Map<Resource, List<Wire>> resolveInternal(AbstractResolveContext context, boolean apply) throws ResolutionException {
 
         LOGGER.debug("Resolve: mandatory{} optional{}", context.getMandatoryResources(), context.getOptionalResources());
+        RuntimeMetrics metrics = RuntimeMetricsLocator.getMetrics();
+        long start = metrics.startTimer();
 
         // Get the combined set of resources in the context
         Set<Resource> combined = new LinkedHashSet<Resource>();
@@ -88,14 +115,16 @@ public abstract class AbstractResolver implements Resolver {
         combined.addAll(context.getOptionalResources());
 
         // Resolve combined resources
-        ResolverState state = new ResolverState(context);
-        for (Resource res : combined) {
-            resolveResource(state, res);
+        Map<Resource, List<Wire>> resourceWires;
+        if (executor != null && combined.size() > 1) {
+            resourceWires = resolveConcurrently(context, combined);
+        } else {
+            resourceWires = resolveResources(context, combined);
         }
 
         // Log resolver result
-        Map<Resource, List<Wire>> resourceWires = state.getResult();
         if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Provider cache: hits={} misses={}", context.getProviderCacheHits(), context.getProviderCacheMisses());
             for (Entry<Resource, List<Wire>> entry : resourceWires.entrySet()) {
                 LOGGER.debug("Resolved: {}", entry.getKey());
                 for (Wire wire : entry.getValue()) {
@@ -118,6 +147,7 @@ public abstract class AbstractResolver implements Resolver {
                     for (Wire wire : reqwires) {
                         reqwiring.addRequiredWire(wire);
                     }
+                    context.putWiring(requirer, reqwiring);
                 }
                 for (Wire wire : reqwires) {
                     AbstractResource provider = (AbstractResource) wire.getProvider();
@@ -131,9 +161,170 @@ public abstract class AbstractResolver implements Resolver {
             }
         }
 
+        metrics.recordLatency(RuntimeMetrics.RESOLVER_RESOLVE, combined.size() + " resources", start);
         return resourceWires;
     }
 
+    ResolverState createResolverState(ResolveContext context) {
+        return new ResolverState(context);
+    }
+
+    /**
+     * Resolve the given resources and return the wires for every newly resolved resource.
+     */
+    private Map<Resource, List<Wire>> resolveResources(AbstractResolveContext context, Collection<Resource> resources) throws ResolutionException {
+        ResolverState state = createResolverState(context);
+        for (Resource res : resources) {
+            state.resolve(res);
+        }
+        LOGGER.debug("Resolver state: {}", state);
+        return state.getResult();
+    }
+
+    /**
+     * Resolve every group of independent resources in its own task and merge the results
+     * in the order of a sequential resolve.
+     */
+    private Map<Resource, List<Wire>> resolveConcurrently(final AbstractResolveContext context, Collection<Resource> resources) throws ResolutionException {
+
+        List<List<Resource>> components = partitionResources(context, resources);
+        if (components.size() < 2) {
+            return resolveResources(context, resources);
+        }
+
+        LOGGER.debug("Resolve {} independent components", components.size());
+
+        List<Callable<ComponentResult>> tasks = new ArrayList<Callable<ComponentResult>>();
+        for (final List<Resource> component : components) {
+            tasks.add(new Callable<ComponentResult>() {
+                @Override
+                public ComponentResult call() throws Exception {
+                    return resolveComponent(context, component);
+                }
+            });
+        }
+
+        Map<Resource, ComponentResult> results = new HashMap<Resource, ComponentResult>();
+        try {
+            for (Future<ComponentResult> future : executor.invokeAll(tasks)) {
+                ComponentResult result = future.get();
+                for (Resource res : result.resources) {
+                    results.put(res, result);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResolutionException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new ResolutionException(cause);
+        }
+
+        // Merge the results in the order of the given resources
+        Map<Resource, List<Wire>> wiremap = new LinkedHashMap<Resource, List<Wire>>();
+        for (Resource res : resources) {
+            ComponentResult result = results.get(res);
+            int index = result.resources.indexOf(res);
+            if (index == result.failedIndex) {
+                throw result.failure;
+            }
+            int start = index > 0 ? result.boundaries[index - 1] : 0;
+            int end = result.boundaries[index];
+            for (Entry<Resource, List<Wire>> entry : result.entries.subList(start, end)) {
+                wiremap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return wiremap;
+    }
+
+    private ComponentResult resolveComponent(AbstractResolveContext context, List<Resource> resources) {
+        ComponentResult result = new ComponentResult(resources);
+        ResolverState state = createResolverState(context);
+        for (int i = 0; i < resources.size(); i++) {
+            try {
+                state.resolve(resources.get(i));
+            } catch (ResolutionException ex) {
+                result.failedIndex = i;
+                result.failure = ex;
+                break;
+            }
+            result.boundaries[i] = state.getResult().size();
+        }
+        result.entries.addAll(state.getResult().entrySet());
+        return result;
+    }
+
+    /**
+     * Partition the given resources into groups whose candidate closures do not share an unwired resource.
+     * The order of the given resources is maintained within each group and between the groups.
+     */
+    List<List<Resource>> partitionResources(ResolveContext context, Collection<Resource> resources) {
+        Map<Resource, Resource> parents = new HashMap<Resource, Resource>();
+        Map<Resource, Wiring> wirings = context.getWirings();
+        for (Resource root : resources) {
+            if (parents.containsKey(root)) {
+                continue;
+            }
+            parents.put(root, root);
+            List<Resource> pending = new ArrayList<Resource>();
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Resource res = pending.remove(pending.size() - 1);
+                for (Requirement req : res.getRequirements(null)) {
+                    for (Capability cap : context.findProviders(req)) {
+                        Resource provider = cap.getResource();
+                        if (wirings.get(provider) != null) {
+                            continue;
+                        }
+                        if (parents.containsKey(provider)) {
+                            union(parents, res, provider);
+                        } else {
+                            parents.put(provider, findRoot(parents, res));
+                            pending.add(provider);
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Resource, List<Resource>> components = new LinkedHashMap<Resource, List<Resource>>();
+        for (Resource res : resources) {
+            Resource key = findRoot(parents, res);
+            List<Resource> component = components.get(key);
+            if (component == null) {
+                component = new ArrayList<Resource>();
+                components.put(key, component);
+            }
+            component.add(res);
+        }
+        return new ArrayList<List<Resource>>(components.values());
+    }
+
+    private static Resource findRoot(Map<Resource, Resource> parents, Resource res) {
+        Resource root = res;
+        while (parents.get(root) != root) {
+            root = parents.get(root);
+        }
+        while (res != root) {
+            Resource next = parents.get(res);
+            parents.put(res, root);
+            res = next;
+        }
+        return root;
+    }
+
+    private static void union(Map<Resource, Resource> parents, Resource res1, Resource res2) {
+        Resource root1 = findRoot(parents, res1);
+        Resource root2 = findRoot(parents, res2);
+        if (root1 != root2) {
+            parents.put(root2, root1);
+        }
+    }
+
     private ResourceSpace resolveResource(ResolverState state, Resource res) throws ResolutionException {
 
         // Check if we already have a resolved space for resource
@@ -184,7 +375,10 @@ public abstract class AbstractResolver implements Resolver {
         return null;
     }
 
-    private class ResolverState {
+    /**
+     * The state of a resolve operation, resources are resolved one after another.
+     */
+    class ResolverState {
 
         private final ResourceSpaces spaces;
         private final ResolveContext context;
@@ -195,6 +389,10 @@ public abstract class AbstractResolver implements Resolver {
             this.spaces = new ResourceSpaces(context);
         }
 
+        void resolve(Resource res) throws ResolutionException {
+            resolveResource(this, res);
+        }
+
         ResourceSpaces getResourceSpaces() {
             return spaces;
         }
@@ -206,22 +404,39 @@ public abstract class AbstractResolver implements Resolver {
         Map<Resource, List<Wire>> getResult() {
             return wiremap;
         }
+
+        @Override
+        public String toString() {
+            return "[resolved=" + wiremap.size() + "]";
+        }
+    }
+
+    private static class ComponentResult {
+
+        private final List<Resource> resources;
+        private final int[] boundaries;
+        private final List<Entry<Resource, List<Wire>>> entries = new ArrayList<Entry<Resource, List<Wire>>>();
+        private int failedIndex = -1;
+        private ResolutionException failure;
+
+        ComponentResult(List<Resource> resources) {
+            this.resources = resources;
+            this.boundaries = new int[resources.size()];
+        }
     }
 
     class ResourceSpaces {
 
+        private final ResolveContext context;
         private final Map<Resource, ResourceSpace> spacemap = new LinkedHashMap<Resource, ResourceSpace>();
 
-        // Initially contain spaces for all wired resources
+        // Spaces for wired resources are created on demand
         ResourceSpaces(ResolveContext context) {
-            Map<Resource, Wiring> wirings = context.getWirings();
-            for (Resource res : wirings.keySet()) {
-                Wiring wiring = wirings.get(res);
-                spacemap.put(res, new ResourceSpace(res, wiring));
-            }
+            this.context = context;
         }
 
         ResourceSpaces(ResourceSpaces parent) {
+            context = parent.context;
             spacemap.putAll(parent.spacemap);
         }
 
@@ -232,11 +447,36 @@ public abstract class AbstractResolver implements Resolver {
         }
 
         Map<Resource, ResourceSpace> getResourceSpaces() {
-            return Collections.unmodifiableMap(spacemap);
+            Map<Resource, ResourceSpace> result = new LinkedHashMap<Resource, ResourceSpace>();
+            for (Resource res : context.getWirings().keySet()) {
+                result.put(res, getResourceSpace(res));
+            }
+            result.putAll(spacemap);
+            return Collections.unmodifiableMap(result);
         }
 
         ResourceSpace getResourceSpace(Resource res) {
-            return spacemap.get(res);
+            ResourceSpace space = spacemap.get(res);
+            if (space == null) {
+                space = createWiredSpace(res);
+                if (space != null) {
+                    spacemap.put(res, space);
+                }
+            }
+            return space;
+        }
+
+        private ResourceSpace createWiredSpace(Resource res) {
+            Wiring wiring = context.getWirings().get(res);
+            if (wiring == null)
+                return null;
+
+            // Reuse the space that the environment maintains for the wired resource
+            Collection<Resource> resources = null;
+            if (context instanceof AbstractResolveContext) {
+                resources = ((AbstractResolveContext) context).getWiredSpace(res);
+            }
+            return resources != null ? new ResourceSpace(res, resources) : new ResourceSpace(res, wiring);
         }
     }
 
@@ -264,6 +504,14 @@ public abstract class AbstractResolver implements Resolver {
             }
         }
 
+        ResourceSpace(Resource primary, Collection<Resource> resources) {
+            this.primary = primary;
+            for (Resource aux : resources) {
+                String uniquekey = aux.getIdentity().getSymbolicName();
+                this.resources.put(uniquekey, aux);
+            }
+        }
+
         Resource getPrimary() {
             return primary;
         }
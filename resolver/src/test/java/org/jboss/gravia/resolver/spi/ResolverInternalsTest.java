@@ -21,17 +21,25 @@
 
 package org.jboss.gravia.resolver.spi;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.gravia.resolver.DefaultPreferencePolicy;
 import org.jboss.gravia.resolver.ResolveContext;
+import org.jboss.gravia.resolver.SelectingPreferencePolicy;
 import org.jboss.gravia.resolver.spi.AbstractResolver.ResourceCandidates;
 import org.jboss.gravia.resolver.spi.AbstractResolver.ResourceSpace;
 import org.jboss.gravia.resolver.spi.AbstractResolver.ResourceSpaces;
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.Requirement;
 import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.ResourceIdentity;
+import org.jboss.gravia.runtime.DefaultWiring;
 import org.jboss.gravia.runtime.Wire;
 import org.junit.Assert;
 import org.junit.Test;
@@ -59,6 +67,78 @@ public class ResolverInternalsTest extends AbstractResolverInternalsTest {
         Assert.assertEquals(resC10, space.getResources().iterator().next());
     }
 
+    @Test
+    public void testWiredSpaceReuse() throws Exception {
+        Resource resC10 = environment.getResource(ResourceIdentity.fromString("resC:1.0.0"));
+        Resource resE10 = environment.getResource(ResourceIdentity.fromString("resE:1.0.0"));
+
+        Collection<Resource> wiredSpace = environment.getWiredSpace(resC10);
+        Assert.assertEquals(Arrays.asList(resC10), wiredSpace);
+        Assert.assertSame(wiredSpace, environment.getWiredSpace(resC10));
+        Assert.assertNull(environment.getWiredSpace(resE10));
+
+        // Spaces for wired resources are only created when asked for
+        ResolveContext context = getResolveContext(null, null);
+        ResourceSpaces spaces = resolver.createResourceSpaces(context);
+        Assert.assertNull(spaces.getResourceSpace(resE10));
+        ResourceSpace space = spaces.getResourceSpace(resC10);
+        Assert.assertSame(space, spaces.getResourceSpace(resC10));
+
+        // Updating the wiring invalidates the wired space
+        long generation = environment.getWiringGeneration();
+        environment.putWiring(resE10, new DefaultWiring(resE10, null, null));
+        Assert.assertEquals(generation + 1, environment.getWiringGeneration());
+        Assert.assertEquals(Arrays.asList(resE10), environment.getWiredSpace(resE10));
+        Assert.assertSame(wiredSpace, environment.getWiredSpace(resC10));
+    }
+
+    @Test
+    public void testProviderCache() throws Exception {
+        Resource resA10 = environment.getResource(ResourceIdentity.fromString("resA:1.0.0"));
+        Requirement req = resA10.getRequirements(null).get(0);
+
+        AbstractResolveContext context = (AbstractResolveContext) getResolveContext(null, null);
+        List<Capability> providers = context.findProviders(req);
+        Assert.assertEquals(providers, context.findProviders(req));
+        Assert.assertEquals(1, context.getProviderCacheHits());
+
+        // The caller owns the returned list
+        context.findProviders(req).clear();
+        Assert.assertEquals(providers, context.findProviders(req));
+        Assert.assertFalse(providers.isEmpty());
+        Assert.assertEquals(1, context.getProviderCacheMisses());
+
+        // A new environment generation invalidates the cached providers
+        Resource resE10 = environment.getResource(ResourceIdentity.fromString("resE:1.0.0"));
+        environment.putWiring(resE10, new DefaultWiring(resE10, null, null));
+        List<Capability> next = context.findProviders(req);
+        Assert.assertNotSame(providers, next);
+        Assert.assertEquals(providers, next);
+        Assert.assertEquals(2, context.getProviderCacheMisses());
+    }
+
+    @Test
+    public void testPreferencePolicy() throws Exception {
+        Resource resB10 = environment.getResource(ResourceIdentity.fromString("resB:1.0.0"));
+        Resource resB11 = environment.getResource(ResourceIdentity.fromString("resB:1.1.0"));
+        Capability capB10 = resB10.getIdentityCapability();
+        Capability capB11 = resB11.getIdentityCapability();
+
+        // Prefer the higher version
+        SelectingPreferencePolicy policy = new DefaultPreferencePolicy(environment.getWirings());
+        List<Capability> providers = new ArrayList<Capability>(Arrays.asList(capB10, capB11));
+        policy.sort(providers);
+        Assert.assertEquals(Arrays.asList(capB11, capB10), providers);
+        Assert.assertSame(capB11, policy.selectPreferred(Arrays.asList(capB10, capB11)));
+        Assert.assertNull(policy.selectPreferred(Collections.<Capability> emptyList()));
+
+        // Prefer the wired resource
+        environment.putWiring(resB10, new DefaultWiring(resB10, null, null));
+        policy.sort(providers);
+        Assert.assertEquals(Arrays.asList(capB10, capB11), providers);
+        Assert.assertSame(capB10, policy.selectPreferred(Arrays.asList(capB11, capB10)));
+    }
+
     @Test
     public void testResourceCandidates() throws Exception {
         Resource resA10 = environment.getResource(ResourceIdentity.fromString("resA:1.0.0"));
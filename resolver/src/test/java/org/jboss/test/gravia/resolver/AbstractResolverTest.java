@@ -59,7 +59,7 @@ public abstract class AbstractResolverTest {
     @Before
     public void setUp() throws Exception {
         LOGGER.debug("Start: {}.{}", getClass().getSimpleName(), testName.getMethodName());
-        resolver = new DefaultResolver();
+        resolver = createResolver();
         environment = new DefaultEnvironment("testStore");
     }
 
@@ -68,6 +68,10 @@ public abstract class AbstractResolverTest {
         LOGGER.debug("End: {}.{}", getClass().getSimpleName(), testName.getMethodName());
     }
 
+    Resolver createResolver() {
+        return new DefaultResolver();
+    }
+
     ResourceStore installResources(Resource... resources) {
         for (Resource res : resources) {
             environment.addResource(res);
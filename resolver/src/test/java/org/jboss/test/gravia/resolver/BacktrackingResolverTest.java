@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * Gravia :: Resolver
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.resolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.gravia.resolver.BacktrackingResolver;
+import org.jboss.gravia.resolver.ResolveContext;
+import org.jboss.gravia.resolver.Resolver;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+import org.jboss.gravia.runtime.Wire;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Test the backtracking resolver integration.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BacktrackingResolverTest extends DefaultResolverTest {
+
+    @Override
+    Resolver createResolver() {
+        return new BacktrackingResolver();
+    }
+
+    @Test
+    public void testSkipUnresolvableProvider() throws Exception {
+
+        // A-1.0.0 => B-1.0.0, B-1.1.0 => X (missing)
+
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resA", new Version("1.0.0"));
+        builder.addIdentityRequirement("resB", new VersionRange("[1.0,2.0)"));
+        Resource resA = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resB", new Version("1.0.0"));
+        Resource resB1 = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resB", new Version("1.1.0"));
+        builder.addIdentityRequirement("resX", new VersionRange("[1.0,2.0)"));
+        Resource resB2 = builder.getResource();
+
+        installResources(resA, resB1, resB2);
+
+        ResolveContext context = getResolveContext(Arrays.asList(resA), null);
+        Map<Resource, List<Wire>> wiremap = resolveAndApply(context);
+        Assert.assertEquals(2, wiremap.size());
+
+        List<Wire> wiresA = wiremap.get(resA);
+        Assert.assertEquals(1, wiresA.size());
+        Assert.assertEquals(resB1, wiresA.get(0).getProvider());
+        Assert.assertNull(getWiring(resB2));
+    }
+
+    @Test
+    public void testBackjumpOverConflict() throws Exception {
+
+        // A-1.0.0 => P-[1.0,2.0), Q-[1.0,1.1)
+        // P-1.1.0 => Q-1.1.0
+        // P-1.0.0 => Q-1.0.0
+
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resA", new Version("1.0.0"));
+        builder.addIdentityRequirement("resP", new VersionRange("[1.0,2.0)"));
+        builder.addIdentityRequirement("resQ", new VersionRange("[1.0,1.1)"));
+        Resource resA = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resP", new Version("1.1.0"));
+        builder.addIdentityRequirement("resQ", new VersionRange("[1.1,2.0)"));
+        Resource resP11 = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resP", new Version("1.0.0"));
+        builder.addIdentityRequirement("resQ", new VersionRange("[1.0,1.1)"));
+        Resource resP10 = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resQ", new Version("1.1.0"));
+        Resource resQ11 = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resQ", new Version("1.0.0"));
+        Resource resQ10 = builder.getResource();
+
+        installResources(resA, resP11, resP10, resQ11, resQ10);
+
+        ResolveContext context = getResolveContext(Arrays.asList(resA), null);
+        Map<Resource, List<Wire>> wiremap = resolveAndApply(context);
+
+        List<Wire> wiresA = wiremap.get(resA);
+        Assert.assertEquals(2, wiresA.size());
+        Assert.assertEquals(resP10, wiresA.get(0).getProvider());
+        Assert.assertEquals(resQ10, wiresA.get(1).getProvider());
+    }
+}
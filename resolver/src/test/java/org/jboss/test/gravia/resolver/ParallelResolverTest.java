@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Gravia :: Resolver
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.resolver;
+
+import static org.jboss.gravia.resolver.spi.ResolverLogger.LOGGER;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jboss.gravia.resolver.DefaultResolveContext;
+import org.jboss.gravia.resolver.DefaultResolver;
+import org.jboss.gravia.resolver.ResolutionException;
+import org.jboss.gravia.resolver.ResolveContext;
+import org.jboss.gravia.resolver.Resolver;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+import org.jboss.gravia.runtime.Wire;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Test that the concurrent resolve produces the same result as the sequential one.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ParallelResolverTest extends AbstractResolverTest {
+
+    static final int COMPONENTS = 250;
+    static final int CHAIN_LENGTH = 10;
+
+    ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = new ForkJoinPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSyntheticEnvironment() throws Exception {
+
+        // Independent chains of resources in two versions each
+        List<Resource> roots = new ArrayList<Resource>();
+        for (int comp = 0; comp < COMPONENTS; comp++) {
+            for (int idx = 0; idx < CHAIN_LENGTH; idx++) {
+                for (String version : new String[] { "1.0.0", "1.1.0" }) {
+                    ResourceBuilder builder = new DefaultResourceBuilder();
+                    builder.addIdentityCapability("comp" + comp + ".res" + idx, new Version(version));
+                    for (int dep = idx + 1; dep < Math.min(idx + 3, CHAIN_LENGTH); dep++) {
+                        builder.addIdentityRequirement("comp" + comp + ".res" + dep, new VersionRange("[1.0,2.0)"));
+                    }
+                    Resource res = builder.getResource();
+                    if (idx == 0 && version.equals("1.1.0")) {
+                        roots.add(res);
+                    }
+                    installResources(res);
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Resource, List<Wire>> expected = resolve(new DefaultResolver(), roots);
+        long sequential = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        Map<Resource, List<Wire>> actual = resolve(new DefaultResolver(executor), roots);
+        long parallel = System.currentTimeMillis() - start;
+
+        LOGGER.info("Resolved {} resources, sequential {}ms, parallel {}ms", expected.size(), sequential, parallel);
+        Assert.assertEquals(COMPONENTS * CHAIN_LENGTH, expected.size());
+        assertSameResult(expected, actual);
+    }
+
+    @Test
+    public void testFirstFailureWins() throws Exception {
+
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resA", new Version("1.0.0"));
+        builder.addIdentityRequirement("resX", new VersionRange("[1.0,2.0)"));
+        Resource resA = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resB", new Version("1.0.0"));
+        Requirement reqB = builder.addIdentityRequirement("resY", new VersionRange("[1.0,2.0)"));
+        Resource resB = builder.getResource();
+
+        builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resC", new Version("1.0.0"));
+        Resource resC = builder.getResource();
+
+        installResources(resA, resB, resC);
+
+        List<Resource> roots = new ArrayList<Resource>();
+        roots.add(resC);
+        roots.add(resB);
+        roots.add(resA);
+        try {
+            resolve(new DefaultResolver(executor), roots);
+            Assert.fail("ResolutionException expected");
+        } catch (ResolutionException ex) {
+            Collection<Requirement> unresolved = ex.getUnresolvedRequirements();
+            Assert.assertEquals(1, unresolved.size());
+            Assert.assertEquals(reqB, unresolved.iterator().next());
+        }
+    }
+
+    private Map<Resource, List<Wire>> resolve(Resolver resolver, List<Resource> roots) throws ResolutionException {
+        Set<Resource> manres = new LinkedHashSet<Resource>(roots);
+        ResolveContext context = new DefaultResolveContext(environment, manres, null);
+        return resolver.resolve(context);
+    }
+
+    private void assertSameResult(Map<Resource, List<Wire>> expected, Map<Resource, List<Wire>> actual) {
+        Assert.assertEquals(new ArrayList<Resource>(expected.keySet()), new ArrayList<Resource>(actual.keySet()));
+        Iterator<List<Wire>> itact = actual.values().iterator();
+        for (Entry<Resource, List<Wire>> entry : expected.entrySet()) {
+            List<Wire> expwires = entry.getValue();
+            List<Wire> actwires = itact.next();
+            Assert.assertEquals(expwires.size(), actwires.size());
+            for (int i = 0; i < expwires.size(); i++) {
+                Assert.assertSame(expwires.get(i).getRequirement(), actwires.get(i).getRequirement());
+                Assert.assertSame(expwires.get(i).getCapability(), actwires.get(i).getCapability());
+            }
+        }
+    }
+}
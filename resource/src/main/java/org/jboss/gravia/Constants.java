@@ -121,6 +121,38 @@ public interface Constants  {
      */
     String RUNTIME_TYPE = "org.jboss.gravia.runtime.type";
 
+    /**
+     * The number of threads that deliver asynchronous module events.
+     * If this property is not set, two threads are used.
+     */
+    String RUNTIME_EVENTS_THREADS = "org.jboss.gravia.runtime.events.threads";
+
+    /**
+     * The maximum number of asynchronous module events that wait for delivery.
+     * A thread that fires a module event blocks while this limit is reached.
+     * If this property is not set, the limit is 10000.
+     */
+    String RUNTIME_EVENTS_CAPACITY = "org.jboss.gravia.runtime.events.capacity";
+
+    /**
+     * The maximum number of filter strings for which the runtime caches the parsed filter.
+     * A value of zero disables the cache. If this property is not set, the limit is 1024.
+     */
+    String RUNTIME_FILTER_CACHE_SIZE = "org.jboss.gravia.runtime.filter.cache.size";
+
+    /**
+     * The number of threads that start independent modules concurrently when the runtime is initialized.
+     * A value of one, which is the default, starts the modules on the calling thread.
+     * The value must be a positive integer.
+     */
+    String RUNTIME_START_THREADS = "org.jboss.gravia.runtime.start.threads";
+
+    /**
+     * If set to true, the runtime records latency histograms, counters and a startup timeline
+     * of its hot paths. Metrics are disabled if this property is not set.
+     */
+    String RUNTIME_METRICS_ENABLED = "org.jboss.gravia.runtime.metrics.enabled";
+
     /**
      * Service property identifying all of the class names under which a service
      * was registered in the Runtime. The value of this property must be of
@@ -197,6 +229,56 @@ public interface Constants  {
      */
     String PROPERTY_MAVEN_REPOSITORY_BASE_URLS = "org.jboss.gravia.repository.maven.base.urls";
 
+    /**
+     * The property that defines the Maven Repository connect timeouts in milliseconds, in the order of the base URLs.
+     * The last value applies to the remaining base URLs. The default is 10000.
+     */
+    String PROPERTY_MAVEN_REPOSITORY_CONNECT_TIMEOUTS = "org.jboss.gravia.repository.maven.connect.timeouts";
+
+    /**
+     * The property that defines the Maven Repository read timeouts in milliseconds, in the order of the base URLs.
+     * The last value applies to the remaining base URLs. The default is 30000.
+     */
+    String PROPERTY_MAVEN_REPOSITORY_READ_TIMEOUTS = "org.jboss.gravia.repository.maven.read.timeouts";
+
+    /**
+     * The property that enables concurrent probing of the Maven Repository base URLs.
+     * The first base URL in configured order that has the artifact wins. The default is false.
+     */
+    String PROPERTY_MAVEN_REPOSITORY_CONCURRENT_LOOKUP = "org.jboss.gravia.repository.maven.lookup.concurrent";
+
+    /**
+     * The property that defines how long in milliseconds a maven artifact that was found is cached. The default is 86400000 (one day).
+     * A value of zero disables caching of found artifacts.
+     */
+    String PROPERTY_MAVEN_LOOKUP_CACHE_TTL = "org.jboss.gravia.repository.maven.lookup.cache.ttl";
+
+    /**
+     * The property that defines how long in milliseconds a maven artifact that was not found is cached. The default is 600000 (ten minutes).
+     * A value of zero disables caching of artifacts that were not found.
+     */
+    String PROPERTY_MAVEN_LOOKUP_CACHE_NEGATIVE_TTL = "org.jboss.gravia.repository.maven.lookup.cache.negative.ttl";
+
+    /**
+     * The property that enables parallel lookups in the repository aggregator.
+     * All delegates are asked concurrently and the first non-empty answer in delegate order wins. The default is false.
+     * Every delegate runs its lookup, so side effects like fallback lookups or resources that a delegate imports into
+     * its storage happen for every delegate. Lookups that are no longer needed are interrupted, but a delegate that
+     * ignores interrupts runs to completion. Only enable this for delegates whose lookups may run concurrently and in excess.
+     */
+    String PROPERTY_REPOSITORY_AGGREGATOR_PARALLEL = "org.jboss.gravia.repository.aggregator.parallel";
+
+    /**
+     * The property that enables merging the answers of all delegates in the repository aggregator. The default is false.
+     */
+    String PROPERTY_REPOSITORY_AGGREGATOR_MERGE = "org.jboss.gravia.repository.aggregator.merge";
+
+    /**
+     * The property that defines the timeouts in milliseconds for the delegates of the repository aggregator in parallel mode.
+     * The values are comma separated in delegate order, the last value applies to all remaining delegates. The default is 60000.
+     */
+    String PROPERTY_REPOSITORY_AGGREGATOR_TIMEOUTS = "org.jboss.gravia.repository.aggregator.timeouts";
+
     /**
      * The property that defines the repository storage directory.
      */
@@ -206,4 +288,19 @@ public interface Constants  {
      * The property that defines the repository storage file.
      */
     String PROPERTY_REPOSITORY_STORAGE_FILE = "org.jboss.gravia.repository.storage.file";
+
+    /**
+     * The property that enables the repository storage journal. The default is true.
+     */
+    String PROPERTY_REPOSITORY_STORAGE_JOURNAL = "org.jboss.gravia.repository.storage.journal";
+
+    /**
+     * The property that defines the number of journal records after which the journal is forced to disk. The default is 1.
+     */
+    String PROPERTY_REPOSITORY_STORAGE_JOURNAL_SYNC = "org.jboss.gravia.repository.storage.journal.sync";
+
+    /**
+     * The property that defines the number of journal records after which the journal is compacted into the storage file. The default is 1000.
+     */
+    String PROPERTY_REPOSITORY_STORAGE_JOURNAL_COMPACT = "org.jboss.gravia.repository.storage.journal.compact";
 }
@@ -20,12 +20,13 @@
 
 package org.jboss.gravia.resource;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
-import org.jboss.gravia.resource.spi.AbstractCapability;
 import org.jboss.gravia.resource.spi.AbstractRequirement;
+import org.jboss.gravia.resource.spi.RequirementMatchPlan;
 
 /**
  * The default {@link MatchPolicy}.
@@ -33,39 +34,41 @@ import org.jboss.gravia.resource.spi.AbstractRequirement;
  * @author thomas.diesler@jboss.com
  * @since 02-Apr-2012
  */
-public class DefaultMatchPolicy implements MatchPolicy {
-    
+public class DefaultMatchPolicy implements IndexedMatchPolicy {
+
+    private final Set<String> indexedAttributes;
+
+    public DefaultMatchPolicy() {
+        this(ContentNamespace.CAPABILITY_MAVEN_IDENTITY_ATTRIBUTE);
+    }
+
+    /**
+     * Create a match policy that allows the given attributes to be indexed.
+     */
+    public DefaultMatchPolicy(String... indexedAttributes) {
+        Set<String> attributes = new LinkedHashSet<String>(Arrays.asList(indexedAttributes));
+        attributes.remove(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
+        this.indexedAttributes = Collections.unmodifiableSet(attributes);
+    }
+
     @Override
-    public boolean match(Capability cap, Requirement req) {
-        Map<String, Object> reqatts = req.getAttributes();
-        Map<String, Object> capatts = cap.getAttributes();
+    public Set<String> getIndexedAttributes() {
+        return indexedAttributes;
+    }
 
-        // The requirement matches the capability if their namespaces match
-        boolean matches = req.getNamespace().equals(cap.getNamespace());
-        
-        // Match the version range
-        VersionRange range = matches ? AbstractRequirement.getVersionRange(req, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE) : null;
-        if (range != null) {
-            Version version = AbstractCapability.getVersion(cap, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
-            matches = range.includes(version);
-            reqatts = new HashMap<String, Object>(req.getAttributes());
-            reqatts.remove(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
-            capatts = new HashMap<String, Object>(cap.getAttributes());
-            capatts.remove(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
-        }
-        
-        // Match the remaining attributes
-        if (matches) {
-            for (Entry<String, Object> entry : reqatts.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-                if (!value.equals(capatts.get(key))) {
-                    matches = false;
-                    break;
-                }
-            }
+    @Override
+    public String getVersionAttribute() {
+        return IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE;
+    }
+
+    @Override
+    public boolean match(Capability cap, Requirement req) {
+        // Use the compiled plan of an immutable requirement
+        AbstractRequirement areq = req.adapt(AbstractRequirement.class);
+        RequirementMatchPlan plan = areq != null ? areq.getMatchPlan() : null;
+        if (plan == null) {
+            plan = RequirementMatchPlan.compile(req, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
         }
-        
-        return matches;
+        return plan.matches(cap);
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * Gravia :: Resource
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resource;
+
+import java.util.Set;
+
+/**
+ * A {@link MatchPolicy} that lets a {@link ResourceStore} narrow the candidate capabilities
+ * for a requirement by looking up indexed attribute values.
+ *
+ * The policy is still asked to match every candidate that the index returns.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface IndexedMatchPolicy extends MatchPolicy {
+
+    /**
+     * Get the attributes that this policy compares by equality of the requirement and capability values.
+     */
+    Set<String> getIndexedAttributes();
+
+    /**
+     * Get the attribute for which this policy matches a requirement {@link VersionRange}
+     * against the capability {@link Version}, or null if there is no such attribute.
+     */
+    String getVersionAttribute();
+}
@@ -112,15 +112,23 @@ public class AbstractCapability implements Capability {
     }
 
     public static Version getVersion(Capability cap, String attname) {
-        Object attval = cap.getAttributes().get(attname);
-        if (attval != null && !(attval instanceof Version)) {
-            attval = new Version(attval.toString());
-            cap.getAttributes().put(attname, attval);
+        Object attval = cap.getAttribute(attname);
+        if (attval instanceof Version) {
+            return (Version) attval;
         }
-        return attval != null ? (Version) attval : Version.emptyVersion;
+        return attval != null ? new Version(attval.toString()) : Version.emptyVersion;
     }
 
     protected void validate() {
+        // Pre-parse the version so that matching does not need to
+        Object attval = getAttribute(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
+        if (attval != null && !(attval instanceof Version)) {
+            try {
+                getAttributes().put(IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE, Version.parseVersion(attval.toString()));
+            } catch (IllegalArgumentException ex) {
+                // leave an unparsable version to the match policy
+            }
+        }
         for (Entry<String, Object> entry : attributes.entrySet()) {
             String key = entry.getKey();
             Object val = entry.getValue();
@@ -44,6 +44,7 @@ public class AbstractRequirement implements Requirement {
     private Map<String, String> directives;
     private String canonicalName;
     private boolean optional;
+    private RequirementMatchPlan matchPlan;
 
     public AbstractRequirement(AbstractResource resource, String namespace, Map<String, Object> atts, Map<String, String> dirs) {
         if (resource == null)
@@ -124,9 +125,19 @@ public class AbstractRequirement implements Requirement {
         }
         String resdir = getDirective(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE);
         optional = Namespace.RESOLUTION_OPTIONAL.equals(resdir);
+        matchPlan = RequirementMatchPlan.compile(this, IdentityNamespace.CAPABILITY_VERSION_ATTRIBUTE);
         canonicalName = toString();
     }
 
+    /**
+     * Get the compiled match plan for this requirement.
+     *
+     * @return null if the requirement is still mutable
+     */
+    public RequirementMatchPlan getMatchPlan() {
+        return resource.isMutable() ? null : matchPlan;
+    }
+
     @Override
     public String toString() {
         String result = canonicalName;
@@ -21,15 +21,13 @@ package org.jboss.gravia.resource.spi;
 
 import static org.jboss.gravia.resource.spi.ResourceLogger.LOGGER;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.gravia.resource.Capability;
 import org.jboss.gravia.resource.MatchPolicy;
@@ -42,21 +40,26 @@ import org.jboss.gravia.utils.IllegalArgumentAssertion;
 /**
  * An abstract {@link ResourceStore}
  *
+ * The store content is published as an immutable snapshot. Readers do not lock,
+ * writers are serialized and publish a new snapshot generation. A new generation
+ * shares all unchanged data with the previous one.
+ *
  * @author thomas.diesler@jboss.com
  * @since 02-Jul-2010
  */
 public abstract class AbstractResourceStore implements ResourceStore {
 
     private final String storeName;
-    private final Map<ResourceIdentity, Resource> resources = new LinkedHashMap<ResourceIdentity, Resource>();
-    private final Map<CacheKey, Set<Capability>> capabilityCache = new ConcurrentHashMap<CacheKey, Set<Capability>>();
     private final MatchPolicy matchPolicy;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
 
     public AbstractResourceStore(String storeName, MatchPolicy matchPolicy) {
         IllegalArgumentAssertion.assertNotNull(storeName, "storeName");
         IllegalArgumentAssertion.assertNotNull(matchPolicy, "matchPolicy");
         this.storeName = storeName;
         this.matchPolicy = matchPolicy;
+        this.snapshot = new Snapshot(0, PersistentMap.<ResourceIdentity, StoredResource> empty(), new CapabilityIndex(matchPolicy));
     }
 
 
@@ -70,54 +73,36 @@ public abstract class AbstractResourceStore implements ResourceStore {
         return matchPolicy;
     }
 
+    /**
+     * Get the generation of the store content.
+     * The generation changes whenever a resource is added or removed.
+     */
+    public long getGeneration() {
+        return snapshot.generation;
+    }
+
     @Override
     public Iterator<Resource> getResources() {
-        final Iterator<Resource> itres;
-        synchronized (resources) {
-            Set<Resource> snapshot = new LinkedHashSet<Resource>(resources.values());
-            itres = snapshot.iterator();
-        }
-        return new Iterator<Resource>() {
-
-            @Override
-            public boolean hasNext() {
-                synchronized (resources) {
-                    return itres.hasNext();
-                }
-            }
-
-            @Override
-            public Resource next() {
-                synchronized (resources) {
-                    return itres.next();
-                }
-            }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+        return snapshot.getResources().iterator();
     }
 
     @Override
     public Resource addResource(Resource res) {
-        synchronized (resources) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
 
-            if (getResourceInternal(res.getIdentity()) != null)
+            if (current.resources.get(res.getIdentity()) != null)
                 throw new IllegalArgumentException("Resource already added: " + res);
 
             LOGGER.debug("Add to {}: {}", storeName, res);
 
             // Add resource capabilites
-            for (Capability cap : res.getCapabilities(null)) {
-                CacheKey cachekey = CacheKey.create(cap);
-                getCachedCapabilities(cachekey).add(cap);
-            }
+            List<Capability> caps = res.getCapabilities(null);
+            CapabilityIndex capabilities = current.capabilities.addCapabilities(caps);
 
             // Log cap/req details
             if (LOGGER.isDebugEnabled()) {
-                for (Capability cap : res.getCapabilities(null)) {
+                for (Capability cap : caps) {
                     LOGGER.debug("   {}", cap);
                 }
                 for (Requirement req : res.getRequirements(null)) {
@@ -125,28 +110,28 @@ public abstract class AbstractResourceStore implements ResourceStore {
                 }
             }
 
-            resources.put(res.getIdentity(), res);
+            long generation = current.generation + 1;
+            PersistentMap<ResourceIdentity, StoredResource> resources = current.resources.put(res.getIdentity(), new StoredResource(res, generation));
+            snapshot = new Snapshot(generation, resources, capabilities);
             return res;
         }
     }
 
     @Override
     public Resource removeResource(ResourceIdentity resid) {
-        synchronized (resources) {
-            Resource res = resources.remove(resid);
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            StoredResource stored = current.resources.get(resid);
+            Resource res = stored != null ? stored.resource : null;
             if (res != null) {
 
                 LOGGER.debug("Remove from {}: {}", storeName, res);
 
                 // Remove resource capabilities
-                for (Capability cap : res.getCapabilities(null)) {
-                    CacheKey cachekey = CacheKey.create(cap);
-                    Set<Capability> cachecaps = getCachedCapabilities(cachekey);
-                    cachecaps.remove(cap);
-                    if (cachecaps.isEmpty()) {
-                        capabilityCache.remove(cachekey);
-                    }
-                }
+                CapabilityIndex capabilities = current.capabilities.removeCapabilities(res.getCapabilities(null));
+
+                PersistentMap<ResourceIdentity, StoredResource> resources = current.resources.remove(resid);
+                snapshot = new Snapshot(current.generation + 1, resources, capabilities);
             }
             return res;
         }
@@ -154,20 +139,14 @@ public abstract class AbstractResourceStore implements ResourceStore {
 
     @Override
     public Resource getResource(ResourceIdentity resid) {
-        return getResourceInternal(resid);
-    }
-
-    private Resource getResourceInternal(ResourceIdentity resid) {
-        synchronized (resources) {
-            return resources.get(resid);
-        }
+        StoredResource stored = snapshot.resources.get(resid);
+        return stored != null ? stored.resource : null;
     }
 
     @Override
     public Set<Capability> findProviders(Requirement req) {
-        CacheKey cachekey = CacheKey.create(req);
         Set<Capability> result = new HashSet<Capability>();
-        for (Capability cap : findCachedCapabilities(cachekey)) {
+        for (Capability cap : snapshot.capabilities.getCandidates(req)) {
             if (matchPolicy.match(cap, req)) {
                 result.add(cap);
             }
@@ -175,80 +154,59 @@ public abstract class AbstractResourceStore implements ResourceStore {
         return Collections.unmodifiableSet(result);
     }
 
-    private synchronized Set<Capability> getCachedCapabilities(CacheKey key) {
-        Set<Capability> capset = capabilityCache.get(key);
-        if (capset == null) {
-            capset = new LinkedHashSet<Capability>();
-            capabilityCache.put(key, capset);
-        }
-        return capset;
-    }
-
-    private synchronized Set<Capability> findCachedCapabilities(CacheKey key) {
-        Set<Capability> capset = capabilityCache.get(key);
-        if (capset == null) {
-            capset = new LinkedHashSet<Capability>();
-            // do not add this to the capabilityCache
-        }
-        if (capset.isEmpty() && (key.value == null)) {
-            for (Entry<CacheKey, Set<Capability>> entry : capabilityCache.entrySet()) {
-                CacheKey auxkey = entry.getKey();
-                if (auxkey.namespace.equals(key.namespace)) {
-                    capset.addAll(entry.getValue());
-                }
-            }
-        }
-        return Collections.unmodifiableSet(capset);
-    }
-
     @Override
     public String toString() {
         String prefix = getClass() != AbstractResourceStore.class ? getClass().getSimpleName() : ResourceStore.class.getSimpleName();
         return prefix + "[" + storeName + "]";
     }
 
-    private static class CacheKey {
+    // A resource with the generation in which it was added
+    private static class StoredResource {
 
-        private final String namespace;
-        private final String value;
-        private final String keyspec;
+        private final Resource resource;
+        private final long added;
 
-        static CacheKey create(Capability cap) {
-            String namespace = cap.getNamespace();
-            String nsvalue = (String) cap.getAttributes().get(namespace);
-            return new CacheKey(namespace, nsvalue);
+        StoredResource(Resource resource, long added) {
+            this.resource = resource;
+            this.added = added;
         }
+    }
 
-        static CacheKey create(Requirement req) {
-            String namespace = req.getNamespace();
-            String nsvalue = (String) req.getAttributes().get(namespace);
-            return new CacheKey(namespace, nsvalue);
-        }
+    // An immutable generation of the store content
+    private static class Snapshot {
 
-        private CacheKey(String namespace, String value) {
-            this.namespace = namespace;
-            this.value = value;
-            this.keyspec = namespace + ":" + value;
-        }
+        private static final Comparator<StoredResource> ADDED_ORDER = new Comparator<StoredResource>() {
+            @Override
+            public int compare(StoredResource res1, StoredResource res2) {
+                return Long.compare(res1.added, res2.added);
+            }
+        };
 
-        @Override
-        public int hashCode() {
-            return keyspec.hashCode();
-        }
+        private final long generation;
+        private final PersistentMap<ResourceIdentity, StoredResource> resources;
+        private final CapabilityIndex capabilities;
+        private volatile List<Resource> ordered;
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (!(obj instanceof CacheKey))
-                return false;
-            CacheKey other = (CacheKey) obj;
-            return keyspec.equals(other.keyspec);
+        Snapshot(long generation, PersistentMap<ResourceIdentity, StoredResource> resources, CapabilityIndex capabilities) {
+            this.generation = generation;
+            this.resources = resources;
+            this.capabilities = capabilities;
         }
 
-        @Override
-        public String toString() {
-            return "[" + keyspec + "]";
+        // The resources in the order they were added, computed once per generation
+        List<Resource> getResources() {
+            List<Resource> result = ordered;
+            if (result == null) {
+                List<StoredResource> stored = new ArrayList<StoredResource>(resources.values());
+                Collections.sort(stored, ADDED_ORDER);
+                result = new ArrayList<Resource>(stored.size());
+                for (StoredResource aux : stored) {
+                    result.add(aux.resource);
+                }
+                result = Collections.unmodifiableList(result);
+                ordered = result;
+            }
+            return result;
         }
     }
 }
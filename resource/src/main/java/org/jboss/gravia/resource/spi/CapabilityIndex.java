@@ -0,0 +1,387 @@
+/*
+ * #%L
+ * Gravia :: Resource
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resource.spi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.IndexedMatchPolicy;
+import org.jboss.gravia.resource.MatchPolicy;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.ResourceStore;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+
+/**
+ * An immutable index of the capabilities in a {@link ResourceStore}.
+ *
+ * Capabilities are indexed by namespace and namespace value. The capabilities for a namespace value
+ * are kept in a version tree, so that a version range maps to a sub tree. Capabilities are further
+ * indexed by the values of the attributes that an {@link IndexedMatchPolicy} declares.
+ *
+ * The index returns candidates, which is a superset of the capabilities that match a requirement.
+ * Adding or removing capabilities creates a new generation of the index. The value and attribute maps
+ * and the capability buckets are {@link PersistentMap}s, of which only the nodes on the path to a changed key
+ * are copied. The version tree of a changed namespace value is copied, everything else is shared with the
+ * previous generation.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+final class CapabilityIndex {
+
+    private final Map<String, NamespaceIndex> namespaces;
+    private final Set<String> indexedAttributes;
+    private final String versionAttribute;
+
+    CapabilityIndex(MatchPolicy matchPolicy) {
+        if (matchPolicy instanceof IndexedMatchPolicy) {
+            IndexedMatchPolicy indexedPolicy = (IndexedMatchPolicy) matchPolicy;
+            indexedAttributes = indexedPolicy.getIndexedAttributes();
+            versionAttribute = indexedPolicy.getVersionAttribute();
+        } else {
+            indexedAttributes = Collections.emptySet();
+            versionAttribute = null;
+        }
+        namespaces = Collections.emptyMap();
+    }
+
+    private CapabilityIndex(CapabilityIndex previous, Map<String, NamespaceIndex> namespaces) {
+        this.indexedAttributes = previous.indexedAttributes;
+        this.versionAttribute = previous.versionAttribute;
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * Get the next generation of this index with the given capabilities added.
+     */
+    CapabilityIndex addCapabilities(Collection<Capability> caps) {
+        Generation gen = new Generation();
+        for (Capability cap : caps) {
+            String namespace = cap.getNamespace();
+            NamespaceIndex nsindex = gen.getNamespaceIndex(namespace);
+            if (nsindex == null) {
+                nsindex = gen.own(new NamespaceIndex(namespace));
+                gen.namespaces.put(namespace, nsindex);
+            }
+            nsindex.add(gen, cap);
+        }
+        return new CapabilityIndex(this, gen.namespaces);
+    }
+
+    /**
+     * Get the next generation of this index with the given capabilities removed.
+     */
+    CapabilityIndex removeCapabilities(Collection<Capability> caps) {
+        Generation gen = new Generation();
+        for (Capability cap : caps) {
+            String namespace = cap.getNamespace();
+            NamespaceIndex nsindex = gen.getNamespaceIndex(namespace);
+            if (nsindex != null && nsindex.remove(gen, cap)) {
+                gen.namespaces.remove(namespace);
+            }
+        }
+        return new CapabilityIndex(this, gen.namespaces);
+    }
+
+    /**
+     * Get the candidate capabilities for the given requirement.
+     */
+    Collection<Capability> getCandidates(Requirement req) {
+        NamespaceIndex nsindex = namespaces.get(req.getNamespace());
+        return nsindex != null ? nsindex.getCandidates(req) : Collections.<Capability> emptySet();
+    }
+
+    // The mutable state while a new generation is built
+    private class Generation {
+
+        private final Map<String, NamespaceIndex> namespaces = new HashMap<String, NamespaceIndex>(CapabilityIndex.this.namespaces);
+        private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+        <T> T own(T node) {
+            owned.add(node);
+            return node;
+        }
+
+        boolean isOwned(Object node) {
+            return owned.contains(node);
+        }
+
+        NamespaceIndex getNamespaceIndex(String namespace) {
+            NamespaceIndex nsindex = namespaces.get(namespace);
+            if (nsindex != null && !isOwned(nsindex)) {
+                nsindex = own(new NamespaceIndex(nsindex));
+                namespaces.put(namespace, nsindex);
+            }
+            return nsindex;
+        }
+    }
+
+    // A bucket is a persistent set of capabilities that maps each capability to itself
+    private static Bucket addToBucket(Bucket bucket, Capability cap) {
+        return (bucket != null ? bucket : Bucket.EMPTY).put(cap);
+    }
+
+    private static <K> PersistentMap<K, Bucket> addToBucket(PersistentMap<K, Bucket> buckets, K key, Capability cap) {
+        return buckets.put(key, addToBucket(buckets.get(key), cap));
+    }
+
+    private static <K> PersistentMap<K, Bucket> removeFromBucket(PersistentMap<K, Bucket> buckets, K key, Capability cap) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null)
+            return buckets;
+        bucket = bucket.remove(cap);
+        return bucket.isEmpty() ? buckets.remove(key) : buckets.put(key, bucket);
+    }
+
+    private static final class Bucket {
+
+        static final Bucket EMPTY = new Bucket(PersistentMap.<Capability, Capability> empty());
+
+        private final PersistentMap<Capability, Capability> capabilities;
+
+        private Bucket(PersistentMap<Capability, Capability> capabilities) {
+            this.capabilities = capabilities;
+        }
+
+        Bucket put(Capability cap) {
+            PersistentMap<Capability, Capability> result = capabilities.put(cap, cap);
+            return result != capabilities ? new Bucket(result) : this;
+        }
+
+        Bucket remove(Capability cap) {
+            PersistentMap<Capability, Capability> result = capabilities.remove(cap);
+            return result != capabilities ? new Bucket(result) : this;
+        }
+
+        boolean isEmpty() {
+            return capabilities.isEmpty();
+        }
+
+        int size() {
+            return capabilities.size();
+        }
+
+        Collection<Capability> values() {
+            return capabilities.values();
+        }
+    }
+
+    private class NamespaceIndex {
+
+        private final String namespace;
+        private final Map<String, PersistentMap<Object, Bucket>> attributes;
+        private PersistentMap<Object, ValueIndex> values;
+
+        NamespaceIndex(String namespace) {
+            this.namespace = namespace;
+            this.values = PersistentMap.empty();
+            this.attributes = new HashMap<String, PersistentMap<Object, Bucket>>();
+        }
+
+        NamespaceIndex(NamespaceIndex previous) {
+            this.namespace = previous.namespace;
+            this.values = previous.values;
+            this.attributes = new HashMap<String, PersistentMap<Object, Bucket>>(previous.attributes);
+        }
+
+        void add(Generation gen, Capability cap) {
+            Object nsvalue = cap.getAttribute(namespace);
+            ValueIndex valindex = getValueIndex(gen, nsvalue);
+            if (valindex == null) {
+                valindex = gen.own(new ValueIndex());
+                values = values.put(nsvalue, valindex);
+            }
+            valindex.add(cap);
+            for (String attname : indexedAttributes) {
+                Object attval = cap.getAttribute(attname);
+                if (attval != null) {
+                    PersistentMap<Object, Bucket> attindex = attributes.get(attname);
+                    if (attindex == null) {
+                        attindex = PersistentMap.empty();
+                    }
+                    attributes.put(attname, addToBucket(attindex, attval, cap));
+                }
+            }
+        }
+
+        // Returns true if the namespace index became empty
+        boolean remove(Generation gen, Capability cap) {
+            Object nsvalue = cap.getAttribute(namespace);
+            ValueIndex valindex = getValueIndex(gen, nsvalue);
+            if (valindex != null && valindex.remove(cap)) {
+                values = values.remove(nsvalue);
+            }
+            for (String attname : indexedAttributes) {
+                Object attval = cap.getAttribute(attname);
+                PersistentMap<Object, Bucket> attindex = attributes.get(attname);
+                if (attval != null && attindex != null) {
+                    attindex = removeFromBucket(attindex, attval, cap);
+                    if (attindex.isEmpty()) {
+                        attributes.remove(attname);
+                    } else {
+                        attributes.put(attname, attindex);
+                    }
+                }
+            }
+            return values.isEmpty();
+        }
+
+        private ValueIndex getValueIndex(Generation gen, Object nsvalue) {
+            ValueIndex valindex = values.get(nsvalue);
+            if (valindex != null && !gen.isOwned(valindex)) {
+                valindex = gen.own(new ValueIndex(valindex));
+                values = values.put(nsvalue, valindex);
+            }
+            return valindex;
+        }
+
+        Collection<Capability> getCandidates(Requirement req) {
+            Collection<Capability> result;
+
+            // Narrow by namespace value and version range
+            Object nsvalue = req.getAttribute(namespace);
+            if (nsvalue != null) {
+                ValueIndex valindex = values.get(nsvalue);
+                if (valindex == null)
+                    return Collections.emptySet();
+                result = valindex.getCandidates(req);
+            } else {
+                result = new ArrayList<Capability>();
+                for (ValueIndex valindex : values.values()) {
+                    result.addAll(valindex.capabilities.values());
+                }
+            }
+
+            // Narrow by the smallest bucket of an indexed attribute
+            for (String attname : indexedAttributes) {
+                Object attval = req.getAttribute(attname);
+                if (attval != null) {
+                    PersistentMap<Object, Bucket> attindex = attributes.get(attname);
+                    Bucket bucket = attindex != null ? attindex.get(attval) : null;
+                    if (bucket == null)
+                        return Collections.emptySet();
+                    if (bucket.size() < result.size()) {
+                        result = bucket.values();
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private class ValueIndex {
+
+        private Bucket capabilities;
+        private final TreeMap<Version, Bucket> versions;
+        // Capabilities with a version that cannot be parsed are always candidates
+        private Bucket unversioned;
+
+        ValueIndex() {
+            capabilities = Bucket.EMPTY;
+            versions = new TreeMap<Version, Bucket>();
+            unversioned = Bucket.EMPTY;
+        }
+
+        ValueIndex(ValueIndex previous) {
+            capabilities = previous.capabilities;
+            versions = new TreeMap<Version, Bucket>(previous.versions);
+            unversioned = previous.unversioned;
+        }
+
+        void add(Capability cap) {
+            capabilities = capabilities.put(cap);
+            if (versionAttribute != null) {
+                Version version = getVersion(cap);
+                if (version != null) {
+                    versions.put(version, addToBucket(versions.get(version), cap));
+                } else {
+                    unversioned = unversioned.put(cap);
+                }
+            }
+        }
+
+        // Returns true if the value index became empty
+        boolean remove(Capability cap) {
+            capabilities = capabilities.remove(cap);
+            if (versionAttribute != null) {
+                Version version = getVersion(cap);
+                Bucket bucket = version != null ? versions.get(version) : null;
+                if (bucket != null) {
+                    bucket = bucket.remove(cap);
+                    if (bucket.isEmpty()) {
+                        versions.remove(version);
+                    } else {
+                        versions.put(version, bucket);
+                    }
+                } else if (version == null) {
+                    unversioned = unversioned.remove(cap);
+                }
+            }
+            return capabilities.isEmpty();
+        }
+
+        Collection<Capability> getCandidates(Requirement req) {
+            VersionRange range = versionAttribute != null ? AbstractRequirement.getVersionRange(req, versionAttribute) : null;
+            if (range == null)
+                return capabilities.values();
+
+            NavigableMap<Version, Bucket> submap;
+            if (range.isEmpty()) {
+                return unversioned.values();
+            } else if (range.getRight() == null) {
+                submap = versions.tailMap(range.getLeft(), range.getLeftType() == VersionRange.LEFT_CLOSED);
+            } else {
+                boolean leftClosed = range.getLeftType() == VersionRange.LEFT_CLOSED;
+                boolean rightClosed = range.getRightType() == VersionRange.RIGHT_CLOSED;
+                submap = versions.subMap(range.getLeft(), leftClosed, range.getRight(), rightClosed);
+            }
+            List<Capability> result = new ArrayList<Capability>();
+            for (Bucket bucket : submap.values()) {
+                result.addAll(bucket.values());
+            }
+            result.addAll(unversioned.values());
+            return result;
+        }
+
+        private Version getVersion(Capability cap) {
+            Object attval = cap.getAttribute(versionAttribute);
+            if (attval == null) {
+                return Version.emptyVersion;
+            } else if (attval instanceof Version) {
+                return (Version) attval;
+            }
+            try {
+                return Version.parseVersion(attval.toString());
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+}
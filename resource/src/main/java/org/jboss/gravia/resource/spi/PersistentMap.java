@@ -0,0 +1,396 @@
+/*
+ * #%L
+ * Gravia :: Resource
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resource.spi;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map that shares structure between versions.
+ *
+ * The map is a hash array mapped trie. Adding or removing an entry copies the nodes on the path
+ * to the entry and shares all other nodes with the previous version, so both cost O(log n).
+ * Null keys and values are supported. The iteration order is unspecified.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+final class PersistentMap<K, V> {
+
+    private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<Object, Object>(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // Seven bitmap levels cover the 32 bit hash, a collision node may follow
+    private static final int MAX_DEPTH = 8;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        Entry entry = root != null ? root.find(key, hash(key), 0) : null;
+        return entry != null ? (V) entry.value : null;
+    }
+
+    /**
+     * Get a map with the given entry added or replaced.
+     * Returns this map if it already contains the given value for the key.
+     */
+    PersistentMap<K, V> put(K key, V value) {
+        Entry entry = new Entry(key, value, hash(key));
+        boolean[] added = new boolean[1];
+        Node newroot = root != null ? root.put(entry, 0, added) : BitmapNode.create(entry, 0);
+        if (newroot == root)
+            return this;
+        return new PersistentMap<K, V>(newroot, root != null && !added[0] ? size : size + 1);
+    }
+
+    /**
+     * Get a map without the entry for the given key.
+     * Returns this map if it does not contain the key.
+     */
+    PersistentMap<K, V> remove(Object key) {
+        if (root == null)
+            return this;
+        Node newroot = root.remove(key, hash(key), 0);
+        if (newroot == root)
+            return this;
+        return newroot != null ? new PersistentMap<K, V>(newroot, size - 1) : PersistentMap.<K, V> empty();
+    }
+
+    /**
+     * Get an unmodifiable view of the values in this map.
+     */
+    Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<V>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = key != null ? key.hashCode() : 0;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static final class Entry {
+
+        private final Object key;
+        private final Object value;
+        private final int hash;
+
+        Entry(Object key, Object value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
+    private abstract static class Node {
+
+        // Every slot holds an Entry or a child Node
+        abstract Object[] slots();
+
+        abstract Entry find(Object key, int hash, int shift);
+
+        abstract Node put(Entry entry, int shift, boolean[] added);
+
+        // Returns this if the key is not found and null if the node became empty
+        abstract Node remove(Object key, int hash, int shift);
+
+        // The single entry of a node that can be inlined into its parent or null
+        Entry singleEntry() {
+            Object[] slots = slots();
+            return slots.length == 1 && slots[0] instanceof Entry ? (Entry) slots[0] : null;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        static BitmapNode create(Entry entry, int shift) {
+            return new BitmapNode(bit(entry.hash, shift), new Object[] { entry });
+        }
+
+        // A node for two entries that share the hash bits below the given shift
+        static Node create(Entry a, Entry b, int shift) {
+            if (a.hash == b.hash)
+                return new CollisionNode(a.hash, new Object[] { a, b });
+            int bita = bit(a.hash, shift);
+            int bitb = bit(b.hash, shift);
+            if (bita == bitb)
+                return new BitmapNode(bita, new Object[] { create(a, b, shift + BITS) });
+            // Compare the chunks, not the bits, which are negative for the last slot
+            boolean order = ((a.hash >>> shift) & MASK) < ((b.hash >>> shift) & MASK);
+            Object[] slots = order ? new Object[] { a, b } : new Object[] { b, a };
+            return new BitmapNode(bita | bitb, slots);
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object[] slots() {
+            return slots;
+        }
+
+        @Override
+        Entry find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0)
+                return null;
+            Object slot = slots[index(bit)];
+            if (slot instanceof Node)
+                return ((Node) slot).find(key, hash, shift + BITS);
+            Entry entry = (Entry) slot;
+            return entry.hash == hash && equal(entry.key, key) ? entry : null;
+        }
+
+        @Override
+        Node put(Entry entry, int shift, boolean[] added) {
+            int bit = bit(entry.hash, shift);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] newslots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newslots, 0, idx);
+                newslots[idx] = entry;
+                System.arraycopy(slots, idx, newslots, idx + 1, slots.length - idx);
+                return new BitmapNode(bitmap | bit, newslots);
+            }
+            Object slot = slots[idx];
+            Object newslot;
+            if (slot instanceof Node) {
+                newslot = ((Node) slot).put(entry, shift + BITS, added);
+            } else {
+                Entry other = (Entry) slot;
+                if (other.hash == entry.hash && equal(other.key, entry.key)) {
+                    newslot = other.value == entry.value ? other : entry;
+                } else {
+                    added[0] = true;
+                    newslot = create(other, entry, shift + BITS);
+                }
+            }
+            if (newslot == slot)
+                return this;
+            Object[] newslots = slots.clone();
+            newslots[idx] = newslot;
+            return new BitmapNode(bitmap, newslots);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0)
+                return this;
+            int idx = index(bit);
+            Object slot = slots[idx];
+            Object newslot;
+            if (slot instanceof Node) {
+                Node child = (Node) slot;
+                Node newchild = child.remove(key, hash, shift + BITS);
+                if (newchild == child)
+                    return this;
+                Entry single = newchild != null ? newchild.singleEntry() : null;
+                newslot = single != null ? single : newchild;
+            } else {
+                Entry entry = (Entry) slot;
+                if (entry.hash != hash || !equal(entry.key, key))
+                    return this;
+                newslot = null;
+            }
+            if (newslot != null) {
+                Object[] newslots = slots.clone();
+                newslots[idx] = newslot;
+                return new BitmapNode(bitmap, newslots);
+            }
+            if (slots.length == 1)
+                return null;
+            Object[] newslots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newslots, 0, idx);
+            System.arraycopy(slots, idx + 1, newslots, idx, slots.length - idx - 1);
+            return new BitmapNode(bitmap & ~bit, newslots);
+        }
+    }
+
+    // The entries of keys with the same hash
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] entries;
+
+        CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        Object[] slots() {
+            return entries;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i++) {
+                if (equal(((Entry) entries[i]).key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Entry find(Object key, int hash, int shift) {
+            int idx = hash == this.hash ? indexOf(key) : -1;
+            return idx >= 0 ? (Entry) entries[idx] : null;
+        }
+
+        @Override
+        Node put(Entry entry, int shift, boolean[] added) {
+            if (entry.hash != hash) {
+                // Split into a bitmap node that holds this node and the new entry
+                BitmapNode node = new BitmapNode(BitmapNode.bit(hash, shift), new Object[] { this });
+                return node.put(entry, shift, added);
+            }
+            int idx = indexOf(entry.key);
+            if (idx >= 0) {
+                if (((Entry) entries[idx]).value == entry.value)
+                    return this;
+                Object[] newentries = entries.clone();
+                newentries[idx] = entry;
+                return new CollisionNode(hash, newentries);
+            }
+            added[0] = true;
+            Object[] newentries = new Object[entries.length + 1];
+            System.arraycopy(entries, 0, newentries, 0, entries.length);
+            newentries[entries.length] = entry;
+            return new CollisionNode(hash, newentries);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int idx = hash == this.hash ? indexOf(key) : -1;
+            if (idx < 0)
+                return this;
+            if (entries.length == 1)
+                return null;
+            Object[] newentries = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, newentries, 0, idx);
+            System.arraycopy(entries, idx + 1, newentries, idx, entries.length - idx - 1);
+            return new CollisionNode(hash, newentries);
+        }
+    }
+
+    private static final class ValueIterator<V> implements Iterator<V> {
+
+        private final Object[][] stack = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Entry next;
+
+        ValueIterator(Node root) {
+            if (root != null) {
+                stack[++depth] = root.slots();
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                if (positions[depth] == slots.length) {
+                    positions[depth--] = 0;
+                    continue;
+                }
+                Object slot = slots[positions[depth]++];
+                if (slot instanceof Entry) {
+                    next = (Entry) slot;
+                    return;
+                }
+                stack[++depth] = ((Node) slot).slots();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            V value = (V) next.value;
+            advance();
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
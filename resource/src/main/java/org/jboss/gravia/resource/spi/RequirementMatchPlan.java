@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * Gravia :: Resource
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.resource.spi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.MatchPolicy;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+
+/**
+ * A requirement that is compiled for matching against capabilities.
+ *
+ * The plan holds the requirement's version range and the remaining attributes as arrays.
+ * Matching a {@link Capability} does not allocate, provided the capability holds a parsed {@link Version}.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ * @see MatchPolicy
+ */
+public final class RequirementMatchPlan {
+
+    private final String namespace;
+    private final String versionAttribute;
+    private final VersionRange versionRange;
+    private final String[] keys;
+    private final Object[] values;
+
+    private RequirementMatchPlan(String namespace, String versionAttribute, VersionRange versionRange, String[] keys, Object[] values) {
+        this.namespace = namespace;
+        this.versionAttribute = versionAttribute;
+        this.versionRange = versionRange;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Compile the given requirement.
+     *
+     * If the requirement has a version range for the given attribute, a capability matches if its version
+     * is included in the range. All other requirement attributes must be equal to the capability attributes.
+     */
+    public static RequirementMatchPlan compile(Requirement req, String versionAttribute) {
+        VersionRange range = versionAttribute != null ? AbstractRequirement.getVersionRange(req, versionAttribute) : null;
+        List<String> keys = new ArrayList<String>();
+        List<Object> values = new ArrayList<Object>();
+        for (Entry<String, Object> entry : req.getAttributes().entrySet()) {
+            String key = entry.getKey();
+            if (range == null || !key.equals(versionAttribute)) {
+                keys.add(key.intern());
+                values.add(entry.getValue());
+            }
+        }
+        String[] keyarr = keys.toArray(new String[keys.size()]);
+        return new RequirementMatchPlan(req.getNamespace(), versionAttribute, range, keyarr, values.toArray());
+    }
+
+    public boolean matches(Capability cap) {
+        if (!namespace.equals(cap.getNamespace()))
+            return false;
+
+        if (versionRange != null) {
+            Version version = AbstractCapability.getVersion(cap, versionAttribute);
+            if (!versionRange.includes(version))
+                return false;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (!values[i].equals(cap.getAttribute(keys[i])))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * #%L
+ * Gravia :: Resource
+ * %%
+ * Copyright (C) 2010 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.DefaultMatchPolicy;
+import org.jboss.gravia.resource.DefaultRequirementBuilder;
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.DefaultResourceStore;
+import org.jboss.gravia.resource.IdentityRequirementBuilder;
+import org.jboss.gravia.resource.MatchPolicy;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.RequirementBuilder;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.resource.ResourceIdentity;
+import org.jboss.gravia.resource.ResourceStore;
+import org.jboss.gravia.resource.Version;
+import org.jboss.gravia.resource.VersionRange;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the capability lookup in {@link DefaultResourceStore}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ResourceStoreTestCase {
+
+    ResourceStore store;
+    Resource resA10, resA11, resA20, resB10;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new DefaultResourceStore("testStore");
+        resA10 = addResource("resA", "1.0.0");
+        resA11 = addResource("resA", "1.1.0");
+        resA20 = addResource("resA", "2.0.0");
+        resB10 = addResource("resB", "1.0.0");
+    }
+
+    @Test
+    public void testVersionRange() throws Exception {
+        Set<Capability> providers = findProviders(new IdentityRequirementBuilder("resA", new VersionRange("[1.0,2.0)")));
+        Assert.assertEquals(2, providers.size());
+        Assert.assertTrue(providers.contains(resA10.getIdentityCapability()));
+        Assert.assertTrue(providers.contains(resA11.getIdentityCapability()));
+
+        providers = findProviders(new IdentityRequirementBuilder("resA", new VersionRange("(1.1,2.0]")));
+        Assert.assertEquals(1, providers.size());
+        Assert.assertTrue(providers.contains(resA20.getIdentityCapability()));
+
+        providers = findProviders(new IdentityRequirementBuilder("resA", new VersionRange("1.1")));
+        Assert.assertEquals(2, providers.size());
+
+        providers = findProviders(new IdentityRequirementBuilder("resA", new VersionRange("[2.0,1.0]")));
+        Assert.assertEquals(0, providers.size());
+
+        providers = findProviders(new IdentityRequirementBuilder("resC", new VersionRange("[1.0,2.0)")));
+        Assert.assertEquals(0, providers.size());
+    }
+
+    @Test
+    public void testIndexedAttribute() throws Exception {
+        ResourceStore store = new DefaultResourceStore("indexedStore", new DefaultMatchPolicy("marker"));
+        Resource resM = store.addResource(markerResource("resM", "foo"));
+        store.addResource(markerResource("resN", "bar"));
+
+        RequirementBuilder builder = new DefaultRequirementBuilder("test.namespace", "shared");
+        builder.getAttributes().put("marker", "foo");
+        Set<Capability> providers = store.findProviders(builder.getRequirement());
+        Assert.assertEquals(1, providers.size());
+        Assert.assertSame(resM, providers.iterator().next().getResource());
+
+        builder = new DefaultRequirementBuilder("test.namespace", "shared");
+        builder.getAttributes().put("marker", "baz");
+        Assert.assertEquals(0, store.findProviders(builder.getRequirement()).size());
+
+        builder = new DefaultRequirementBuilder("test.namespace", "shared");
+        Assert.assertEquals(2, store.findProviders(builder.getRequirement()).size());
+    }
+
+    @Test
+    public void testMatchPolicy() throws Exception {
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability("resV", Version.emptyVersion);
+        builder.addCapability("test.namespace", "versioned").getAttributes().put("version", "1.2.3");
+        Capability cap = builder.getResource().getCapabilities("test.namespace").get(0);
+        Assert.assertEquals(new Version("1.2.3"), cap.getAttribute("version"));
+
+        MatchPolicy policy = new DefaultMatchPolicy();
+        RequirementBuilder reqbuilder = new DefaultRequirementBuilder("test.namespace", "versioned");
+        reqbuilder.getAttributes().put("version", "[1.2,2.0)");
+        Assert.assertTrue(policy.match(cap, reqbuilder.getRequirement()));
+
+        reqbuilder = new DefaultRequirementBuilder("test.namespace", "versioned");
+        reqbuilder.getAttributes().put("version", "[1.3,2.0)");
+        Assert.assertFalse(policy.match(cap, reqbuilder.getRequirement()));
+
+        reqbuilder = new DefaultRequirementBuilder("test.namespace", "other");
+        Assert.assertFalse(policy.match(cap, reqbuilder.getRequirement()));
+    }
+
+    @Test
+    public void testRemoveResource() throws Exception {
+        store.removeResource(resA11.getIdentity());
+        Set<Capability> providers = findProviders(new IdentityRequirementBuilder("resA", new VersionRange("[1.0,2.0)")));
+        Assert.assertEquals(1, providers.size());
+        Assert.assertTrue(providers.contains(resA10.getIdentityCapability()));
+
+        store.removeResource(resB10.getIdentity());
+        providers = findProviders(new IdentityRequirementBuilder("resB", new VersionRange("[1.0,2.0)")));
+        Assert.assertEquals(0, providers.size());
+    }
+
+    @Test
+    public void testResourceOrder() throws Exception {
+        store.removeResource(resA11.getIdentity());
+        Resource resC10 = addResource("resC", "1.0.0");
+        store.addResource(resA11);
+
+        List<Resource> resources = new ArrayList<Resource>();
+        Iterator<Resource> itres = store.getResources();
+        while (itres.hasNext()) {
+            resources.add(itres.next());
+        }
+        Assert.assertEquals(Arrays.asList(resA10, resA20, resB10, resC10, resA11), resources);
+    }
+
+    @Test
+    public void testLargeStore() throws Exception {
+        final int count = 5000;
+        ResourceStore store = new DefaultResourceStore("largeStore", new DefaultMatchPolicy("marker"));
+        for (int i = 0; i < count; i++) {
+            store.addResource(markerResource("res" + i, "m" + i));
+        }
+        for (int i = 0; i < count; i += 3) {
+            Assert.assertNotNull(store.removeResource(ResourceIdentity.create("res" + i, Version.emptyVersion)));
+        }
+        for (int i = 0; i < count; i++) {
+            int expected = i % 3 == 0 ? 0 : 1;
+            Requirement req = new IdentityRequirementBuilder("res" + i, new VersionRange("[0.0,1.0)")).getRequirement();
+            Assert.assertEquals("res" + i, expected, store.findProviders(req).size());
+            RequirementBuilder builder = new DefaultRequirementBuilder("test.namespace", "shared");
+            builder.getAttributes().put("marker", "m" + i);
+            Assert.assertEquals("m" + i, expected, store.findProviders(builder.getRequirement()).size());
+        }
+        RequirementBuilder builder = new DefaultRequirementBuilder("test.namespace", "shared");
+        Assert.assertEquals(count - (count + 2) / 3, store.findProviders(builder.getRequirement()).size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int writers = 2;
+        final int readers = 4;
+        final int count = 200;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < writers; t++) {
+            final String prefix = "w" + t + "-";
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        startSignal.await();
+                        for (int i = 0; i < count; i++) {
+                            addResource(prefix + i, "1.0.0");
+                        }
+                        for (int i = 1; i < count; i += 2) {
+                            Assert.assertNotNull(store.removeResource(ResourceIdentity.create(prefix + i, "1.0.0")));
+                        }
+                    } catch (Throwable th) {
+                        failure.compareAndSet(null, th);
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            });
+        }
+        for (int t = 0; t < readers; t++) {
+            final int seed = t;
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        startSignal.await();
+                        int i = seed;
+                        while (writersDone.getCount() > 0 && failure.get() == null) {
+                            Set<ResourceIdentity> seen = new HashSet<ResourceIdentity>();
+                            Iterator<Resource> itres = store.getResources();
+                            while (itres.hasNext()) {
+                                Assert.assertTrue(seen.add(itres.next().getIdentity()));
+                            }
+                            String symbolicName = "w" + (i % writers) + "-" + (i % count);
+                            for (Capability cap : findProviders(new IdentityRequirementBuilder(symbolicName, new VersionRange("[1.0,2.0)")))) {
+                                Assert.assertEquals(symbolicName, cap.getResource().getIdentity().getSymbolicName());
+                            }
+                            i++;
+                        }
+                    } catch (Throwable th) {
+                        failure.compareAndSet(null, th);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        for (int t = 0; t < writers; t++) {
+            for (int i = 0; i < count; i++) {
+                String symbolicName = "w" + t + "-" + i;
+                Set<Capability> providers = findProviders(new IdentityRequirementBuilder(symbolicName, new VersionRange("[1.0,2.0)")));
+                Assert.assertEquals(symbolicName, i % 2 == 0 ? 1 : 0, providers.size());
+            }
+        }
+    }
+
+    private Resource addResource(String symbolicName, String version) {
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability(symbolicName, new Version(version));
+        return store.addResource(builder.getResource());
+    }
+
+    private Resource markerResource(String symbolicName, String marker) {
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability(symbolicName, Version.emptyVersion);
+        builder.addCapability("test.namespace", "shared").getAttributes().put("marker", marker);
+        return builder.getResource();
+    }
+
+    private Set<Capability> findProviders(RequirementBuilder builder) {
+        Requirement req = builder.getRequirement();
+        return store.findProviders(req);
+    }
+}
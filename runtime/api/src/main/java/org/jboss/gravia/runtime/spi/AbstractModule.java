@@ -214,8 +214,12 @@ public abstract class AbstractModule implements Module, Attachable {
 
     public void addServiceInUse(ServiceReference<?> serviceState) {
         LOGGER.trace("Add service in use {} to: {}", serviceState, this);
-        usedServices.putIfAbsent(serviceState, new AtomicInteger());
         AtomicInteger count = usedServices.get(serviceState);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = usedServices.putIfAbsent(serviceState, newCount);
+            count = count != null ? count : newCount;
+        }
         count.incrementAndGet();
     }
 
@@ -57,6 +57,11 @@ public abstract class AbstractModuleContext implements ModuleContext {
 
     @Override
     public Filter createFilter(String filter) {
+        AbstractRuntime runtime = module instanceof AbstractModule ? ((AbstractModule) module).getRuntime() : null;
+        if (runtime != null) {
+            RuntimeEventsManager eventsManager = runtime.adapt(RuntimeEventsManager.class);
+            return eventsManager.getFilterCache().createFilter(filter);
+        }
         return FilterFactory.createFilter(filter);
     }
 
@@ -31,6 +31,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.jboss.gravia.Constants;
 import org.jboss.gravia.resource.Attachable;
 import org.jboss.gravia.resource.Resource;
 import org.jboss.gravia.resource.ResourceIdentity;
@@ -60,11 +61,27 @@ public abstract class AbstractRuntime implements Runtime {
     private final AtomicBoolean shutdown = new AtomicBoolean();
     private final RuntimeEventsManager runtimeEvents;
     private final PropertiesProvider properties;
+    private final RuntimeMetrics metrics;
+    private final RuntimeMetrics createdMetrics;
 
     protected AbstractRuntime(PropertiesProvider propertiesProvider) {
         IllegalArgumentAssertion.assertNotNull(propertiesProvider, "propertiesProvider");
-        runtimeEvents = new RuntimeEventsManager();
+        runtimeEvents = new RuntimeEventsManager(propertiesProvider);
         properties = propertiesProvider;
+        createdMetrics = installMetrics(propertiesProvider);
+        metrics = RuntimeMetricsLocator.getMetrics();
+    }
+
+    // Install the default metrics if enabled, unless metrics have been installed already
+    // Returns the metrics created by this runtime, or null
+    private static RuntimeMetrics installMetrics(PropertiesProvider propertiesProvider) {
+        Object enabled = propertiesProvider.getProperty(Constants.RUNTIME_METRICS_ENABLED);
+        if (enabled != null && Boolean.parseBoolean(enabled.toString().trim()) && !RuntimeMetricsLocator.getMetrics().isEnabled()) {
+            RuntimeMetrics result = new DefaultRuntimeMetrics();
+            RuntimeMetricsLocator.setMetrics(result);
+            return result;
+        }
+        return null;
     }
 
     protected abstract AbstractModule createModule(ClassLoader classLoader, Resource resource, Dictionary<String, String> headers, Attachable context);
@@ -93,8 +110,16 @@ public abstract class AbstractRuntime implements Runtime {
         A result = null;
         if (type.isAssignableFrom(RuntimeEventsManager.class)) {
             result = (A) runtimeEvents;
+        } else if (type.isAssignableFrom(FilterCacheMBean.class)) {
+            result = (A) runtimeEvents.getFilterCache();
+        } else if (type.isAssignableFrom(ModuleEventDispatcherMBean.class)) {
+            result = (A) runtimeEvents.getModuleEventDispatcher();
         } else if (type.isAssignableFrom(ModuleContext.class)) {
             result = (A) getModuleContext();
+        } else if (type.isAssignableFrom(RuntimeMetrics.class)) {
+            result = (A) metrics;
+        } else if (type.isAssignableFrom(RuntimeMetricsMBean.class)) {
+            result = metrics instanceof RuntimeMetricsMBean ? (A) metrics : null;
         }
         return result;
     }
@@ -179,6 +204,7 @@ public abstract class AbstractRuntime implements Runtime {
     public final Module installModule(ClassLoader classLoader, Resource resource, Dictionary<String, String> headers, Attachable context) throws ModuleException {
         assertNoShutdown();
 
+        long start = metrics.startTimer();
         context = context != null ? context : new AttachableSupport();
         AbstractModule module = createModule(classLoader, resource, headers, context);
 
@@ -200,6 +226,7 @@ public abstract class AbstractRuntime implements Runtime {
         // #2 A module event of type {@link ModuleEvent#INSTALLED} is fired.
         runtimeEvents.fireModuleEvent(module, ModuleEvent.INSTALLED);
 
+        metrics.recordLatency(RuntimeMetrics.MODULE_INSTALL, module, start);
         LOGGER.info("Installed: {}", module);
         return module;
     }
@@ -239,11 +266,18 @@ public abstract class AbstractRuntime implements Runtime {
     }
 
     protected void doShutdown() {
-        for (Module module : getModules()) {
+        // Uninstall the modules in reverse dependency order
+        ModuleScheduler scheduler = new ModuleScheduler(getModules());
+        for (Module module : scheduler.getStopOrder()) {
             if (!module.getIdentity().equals(systemIdentity)) {
                 module.uninstall();
             }
         }
+        runtimeEvents.shutdown();
+        // Metrics that were installed by somebody else outlive this runtime
+        if (createdMetrics != null) {
+            RuntimeMetricsLocator.releaseMetrics(createdMetrics);
+        }
     }
 
     class ShutdownThread extends Thread {
@@ -0,0 +1,302 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * The default {@link RuntimeMetrics}.
+ *
+ * Latencies are recorded in histograms with power of two buckets in microseconds.
+ * The first operations that have a subject are recorded in a timeline, which
+ * therefore covers the startup of the runtime.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class DefaultRuntimeMetrics implements RuntimeMetrics, RuntimeMetricsMBean {
+
+    static final int DEFAULT_TIMELINE_CAPACITY = 4096;
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    private final int timelineCapacity;
+    private volatile Timeline timeline;
+
+    DefaultRuntimeMetrics() {
+        this(DEFAULT_TIMELINE_CAPACITY);
+    }
+
+    DefaultRuntimeMetrics(int timelineCapacity) {
+        IllegalArgumentAssertion.assertTrue(timelineCapacity >= 0, "timelineCapacity must not be negative");
+        this.timelineCapacity = timelineCapacity;
+        this.timeline = new Timeline(timelineCapacity);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long startTimer() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void recordLatency(String name, Object subject, long startTime) {
+        long endTime = System.nanoTime();
+        getHistogram(name).record(endTime - startTime);
+        if (subject != null) {
+            // Only convert the subject if the timeline still has room
+            Timeline current = timeline;
+            int slot = current.nextSlot();
+            if (slot >= 0) {
+                current.set(slot, new TimelineEvent(name, subject.toString(), Thread.currentThread().getName(), startTime, endTime));
+            }
+        }
+    }
+
+    @Override
+    public void incrementCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(name, newCounter);
+            counter = counter != null ? counter : newCounter;
+        }
+        counter.incrementAndGet();
+    }
+
+    private Histogram getHistogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = histograms.putIfAbsent(name, newHistogram);
+            histogram = histogram != null ? histogram : newHistogram;
+        }
+        return histogram;
+    }
+
+    @Override
+    public String[] getLatencyNames() {
+        Set<String> names = histograms.keySet();
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public long getLatencyCount(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram.count.get() : 0;
+    }
+
+    @Override
+    public double getMeanLatency(String name) {
+        Histogram histogram = histograms.get(name);
+        long count = histogram != null ? histogram.count.get() : 0;
+        return count > 0 ? toMillis(histogram.total.get()) / count : 0.0;
+    }
+
+    @Override
+    public double getMaxLatency(String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? toMillis(histogram.max.get()) : 0.0;
+    }
+
+    @Override
+    public double getLatencyPercentile(String name, double percentile) {
+        IllegalArgumentAssertion.assertTrue(percentile >= 0 && percentile <= 100, "percentile must be in range 0-100");
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram.percentile(percentile) : 0.0;
+    }
+
+    @Override
+    public String[] getCounterNames() {
+        Set<String> names = counters.keySet();
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public long getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    @Override
+    public String getStartupTimeline() {
+        return timeline.toJSON();
+    }
+
+    @Override
+    public void reset() {
+        histograms.clear();
+        counters.clear();
+        timeline = new Timeline(timelineCapacity);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static final class Histogram {
+
+        // Bucket n holds latencies below 2^n microseconds
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long currmax = max.get();
+            while (nanos > currmax && !max.compareAndSet(currmax, nanos)) {
+                currmax = max.get();
+            }
+        }
+
+        double percentile(double percentile) {
+            long count = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                count += snapshot[i];
+            }
+            if (count == 0)
+                return 0.0;
+
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && snapshot[i] > 0) {
+                    double upper = (1L << i) / 1000.0;
+                    return Math.min(upper, toMillis(max.get()));
+                }
+            }
+            return toMillis(max.get());
+        }
+    }
+
+    static final class Timeline {
+
+        private final long startNanos = System.nanoTime();
+        private final long startMillis = System.currentTimeMillis();
+        private final AtomicReferenceArray<TimelineEvent> events;
+        private final AtomicInteger index = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Timeline(int capacity) {
+            events = new AtomicReferenceArray<TimelineEvent>(capacity);
+        }
+
+        int nextSlot() {
+            int slot = index.get() < events.length() ? index.getAndIncrement() : events.length();
+            if (slot < events.length()) {
+                return slot;
+            }
+            dropped.incrementAndGet();
+            return -1;
+        }
+
+        void set(int slot, TimelineEvent event) {
+            events.set(slot, event);
+        }
+
+        String toJSON() {
+            int size = Math.min(index.get(), events.length());
+            StringBuilder builder = new StringBuilder();
+            builder.append("{\"startTime\":").append(startMillis);
+            builder.append(",\"dropped\":").append(dropped.get());
+            builder.append(",\"events\":[");
+            boolean first = true;
+            for (int i = 0; i < size; i++) {
+                TimelineEvent event = events.get(i);
+                if (event != null) {
+                    builder.append(first ? "" : ",");
+                    event.appendJSON(builder, startNanos);
+                    first = false;
+                }
+            }
+            return builder.append("]}").toString();
+        }
+    }
+
+    static final class TimelineEvent {
+
+        private final String name;
+        private final String subject;
+        private final String thread;
+        private final long startTime;
+        private final long endTime;
+
+        TimelineEvent(String name, String subject, String thread, long startTime, long endTime) {
+            this.name = name;
+            this.subject = subject;
+            this.thread = thread;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        void appendJSON(StringBuilder builder, long timelineStart) {
+            builder.append("{\"name\":");
+            appendString(builder, name);
+            builder.append(",\"subject\":");
+            appendString(builder, subject);
+            builder.append(",\"thread\":");
+            appendString(builder, thread);
+            builder.append(",\"startMicros\":").append(TimeUnit.NANOSECONDS.toMicros(startTime - timelineStart));
+            builder.append(",\"durationMicros\":").append(TimeUnit.NANOSECONDS.toMicros(endTime - startTime));
+            builder.append("}");
+        }
+
+        private static void appendString(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"' || ch == '\\') {
+                    builder.append('\\').append(ch);
+                } else if (ch < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    builder.append(ch);
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
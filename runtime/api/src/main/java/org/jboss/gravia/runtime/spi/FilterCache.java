@@ -0,0 +1,191 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.gravia.runtime.Filter;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * A bounded cache of parsed {@link Filter} instances.
+ *
+ * A filter is cached under the string it was created from and under its normalized
+ * string representation. Filter strings that only differ in insignificant white space
+ * therefore share the same {@link Filter} instance.
+ *
+ * When the cache grows beyond its maximum size, the least recently used entries are
+ * evicted. Recency is tracked with a logical clock, so that a lookup never takes a lock.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class FilterCache implements FilterCacheMBean {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final int maximumSize;
+    private final ConcurrentMap<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private static final class CacheEntry {
+        private final Filter filter;
+        private volatile long lastAccess;
+
+        CacheEntry(Filter filter, long lastAccess) {
+            this.filter = filter;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final Comparator<Entry<String, CacheEntry>> LEAST_RECENTLY_USED = new Comparator<Entry<String, CacheEntry>>() {
+        @Override
+        public int compare(Entry<String, CacheEntry> e1, Entry<String, CacheEntry> e2) {
+            long t1 = e1.getValue().lastAccess;
+            long t2 = e2.getValue().lastAccess;
+            return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+        }
+    };
+
+    /**
+     * Create a cache that holds up to the given number of filter strings.
+     * A maximum size of zero disables caching.
+     */
+    FilterCache(int maximumSize) {
+        IllegalArgumentAssertion.assertTrue(maximumSize >= 0, "Invalid maximum size: " + maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Get the cached filter for the given string, or parse and cache it.
+     */
+    Filter createFilter(String filterstr) {
+        if (maximumSize == 0) {
+            return FilterFactory.createFilter(filterstr);
+        }
+
+        CacheEntry entry = entries.get(filterstr);
+        if (entry != null) {
+            entry.lastAccess = clock.incrementAndGet();
+            hitCount.incrementAndGet();
+            return entry.filter;
+        }
+
+        missCount.incrementAndGet();
+        Filter filter = FilterFactory.createFilter(filterstr);
+
+        // Intern the filter by its normalized representation
+        String normalized = filter.toString();
+        entry = new CacheEntry(filter, clock.incrementAndGet());
+        CacheEntry interned = entries.putIfAbsent(normalized, entry);
+        if (interned != null) {
+            interned.lastAccess = entry.lastAccess;
+            entry = interned;
+        }
+        if (!normalized.equals(filterstr)) {
+            CacheEntry existing = entries.putIfAbsent(filterstr, entry);
+            entry = existing != null ? existing : entry;
+        }
+
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+        return entry.filter;
+    }
+
+    /**
+     * Remove the least recently used entries, so that the cache shrinks to 90% of its maximum size.
+     * Only one thread evicts at a time, other threads that exceed the limit do not wait.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            int excess = entries.size() - (maximumSize - maximumSize / 10);
+            if (excess <= 0)
+                return;
+            List<Entry<String, CacheEntry>> snapshot = new ArrayList<Entry<String, CacheEntry>>(entries.entrySet());
+            Collections.sort(snapshot, LEAST_RECENTLY_USED);
+            for (int i = 0; i < excess && i < snapshot.size(); i++) {
+                Entry<String, CacheEntry> aux = snapshot.get(i);
+                if (entries.remove(aux.getKey(), aux.getValue())) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+}
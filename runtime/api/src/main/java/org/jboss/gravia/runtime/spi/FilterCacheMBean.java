@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import javax.management.ObjectName;
+
+import org.jboss.gravia.runtime.Filter;
+import org.jboss.gravia.utils.ObjectNameFactory;
+
+/**
+ * The management view of the cache of parsed {@link Filter} instances.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface FilterCacheMBean {
+
+    ObjectName OBJECT_NAME = ObjectNameFactory.create("org.jboss.gravia:type=FilterCache");
+
+    /**
+     * Get the maximum number of filter strings in the cache
+     */
+    int getMaximumSize();
+
+    /**
+     * Get the current number of filter strings in the cache
+     */
+    int getSize();
+
+    /**
+     * Get the number of lookups that found a cached filter
+     */
+    long getHitCount();
+
+    /**
+     * Get the number of lookups that had to parse the filter string
+     */
+    long getMissCount();
+
+    /**
+     * Get the ratio of hits to lookups, or zero if there was no lookup yet
+     */
+    double getHitRate();
+
+    /**
+     * Get the number of filter strings that were evicted from the cache
+     */
+    long getEvictionCount();
+
+    /**
+     * Remove all filters from the cache and reset the statistics
+     */
+    void clear();
+}
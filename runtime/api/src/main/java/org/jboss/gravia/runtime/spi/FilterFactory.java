@@ -28,7 +28,9 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.List;
@@ -202,7 +204,7 @@ final class FilterFactory {
      * A filter component that references a key having an unrecognizable data
      * type will evaluate to {@code false} .
      */
-    static private final class FilterImpl implements Filter {
+    static private final class FilterImpl implements IndexableFilter {
         /* filter operators */
         private static final int	EQUAL		= 1;
         private static final int	APPROX		= 2;
@@ -218,8 +220,14 @@ final class FilterFactory {
         private final int			op;
         /** filter attribute or null if operation AND, OR or NOT */
         private final String		attr;
+        /** the normalized attribute or null if operation AND, OR or NOT */
+        private final String		key;
         /** filter operands */
         private final Object		value;
+        /** the string operand with its conversions or null if the operation has none */
+        private final Literal		literal;
+        /** the operands of AND and OR in evaluation order */
+        private final FilterImpl[]	evaluation;
 
         /* normalized filter string for Filter object */
         private transient String	filterString;
@@ -244,10 +252,50 @@ final class FilterFactory {
         FilterImpl(int operation, String attr, Object value) {
             this.op = operation;
             this.attr = attr;
+            this.key = (attr != null ? ServiceProperties.normalize(attr) : null);
             this.value = value;
+            this.literal = (value instanceof String ? new Literal((String) value) : null);
+            this.evaluation = (operation == AND || operation == OR ? evaluationOrder((FilterImpl[]) value) : null);
             filterString = null;
         }
 
+        /**
+         * Sort the operands of AND and OR such that the operands which are
+         * most likely to decide the result are evaluated first. Equality on
+         * an attribute other than objectClass is evaluated before anything
+         * else, presence last.
+         */
+        private static FilterImpl[] evaluationOrder(FilterImpl[] filters) {
+            FilterImpl[] result = filters.clone();
+            Arrays.sort(result, new Comparator<FilterImpl>() {
+                @Override
+                public int compare(FilterImpl f1, FilterImpl f2) {
+                    return evaluationRank(f1) - evaluationRank(f2);
+                }
+            });
+            return result;
+        }
+
+        private static int evaluationRank(FilterImpl filter) {
+            switch (filter.op) {
+                case EQUAL :
+                    return org.jboss.gravia.Constants.OBJECTCLASS.equalsIgnoreCase(filter.attr) ? 1 : 0;
+                case APPROX :
+                case SUBSTRING :
+                    return 2;
+                case GREATER :
+                case LESS :
+                    return 3;
+                case NOT :
+                    return 4;
+                case AND :
+                case OR :
+                    return 5;
+                default :
+                    return 6;
+            }
+        }
+
         /**
          * Filter using a service's properties.
          * <p>
@@ -262,7 +310,96 @@ final class FilterFactory {
          */
         @Override
         public boolean match(ServiceReference<?> reference) {
-            return matches(new ServiceReferenceMap(reference));
+            if (reference instanceof ServiceProperties.Provider) {
+                return match(((ServiceProperties.Provider) reference).getServiceProperties());
+            }
+            switch (op) {
+                case AND : {
+                    for (FilterImpl f : evaluation) {
+                        if (!f.match(reference)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                case OR : {
+                    for (FilterImpl f : evaluation) {
+                        if (f.match(reference)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                case NOT : {
+                    FilterImpl filter = (FilterImpl) value;
+                    return !filter.match(reference);
+                }
+
+                case SUBSTRING :
+                case EQUAL :
+                case GREATER :
+                case LESS :
+                case APPROX : {
+                    Object prop = (reference == null) ? null : reference.getProperty(attr);
+                    return compare(op, prop, value);
+                }
+
+                case PRESENT : {
+                    Object prop = (reference == null) ? null : reference.getProperty(attr);
+                    return prop != null;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Filter using a snapshot of service properties. All operands are
+         * evaluated against the same snapshot with the normalized attribute.
+         */
+        private boolean match(ServiceProperties properties) {
+            switch (op) {
+                case AND : {
+                    for (FilterImpl f : evaluation) {
+                        if (!f.match(properties)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                case OR : {
+                    for (FilterImpl f : evaluation) {
+                        if (f.match(properties)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                case NOT : {
+                    FilterImpl filter = (FilterImpl) value;
+                    return !filter.match(properties);
+                }
+
+                case SUBSTRING :
+                case EQUAL :
+                case GREATER :
+                case LESS :
+                case APPROX : {
+                    Object prop = properties.getNormalized(key);
+                    return compare(op, prop, value);
+                }
+
+                case PRESENT : {
+                    Object prop = properties.getNormalized(key);
+                    return prop != null;
+                }
+            }
+
+            return false;
         }
 
         /**
@@ -298,7 +435,7 @@ final class FilterFactory {
         public boolean matchCase(Dictionary<String, ?> dictionary) {
             switch (op) {
                 case AND : {
-                    FilterImpl[] filters = (FilterImpl[]) value;
+                    FilterImpl[] filters = evaluation;
                     for (FilterImpl f : filters) {
                         if (!f.matchCase(dictionary)) {
                             return false;
@@ -308,7 +445,7 @@ final class FilterFactory {
                 }
 
                 case OR : {
-                    FilterImpl[] filters = (FilterImpl[]) value;
+                    FilterImpl[] filters = evaluation;
                     for (FilterImpl f : filters) {
                         if (f.matchCase(dictionary)) {
                             return true;
@@ -356,7 +493,7 @@ final class FilterFactory {
         public boolean matches(Map<String, ?> map) {
             switch (op) {
                 case AND : {
-                    FilterImpl[] filters = (FilterImpl[]) value;
+                    FilterImpl[] filters = evaluation;
                     for (FilterImpl f : filters) {
                         if (!f.matches(map)) {
                             return false;
@@ -366,7 +503,7 @@ final class FilterFactory {
                 }
 
                 case OR : {
-                    FilterImpl[] filters = (FilterImpl[]) value;
+                    FilterImpl[] filters = evaluation;
                     for (FilterImpl f : filters) {
                         if (f.matches(map)) {
                             return true;
@@ -398,6 +535,36 @@ final class FilterFactory {
             return false;
         }
 
+        /**
+         * Returns the value that the given attribute must be equal to for this
+         * filter to match. Only equality terms that are not nested in an OR or
+         * NOT are considered.
+         *
+         * @param key The attribute name, which is not case sensitive.
+         * @return The required value or {@code null}.
+         */
+        @Override
+        public String getRequiredValue(String key) {
+            switch (op) {
+                case EQUAL : {
+                    return attr.equalsIgnoreCase(key) && value instanceof String ? (String) value : null;
+                }
+
+                case AND : {
+                    FilterImpl[] filters = (FilterImpl[]) value;
+                    for (FilterImpl f : filters) {
+                        String result = f.getRequiredValue(key);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                    return null;
+                }
+            }
+
+            return null;
+        }
+
         /**
          * Returns this {@code Filter}'s filter string.
          * <p>
@@ -598,9 +765,19 @@ final class FilterFactory {
             if (value1 == null) {
                 return false;
             }
+            // The most common property types first
             if (value1 instanceof String) {
                 return compare_String(operation, (String) value1, value2);
             }
+            if (value1 instanceof String[]) {
+                return compare_ObjectArray(operation, (Object[]) value1, value2);
+            }
+            if (value1 instanceof Integer) {
+                return compare_Integer(operation, ((Integer) value1).intValue(), value2);
+            }
+            if (value1 instanceof Long) {
+                return compare_Long(operation, ((Long) value1).longValue(), value2);
+            }
 
             Class<?> clazz = value1.getClass();
             if (clazz.isArray()) {
@@ -613,12 +790,6 @@ final class FilterFactory {
             if (value1 instanceof Collection<?>) {
                 return compare_Collection(operation, (Collection<?>) value1, value2);
             }
-            if (value1 instanceof Integer) {
-                return compare_Integer(operation, ((Integer) value1).intValue(), value2);
-            }
-            if (value1 instanceof Long) {
-                return compare_Long(operation, ((Long) value1).longValue(), value2);
-            }
             if (value1 instanceof Byte) {
                 return compare_Byte(operation, ((Byte) value1).byteValue(), value2);
             }
@@ -791,7 +962,7 @@ final class FilterFactory {
                 }
                 case APPROX : {
                     string = approxString(string);
-                    String string2 = approxString((String) value2);
+                    String string2 = literal.approx;
 
                     return string.equalsIgnoreCase(string2);
                 }
@@ -809,12 +980,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            int intval2;
-            try {
-                intval2 = Integer.parseInt(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Integer converted = (Integer) literal.convert(Integer.class);
+            if (converted == null) {
                 return false;
             }
+            int intval2 = converted.intValue();
             switch (operation) {
                 case APPROX :
                 case EQUAL : {
@@ -834,12 +1004,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            long longval2;
-            try {
-                longval2 = Long.parseLong(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Long converted = (Long) literal.convert(Long.class);
+            if (converted == null) {
                 return false;
             }
+            long longval2 = converted.longValue();
 
             switch (operation) {
                 case APPROX :
@@ -860,12 +1029,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            byte byteval2;
-            try {
-                byteval2 = Byte.parseByte(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Byte converted = (Byte) literal.convert(Byte.class);
+            if (converted == null) {
                 return false;
             }
+            byte byteval2 = converted.byteValue();
 
             switch (operation) {
                 case APPROX :
@@ -886,12 +1054,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            short shortval2;
-            try {
-                shortval2 = Short.parseShort(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Short converted = (Short) literal.convert(Short.class);
+            if (converted == null) {
                 return false;
             }
+            short shortval2 = converted.shortValue();
 
             switch (operation) {
                 case APPROX :
@@ -912,12 +1079,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            char charval2;
-            try {
-                charval2 = ((String) value2).charAt(0);
-            } catch (IndexOutOfBoundsException e) {
+            Character converted = (Character) literal.convert(Character.class);
+            if (converted == null) {
                 return false;
             }
+            char charval2 = converted.charValue();
 
             switch (operation) {
                 case EQUAL : {
@@ -940,7 +1106,7 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            boolean boolval2 = Boolean.valueOf(((String) value2).trim()).booleanValue();
+            boolean boolval2 = ((Boolean) literal.convert(Boolean.class)).booleanValue();
             switch (operation) {
                 case APPROX :
                 case EQUAL :
@@ -956,12 +1122,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            float floatval2;
-            try {
-                floatval2 = Float.parseFloat(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Float converted = (Float) literal.convert(Float.class);
+            if (converted == null) {
                 return false;
             }
+            float floatval2 = converted.floatValue();
 
             switch (operation) {
                 case APPROX :
@@ -982,12 +1147,11 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            double doubleval2;
-            try {
-                doubleval2 = Double.parseDouble(((String) value2).trim());
-            } catch (IllegalArgumentException e) {
+            Double converted = (Double) literal.convert(Double.class);
+            if (converted == null) {
                 return false;
             }
+            double doubleval2 = converted.doubleValue();
 
             switch (operation) {
                 case APPROX :
@@ -1056,7 +1220,7 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            value2 = valueOf(value1.getClass(), (String) value2);
+            value2 = literal.convert(value1.getClass());
             if (value2 == null) {
                 return false;
             }
@@ -1084,7 +1248,7 @@ final class FilterFactory {
             if (operation == SUBSTRING) {
                 return false;
             }
-            value2 = valueOf(value1.getClass(), (String) value2);
+            value2 = literal.convert(value1.getClass());
             if (value2 == null) {
                 return false;
             }
@@ -1130,6 +1294,81 @@ final class FilterFactory {
             return changed ? new String(output, 0, cursor) : input;
         }
 
+        /**
+         * The string operand of a filter item. Conversions of the operand to
+         * the type of a property value are computed once and cached for the
+         * most recently used type.
+         */
+        static private final class Literal {
+            private static final Object	INVALID	= new Object();
+
+            final String				string;
+            final String				approx;
+            private volatile Conversion	conversion;
+
+            Literal(String string) {
+                this.string = string;
+                this.approx = approxString(string);
+            }
+
+            /**
+             * Returns the operand converted to the given type or {@code null}
+             * if the operand cannot be converted.
+             */
+            Object convert(Class<?> target) {
+                Conversion conv = conversion;
+                if (conv == null || conv.target != target) {
+                    conv = new Conversion(target, convertInternal(target));
+                    conversion = conv;
+                }
+                return conv.value != INVALID ? conv.value : null;
+            }
+
+            private Object convertInternal(Class<?> target) {
+                String trimmed = string.trim();
+                try {
+                    if (target == Integer.class) {
+                        return Integer.valueOf(Integer.parseInt(trimmed));
+                    }
+                    if (target == Long.class) {
+                        return Long.valueOf(Long.parseLong(trimmed));
+                    }
+                    if (target == Byte.class) {
+                        return Byte.valueOf(Byte.parseByte(trimmed));
+                    }
+                    if (target == Short.class) {
+                        return Short.valueOf(Short.parseShort(trimmed));
+                    }
+                    if (target == Float.class) {
+                        return Float.valueOf(Float.parseFloat(trimmed));
+                    }
+                    if (target == Double.class) {
+                        return Double.valueOf(Double.parseDouble(trimmed));
+                    }
+                } catch (IllegalArgumentException e) {
+                    return INVALID;
+                }
+                if (target == Boolean.class) {
+                    return Boolean.valueOf(trimmed);
+                }
+                if (target == Character.class) {
+                    return string.length() > 0 ? Character.valueOf(string.charAt(0)) : INVALID;
+                }
+                Object result = valueOf(target, string);
+                return result != null ? result : INVALID;
+            }
+        }
+
+        static private final class Conversion {
+            final Class<?>	target;
+            final Object	value;
+
+            Conversion(Class<?> target, Object value) {
+                this.target = target;
+                this.value = value;
+            }
+        }
+
         /**
          * Parser class for OSGi filter strings. This class parses the complete
          * filter string and builds a tree of Filter objects rooted at the
@@ -1503,33 +1742,6 @@ final class FilterFactory {
         }
     }
 
-    /**
-     * This Map is used for key lookup from a ServiceReference during filter
-     * evaluation. This Map implementation only supports the get operation using
-     * a String key as no other operations are used by the Filter
-     * implementation.
-     */
-    static private final class ServiceReferenceMap extends AbstractMap<String, Object> implements Map<String, Object> {
-        private final ServiceReference<?>	reference;
-
-        ServiceReferenceMap(ServiceReference<?> reference) {
-            this.reference = reference;
-        }
-
-        @Override
-        public Object get(Object key) {
-            if (reference == null) {
-                return null;
-            }
-            return reference.getProperty((String) key);
-        }
-
-        @Override
-        public Set<java.util.Map.Entry<String, Object>> entrySet() {
-            throw new UnsupportedOperationException();
-        }
-    }
-
     static private final class SetAccessibleAction implements PrivilegedAction<Object> {
         private final AccessibleObject	accessible;
 
@@ -0,0 +1,42 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import org.jboss.gravia.runtime.Filter;
+
+/**
+ * A {@link Filter} that can tell which value a property must have for the filter to match.
+ *
+ * This allows a service registry to answer a lookup from an index instead of
+ * matching the filter against every registered service.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface IndexableFilter extends Filter {
+
+    /**
+     * Get the string value the given property must be equal to for this filter to match.
+     *
+     * @param key The property key, which is not case sensitive
+     * @return The required value or null if the filter does not require a single value for the property
+     */
+    String getRequiredValue(String key);
+}
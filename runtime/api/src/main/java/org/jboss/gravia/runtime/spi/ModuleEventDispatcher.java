@@ -0,0 +1,226 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import static org.jboss.gravia.runtime.spi.RuntimeLogger.LOGGER;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * Delivers asynchronous events on a bounded number of threads.
+ *
+ * Every listener has its own {@link EventQueue}. The events of a queue are delivered
+ * in the order they were dispatched and never concurrently. A pool thread delivers
+ * up to {@link #BATCH_SIZE} consecutive events of a queue before it moves on.
+ *
+ * The number of pending events is limited. A thread that dispatches an event while
+ * the limit is reached blocks, unless it is a dispatcher thread itself.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class ModuleEventDispatcher implements ModuleEventDispatcherMBean {
+
+    static final int DEFAULT_THREADS = 2;
+    static final int DEFAULT_CAPACITY = 10000;
+    static final int BATCH_SIZE = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore capacity;
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+    private final AtomicLong deliveredBatches = new AtomicLong();
+    private final AtomicLong blockedEvents = new AtomicLong();
+    private final AtomicLong overflowEvents = new AtomicLong();
+
+    /**
+     * The events of a single listener.
+     */
+    static final class EventQueue {
+        private final Queue<Event> events = new ConcurrentLinkedQueue<Event>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class Event {
+        private final Runnable delivery;
+        private final boolean permit;
+
+        Event(Runnable delivery, boolean permit) {
+            this.delivery = delivery;
+            this.permit = permit;
+        }
+    }
+
+    private static final class DispatcherThread extends Thread {
+        DispatcherThread(Runnable run, String name) {
+            super(run, name);
+        }
+    }
+
+    ModuleEventDispatcher(final String threadName, int threads, int capacity) {
+        IllegalArgumentAssertion.assertTrue(threads > 0, "Invalid number of threads: " + threads);
+        IllegalArgumentAssertion.assertTrue(capacity > 0, "Invalid capacity: " + capacity);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable run) {
+                return new DispatcherThread(run, threadName + "-" + count.incrementAndGet());
+            }
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * Dispatch an event to the given queue.
+     */
+    void dispatch(EventQueue queue, Runnable delivery) {
+        boolean permit = acquirePermit();
+        pendingEvents.incrementAndGet();
+        queue.events.add(new Event(delivery, permit));
+        if (queue.scheduled.compareAndSet(false, true)) {
+            schedule(queue);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    @Override
+    public long getDeliveredEvents() {
+        return deliveredEvents.get();
+    }
+
+    @Override
+    public long getDeliveredBatches() {
+        return deliveredBatches.get();
+    }
+
+    @Override
+    public long getBlockedEvents() {
+        return blockedEvents.get();
+    }
+
+    @Override
+    public long getOverflowEvents() {
+        return overflowEvents.get();
+    }
+
+    private boolean acquirePermit() {
+        if (capacity.tryAcquire())
+            return true;
+
+        // A dispatcher thread must not wait for itself
+        if (Thread.currentThread() instanceof DispatcherThread) {
+            overflowEvents.incrementAndGet();
+            return false;
+        }
+
+        blockedEvents.incrementAndGet();
+        try {
+            capacity.acquire();
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            overflowEvents.incrementAndGet();
+            return false;
+        }
+    }
+
+    private void schedule(final EventQueue queue) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(queue);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // The dispatcher is shut down, discard the events
+            Event event;
+            while ((event = queue.events.poll()) != null) {
+                release(event);
+            }
+            queue.scheduled.set(false);
+        }
+    }
+
+    private void deliver(EventQueue queue) {
+        int count = 0;
+        Event event;
+        while (count < BATCH_SIZE && (event = queue.events.poll()) != null) {
+            try {
+                event.delivery.run();
+            } catch (Throwable th) {
+                LOGGER.warn("Error while delivering event", th);
+            } finally {
+                release(event);
+                deliveredEvents.incrementAndGet();
+            }
+            count++;
+        }
+        deliveredBatches.incrementAndGet();
+
+        // Schedule again for events that were added in the meantime
+        queue.scheduled.set(false);
+        if (!queue.events.isEmpty() && queue.scheduled.compareAndSet(false, true)) {
+            schedule(queue);
+        }
+    }
+
+    private void release(Event event) {
+        pendingEvents.decrementAndGet();
+        if (event.permit) {
+            capacity.release();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import javax.management.ObjectName;
+
+import org.jboss.gravia.utils.ObjectNameFactory;
+
+/**
+ * The management view of the dispatcher that delivers asynchronous module events.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface ModuleEventDispatcherMBean {
+
+    ObjectName OBJECT_NAME = ObjectNameFactory.create("org.jboss.gravia:type=ModuleEventDispatcher");
+
+    /**
+     * Get the maximum number of delivery threads
+     */
+    int getThreadCount();
+
+    /**
+     * Get the number of events that were dispatched but not yet delivered
+     */
+    int getPendingEvents();
+
+    /**
+     * Get the number of delivered events
+     */
+    long getDeliveredEvents();
+
+    /**
+     * Get the number of batches the events were delivered in
+     */
+    long getDeliveredBatches();
+
+    /**
+     * Get the number of events whose dispatcher had to wait for capacity
+     */
+    long getBlockedEvents();
+
+    /**
+     * Get the number of events that were accepted beyond the capacity
+     */
+    long getOverflowEvents();
+
+    /**
+     * True if the dispatcher no longer accepts events
+     */
+    boolean isShutdown();
+}
@@ -0,0 +1,330 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import static org.jboss.gravia.runtime.spi.RuntimeLogger.LOGGER;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.gravia.resource.Capability;
+import org.jboss.gravia.resource.DefaultResourceStore;
+import org.jboss.gravia.resource.MatchPolicy;
+import org.jboss.gravia.resource.Requirement;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceStore;
+import org.jboss.gravia.runtime.Module;
+import org.jboss.gravia.runtime.Wire;
+import org.jboss.gravia.runtime.Wiring;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * Orders a set of modules by their dependencies.
+ *
+ * A module depends on another module if the other module provides a required wire of its
+ * {@link Wiring}, or if a capability of the other module's resource matches one of its
+ * requirements. The capabilities are looked up in a {@link ResourceStore} index, so
+ * that ordering all installed modules on shutdown does not compare every pair of modules.
+ * Modules are started in topological order, independent modules may be
+ * started concurrently. Modules are stopped in reverse topological order.
+ *
+ * Dependency cycles are broken by installation order.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public final class ModuleScheduler {
+
+    private static final Comparator<Module> INSTALL_ORDER = new Comparator<Module>() {
+        @Override
+        public int compare(Module m1, Module m2) {
+            long id1 = m1.getModuleId();
+            long id2 = m2.getModuleId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
+    private final List<Module> startOrder;
+    private final Map<Module, List<Module>> dependencies = new HashMap<Module, List<Module>>();
+    private final Map<Module, List<Module>> dependents = new HashMap<Module, List<Module>>();
+
+    public ModuleScheduler(Collection<? extends Module> modules) {
+        IllegalArgumentAssertion.assertNotNull(modules, "modules");
+        List<Module> nodes = new ArrayList<Module>(modules);
+        Collections.sort(nodes, INSTALL_ORDER);
+
+        // Index the module capabilities, a module with a duplicate identity is matched one by one
+        ResourceStore store = new DefaultResourceStore("ModuleScheduler");
+        Map<Resource, Module> resourceModules = new HashMap<Resource, Module>();
+        List<Module> unindexed = new ArrayList<Module>();
+        for (Module module : nodes) {
+            Resource resource = module.adapt(Resource.class);
+            if (resource == null)
+                continue;
+            if (store.getResource(resource.getIdentity()) == null) {
+                store.addResource(resource);
+                resourceModules.put(resource, module);
+            } else {
+                unindexed.add(module);
+            }
+        }
+
+        Map<Module, Set<Module>> edges = new HashMap<Module, Set<Module>>();
+        for (Module module : nodes) {
+            edges.put(module, findDependencies(module, store, resourceModules, unindexed));
+        }
+        startOrder = Collections.unmodifiableList(topologicalOrder(nodes, edges));
+
+        // Only keep the edges that agree with the start order, which drops the edges of a cycle
+        Map<Module, Integer> positions = new HashMap<Module, Integer>();
+        for (Module module : startOrder) {
+            positions.put(module, positions.size());
+            dependencies.put(module, new ArrayList<Module>());
+            dependents.put(module, new ArrayList<Module>());
+        }
+        for (Module module : startOrder) {
+            for (Module dependency : edges.get(module)) {
+                if (positions.get(dependency) < positions.get(module)) {
+                    dependencies.get(module).add(dependency);
+                    dependents.get(dependency).add(module);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a pool for {@link #startModules(Executor)} with the given number of threads.
+     */
+    public static ExecutorService createExecutor(final String threadName, int threads) {
+        IllegalArgumentAssertion.assertTrue(threads > 0, "Invalid number of threads: " + threads);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable run) {
+                return new Thread(run, threadName + "-" + count.incrementAndGet());
+            }
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+    }
+
+    /**
+     * Get the modules in the order they can be started
+     */
+    public List<Module> getStartOrder() {
+        return startOrder;
+    }
+
+    /**
+     * Get the modules in the order they can be stopped
+     */
+    public List<Module> getStopOrder() {
+        List<Module> result = new ArrayList<Module>(startOrder);
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Get the modules that must be started before the given module
+     */
+    public List<Module> getDependencies(Module module) {
+        List<Module> result = dependencies.get(module);
+        return result != null ? Collections.unmodifiableList(result) : Collections.<Module>emptyList();
+    }
+
+    /**
+     * Start the modules. A module is started when all of its dependencies have been started,
+     * whether or not they could be started successfully.
+     *
+     * @param executor The executor that starts the modules concurrently, or null to start them on the calling thread
+     * @return The start latency in nanoseconds of every module, in start order
+     */
+    public Map<Module, Long> startModules(Executor executor) throws InterruptedException {
+        final Map<Module, Long> latencies = new ConcurrentHashMap<Module, Long>();
+        if (executor == null) {
+            for (Module module : startOrder) {
+                startModule(module, latencies);
+            }
+        } else {
+            final Map<Module, AtomicInteger> pending = new HashMap<Module, AtomicInteger>();
+            for (Module module : startOrder) {
+                pending.put(module, new AtomicInteger(dependencies.get(module).size()));
+            }
+            CountDownLatch completed = new CountDownLatch(startOrder.size());
+            for (Module module : startOrder) {
+                if (pending.get(module).get() == 0) {
+                    submitStart(executor, module, pending, latencies, completed);
+                }
+            }
+            completed.await();
+        }
+
+        Map<Module, Long> result = new LinkedHashMap<Module, Long>();
+        for (Module module : startOrder) {
+            result.put(module, latencies.get(module));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private void submitStart(final Executor executor, final Module module, final Map<Module, AtomicInteger> pending, final Map<Module, Long> latencies, final CountDownLatch completed) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startModule(module, latencies);
+                } finally {
+                    for (Module dependent : dependents.get(module)) {
+                        if (pending.get(dependent).decrementAndGet() == 0) {
+                            submitStart(executor, dependent, pending, latencies, completed);
+                        }
+                    }
+                    completed.countDown();
+                }
+            }
+        });
+    }
+
+    private void startModule(Module module, Map<Module, Long> latencies) {
+        long start = System.nanoTime();
+        try {
+            module.start();
+        } catch (Exception ex) {
+            LOGGER.error("Cannot start module: " + module, ex);
+        }
+        long latency = System.nanoTime() - start;
+        latencies.put(module, latency);
+        LOGGER.debug("Started {} in {}ms", module, TimeUnit.NANOSECONDS.toMillis(latency));
+    }
+
+    private static Set<Module> findDependencies(Module module, ResourceStore store, Map<Resource, Module> resourceModules, List<Module> unindexed) {
+        Set<Module> result = new LinkedHashSet<Module>();
+        Resource resource = module.adapt(Resource.class);
+        if (resource == null)
+            return result;
+
+        Wiring wiring = module.adapt(Wiring.class);
+        if (wiring != null) {
+            for (Wire wire : wiring.getRequiredResourceWires(null)) {
+                Module other = resourceModules.get(wire.getProvider());
+                if (other != null && other != module) {
+                    result.add(other);
+                }
+                for (Module dup : unindexed) {
+                    if (dup != module && wire.getProvider().equals(dup.adapt(Resource.class))) {
+                        result.add(dup);
+                    }
+                }
+            }
+        }
+
+        MatchPolicy matchPolicy = store.getMatchPolicy();
+        for (Requirement req : resource.getRequirements(null)) {
+            for (Capability cap : store.findProviders(req)) {
+                Module other = resourceModules.get(cap.getResource());
+                if (other != null && other != module) {
+                    result.add(other);
+                }
+            }
+            for (Module dup : unindexed) {
+                if (dup == module || result.contains(dup))
+                    continue;
+                for (Capability cap : dup.adapt(Resource.class).getCapabilities(req.getNamespace())) {
+                    if (matchPolicy.match(cap, req)) {
+                        result.add(dup);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Keep the dependencies in installation order
+        List<Module> sorted = new ArrayList<Module>(result);
+        Collections.sort(sorted, INSTALL_ORDER);
+        return new LinkedHashSet<Module>(sorted);
+    }
+
+    private static List<Module> topologicalOrder(List<Module> nodes, Map<Module, Set<Module>> edges) {
+        Map<Module, Integer> indexes = new HashMap<Module, Integer>();
+        for (Module module : nodes) {
+            indexes.put(module, indexes.size());
+        }
+        int[] missing = new int[nodes.size()];
+        List<List<Integer>> dependents = new ArrayList<List<Integer>>();
+        for (int i = 0; i < nodes.size(); i++) {
+            dependents.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            for (Module dependency : edges.get(nodes.get(i))) {
+                dependents.get(indexes.get(dependency)).add(i);
+                missing[i]++;
+            }
+        }
+
+        // Always take the first module in installation order that has no missing dependencies
+        TreeSet<Integer> ready = new TreeSet<Integer>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (missing[i] == 0) {
+                ready.add(i);
+            }
+        }
+        List<Module> result = new ArrayList<Module>();
+        boolean[] done = new boolean[nodes.size()];
+        int cursor = 0;
+        while (result.size() < nodes.size()) {
+            int next;
+            if (!ready.isEmpty()) {
+                next = ready.pollFirst();
+            } else {
+                // Break a cycle with the first module in installation order
+                while (done[cursor]) {
+                    cursor++;
+                }
+                next = cursor;
+                LOGGER.debug("Dependency cycle broken at: {}", nodes.get(next));
+            }
+            done[next] = true;
+            result.add(nodes.get(next));
+            for (Integer dependent : dependents.get(next)) {
+                if (!done[dependent] && --missing[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+}
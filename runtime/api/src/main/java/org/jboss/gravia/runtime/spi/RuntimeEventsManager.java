@@ -33,10 +33,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 
+import org.jboss.gravia.Constants;
 import org.jboss.gravia.runtime.AllServiceListener;
 import org.jboss.gravia.runtime.ConstantsHelper;
 import org.jboss.gravia.runtime.Filter;
@@ -48,8 +46,6 @@ import org.jboss.gravia.runtime.ServiceEvent;
 import org.jboss.gravia.runtime.ServiceListener;
 import org.jboss.gravia.runtime.ServiceReference;
 import org.jboss.gravia.runtime.SynchronousModuleListener;
-import org.jboss.gravia.utils.RemoveOnlyCollection;
-import org.jboss.gravia.utils.RemoveOnlyMap;
 
 /**
  * A manager for runtime listerners and their associated event delivery.
@@ -61,19 +57,21 @@ import org.jboss.gravia.utils.RemoveOnlyMap;
  */
 public final class RuntimeEventsManager {
 
-    private final ExecutorService executorService;
+    private final ModuleEventDispatcher eventDispatcher;
+    private final FilterCache filterCache;
 
     /** The moduleState listeners */
     private final Map<Module, List<ModuleListenerRegistration>> moduleListeners = new ConcurrentHashMap<Module, List<ModuleListenerRegistration>>();
-    /** The service listeners */
-    private final Map<Module, List<ServiceListenerRegistration>> serviceListeners = new ConcurrentHashMap<Module, List<ServiceListenerRegistration>>();
+    /** The service listeners, replaced on every change */
+    private volatile ServiceListenerTable serviceListeners = ServiceListenerTable.EMPTY;
+    private final Object serviceListenersLock = new Object();
 
     /** The set of moduleState events that are delivered to an (asynchronous) BundleListener */
     private Set<Integer> asyncBundleEvents = new HashSet<Integer>();
     /** The set of events that are logged at INFO level */
     private Set<String> infoEvents = new HashSet<String>();
 
-    RuntimeEventsManager() {
+    RuntimeEventsManager(PropertiesProvider propertiesProvider) {
         asyncBundleEvents.add(new Integer(ModuleEvent.INSTALLED));
         asyncBundleEvents.add(new Integer(ModuleEvent.STARTED));
         asyncBundleEvents.add(new Integer(ModuleEvent.STOPPED));
@@ -82,19 +80,28 @@ public final class RuntimeEventsManager {
         infoEvents.add(ConstantsHelper.moduleEvent(ModuleEvent.STARTED));
         infoEvents.add(ConstantsHelper.moduleEvent(ModuleEvent.STOPPED));
         infoEvents.add(ConstantsHelper.moduleEvent(ModuleEvent.UNINSTALLED));
-        executorService = createExecutorService("RuntimeEvents");
+        int threads = getIntegerProperty(propertiesProvider, Constants.RUNTIME_EVENTS_THREADS, ModuleEventDispatcher.DEFAULT_THREADS);
+        int capacity = getIntegerProperty(propertiesProvider, Constants.RUNTIME_EVENTS_CAPACITY, ModuleEventDispatcher.DEFAULT_CAPACITY);
+        eventDispatcher = new ModuleEventDispatcher("RuntimeEvents", threads, capacity);
+        int cacheSize = getIntegerProperty(propertiesProvider, Constants.RUNTIME_FILTER_CACHE_SIZE, FilterCache.DEFAULT_MAXIMUM_SIZE);
+        filterCache = new FilterCache(cacheSize);
     }
 
-    private ExecutorService createExecutorService(final String threadName) {
-        ExecutorService service = Executors.newCachedThreadPool(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable run) {
-                Thread thread = new Thread(run);
-                thread.setName(threadName);
-                return thread;
-            }
-        });
-        return service;
+    private static int getIntegerProperty(PropertiesProvider propertiesProvider, String key, int defaultValue) {
+        Object value = propertiesProvider != null ? propertiesProvider.getProperty(key, defaultValue) : null;
+        return value != null ? Integer.parseInt(value.toString().trim()) : defaultValue;
+    }
+
+    ModuleEventDispatcher getModuleEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    FilterCache getFilterCache() {
+        return filterCache;
+    }
+
+    void shutdown() {
+        eventDispatcher.shutdown();
     }
 
     public void addModuleListener(final Module module, final ModuleListener listener) {
@@ -148,36 +155,29 @@ public final class RuntimeEventsManager {
 
     public void addServiceListener(final Module module, final ServiceListener listener, final String filterstr) {
         assert listener != null : "Null listener";
-        synchronized (serviceListeners) {
-            List<ServiceListenerRegistration> listeners = serviceListeners.get(module);
-            if (listeners == null) {
-                listeners = new CopyOnWriteArrayList<ServiceListenerRegistration>();
-                serviceListeners.put(module, listeners);
-            }
+        synchronized (serviceListenersLock) {
 
             // If the context moduleState's list of listeners already contains a listener l such that (l==listener),
             // then this method replaces that listener's filter (which may be null) with the specified one (which may be null).
             removeServiceListener(module, listener);
 
             // Create the new listener registration
-            Filter filter = (filterstr != null ? FilterFactory.createFilter(filterstr) : NoFilter.INSTANCE);
+            Filter filter = (filterstr != null ? filterCache.createFilter(filterstr) : NoFilter.INSTANCE);
             ServiceListenerRegistration slreg = new ServiceListenerRegistration(module, listener, filter);
 
-            // Add the listener to the list
-            listeners.add(slreg);
+            // Add the listener to the table
+            serviceListeners = serviceListeners.add(slreg);
         }
     }
 
 
     Collection<ListenerInfo> getServiceListenerInfos(final Module moduleState) {
         Collection<ListenerInfo> listeners = new ArrayList<ListenerInfo>();
-        synchronized (serviceListeners) {
-            for (Entry<Module, List<ServiceListenerRegistration>> entry : serviceListeners.entrySet()) {
-                if (moduleState == null || moduleState.equals(entry.getKey())) {
-                    for (ServiceListenerRegistration aux : entry.getValue()) {
-                        ListenerInfo info = aux.getListenerInfo();
-                        listeners.add(info);
-                    }
+        for (Entry<Module, List<ServiceListenerRegistration>> entry : serviceListeners.moduleListeners.entrySet()) {
+            if (moduleState == null || moduleState.equals(entry.getKey())) {
+                for (ServiceListenerRegistration aux : entry.getValue()) {
+                    ListenerInfo info = aux.getListenerInfo();
+                    listeners.add(info);
                 }
             }
         }
@@ -187,13 +187,13 @@ public final class RuntimeEventsManager {
 
     public void removeServiceListener(final Module moduleState, final ServiceListener listener) {
         assert listener != null : "Null listener";
-        synchronized (serviceListeners) {
-            List<ServiceListenerRegistration> listeners = serviceListeners.get(moduleState);
+        synchronized (serviceListenersLock) {
+            List<ServiceListenerRegistration> listeners = serviceListeners.moduleListeners.get(moduleState);
             if (listeners != null) {
                 ServiceListenerRegistration slreg = new ServiceListenerRegistration(moduleState, listener, NoFilter.INSTANCE);
                 int index = listeners.indexOf(slreg);
                 if (index >= 0) {
-                    slreg = listeners.remove(index);
+                    serviceListeners = serviceListeners.remove(listeners.get(index));
                 }
             }
         }
@@ -201,15 +201,20 @@ public final class RuntimeEventsManager {
 
 
     public void removeServiceListeners(final Module moduleState) {
-        synchronized (serviceListeners) {
-            serviceListeners.remove(moduleState);
+        synchronized (serviceListenersLock) {
+            List<ServiceListenerRegistration> listeners = serviceListeners.moduleListeners.get(moduleState);
+            if (listeners != null) {
+                for (ServiceListenerRegistration slreg : listeners) {
+                    serviceListeners = serviceListeners.remove(slreg);
+                }
+            }
         }
     }
 
 
     public void removeAllServiceListeners() {
-        synchronized (serviceListeners) {
-            serviceListeners.clear();
+        synchronized (serviceListenersLock) {
+            serviceListeners = ServiceListenerTable.EMPTY;
         }
     }
 
@@ -259,29 +264,21 @@ public final class RuntimeEventsManager {
             }
         }
 
-        if (!registrations.isEmpty()) {
-            Runnable runner = new Runnable() {
-
-                @Override
-                public void run() {
-                    // BundleListeners are called with a BundleEvent object when a moduleState has been
-                    // installed, resolved, started, stopped, updated, unresolved, or uninstalled
-                    if (asyncBundleEvents.contains(type)) {
-                        for (ModuleListenerRegistration blreg : registrations) {
-                            ModuleListener listener = blreg.listener;
-                            try {
-                                if (!(listener instanceof SynchronousModuleListener)) {
-                                    listener.moduleChanged(event);
-                                }
-                            } catch (Throwable th) {
-                                LOGGER.warn("Error while firing module event " + typeName + " for: " + module, th);
-                            }
+        // BundleListeners are called with a BundleEvent object when a moduleState has been
+        // installed, resolved, started, stopped, updated, unresolved, or uninstalled
+        if (!registrations.isEmpty() && asyncBundleEvents.contains(type) && !eventDispatcher.isShutdown()) {
+            for (ModuleListenerRegistration blreg : registrations) {
+                final ModuleListener listener = blreg.listener;
+                eventDispatcher.dispatch(blreg.eventQueue, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            listener.moduleChanged(event);
+                        } catch (Throwable th) {
+                            LOGGER.warn("Error while firing module event " + typeName + " for: " + module, th);
                         }
                     }
-                }
-            };
-            if (!executorService.isShutdown()) {
-                executorService.execute(runner);
+                });
             }
         }
     }
@@ -292,81 +289,192 @@ public final class RuntimeEventsManager {
         // if (moduleManager.isFrameworkCreated() == false)
         //    return;
 
-        // Get a snapshot of the current listeners
-        Map<ModuleContext, Collection<ListenerInfo>> listeners = new HashMap<ModuleContext, Collection<ListenerInfo>>();
-        synchronized (serviceListeners) {
-            for (Entry<Module, List<ServiceListenerRegistration>> entry : serviceListeners.entrySet()) {
-                for (ServiceListenerRegistration listener : entry.getValue()) {
-                    ModuleContext context = listener.getModuleContext();
-                    if (context != null) {
-                        Collection<ListenerInfo> infos = listeners.get(context);
-                        if (infos == null) {
-                            infos = new ArrayList<ListenerInfo>();
-                            listeners.put(context, infos);
-                        }
-                        infos.add(listener.getListenerInfo());
-                    }
-                }
-            }
-        }
-        for (Map.Entry<ModuleContext, Collection<ListenerInfo>> entry : listeners.entrySet()) {
-            listeners.put(entry.getKey(), new RemoveOnlyCollection<ListenerInfo>(entry.getValue()));
+        // The listener table is an immutable snapshot
+        ServiceListenerTable table = serviceListeners;
+        if (table.isEmpty()) {
+            LOGGER.trace("Service {}: {}", ConstantsHelper.serviceEvent(type), reference);
+            return;
         }
-        listeners = new RemoveOnlyMap<ModuleContext, Collection<ListenerInfo>>(listeners);
+
+        RuntimeMetrics metrics = RuntimeMetricsLocator.getMetrics();
+        long start = metrics.startTimer();
 
         // Construct the ServiceEvent
         ServiceEvent event = new ServiceEventImpl(type, reference);
         String typeName = ConstantsHelper.serviceEvent(event.getType());
         LOGGER.trace("Service {}: {}", typeName, reference);
 
-        // Nobody is interested
-        if (listeners.isEmpty())
-            return;
+        // Call the candidate listeners. All service events are synchronously delivered
+        String[] clazzes = (String[]) reference.getProperty(org.jboss.gravia.Constants.OBJECTCLASS);
+        Object serviceId = reference.getProperty(org.jboss.gravia.Constants.SERVICE_ID);
+        fireServiceEvent(table.unindexedListeners, event, typeName, clazzes, metrics);
+        if (clazzes != null && !table.classListeners.isEmpty()) {
+            for (String clazz : clazzes) {
+                List<ServiceListenerRegistration> candidates = table.classListeners.get(clazz);
+                if (candidates != null) {
+                    fireServiceEvent(candidates, event, typeName, clazzes, metrics);
+                }
+            }
+        }
+        if (serviceId instanceof Long && !table.idListeners.isEmpty()) {
+            List<ServiceListenerRegistration> candidates = table.idListeners.get(serviceId);
+            if (candidates != null) {
+                fireServiceEvent(candidates, event, typeName, clazzes, metrics);
+            }
+        }
+        metrics.recordLatency(RuntimeMetrics.SERVICE_EVENT, null, start);
+    }
 
-        // Call the listeners. All service events are synchronously delivered
-        for (Map.Entry<ModuleContext, Collection<ListenerInfo>> entry : listeners.entrySet()) {
-            for (ListenerInfo info : entry.getValue()) {
-                ServiceListenerRegistration listenerReg = info.getRegistration();
-                Module owner = info.getModuleContext().getModule();
-                if (owner.getState() == Module.State.UNINSTALLED) {
+    private void fireServiceEvent(List<ServiceListenerRegistration> registrations, ServiceEvent event, String typeName, String[] clazzes, RuntimeMetrics metrics) {
+        ServiceReference<?> reference = event.getServiceReference();
+        for (ServiceListenerRegistration listenerReg : registrations) {
+            if (listenerReg.getModuleContext() == null) {
+                continue;
+            }
+            Module owner = listenerReg.getListenerInfo().getModuleContext().getModule();
+            if (owner.getState() == Module.State.UNINSTALLED) {
+                continue;
+            }
+            // Service events must only be delivered to event listeners which can validly cast the event
+            if (!listenerReg.isAllServiceListener() && clazzes != null) {
+                boolean assignableToOwner = true;
+                for (String clazz : clazzes) {
+                    if (reference.isAssignableTo(owner, clazz) == false) {
+                        assignableToOwner = false;
+                        break;
+                    }
+                }
+                if (assignableToOwner == false)
                     continue;
+            }
+
+            try {
+                Filter filter = listenerReg.filter;
+                ServiceListener listener = listenerReg.getListener();
+                if (listenerReg.isAllServiceListener() || filter.match(reference)) {
+                    metrics.incrementCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS);
+                    listener.serviceChanged(event);
                 }
-                // Service events must only be delivered to event listeners which can validly cast the event
-                if (!listenerReg.isAllServiceListener()) {
-                    boolean assignableToOwner = true;
-                    String[] clazzes = (String[]) reference.getProperty(org.jboss.gravia.Constants.OBJECTCLASS);
-                    for (String clazz : clazzes) {
-                        if (reference.isAssignableTo(owner, clazz) == false) {
-                            assignableToOwner = false;
-                            break;
-                        }
+
+                // The MODIFIED_ENDMATCH event is synchronously delivered after the service properties have been modified.
+                // This event is only delivered to listeners which were added with a non-null filter where
+                // the filter matched the service properties prior to the modification but the filter does
+                // not match the modified service properties.
+                else if (filter != NoFilter.INSTANCE && ServiceEvent.MODIFIED == event.getType()) {
+                    if (/* filter.match(reference.getPreviousProperties()) && */ !filter.match(reference)) {
+                        ServiceEvent endmatch = new ServiceEventImpl(ServiceEvent.MODIFIED_ENDMATCH, reference);
+                        metrics.incrementCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS);
+                        listener.serviceChanged(endmatch);
                     }
-                    if (assignableToOwner == false)
-                        continue;
                 }
+            } catch (Throwable th) {
+                LOGGER.warn("Error while firing service event " + typeName + " for: " + reference, th);
+            }
+        }
+    }
 
-                try {
-                    String filterstr = info.getFilter();
-                    ServiceListener listener = listenerReg.getListener();
-                    if (listenerReg.isAllServiceListener() || listenerReg.filter.match(reference)) {
-                        listener.serviceChanged(event);
-                    }
+    /**
+     * An immutable table of the registered service listeners.
+     *
+     * Listeners with a filter that requires an objectClass or service.id are routed by that value,
+     * all other listeners are candidates for every event.
+     */
+    private static final class ServiceListenerTable {
+
+        static final ServiceListenerTable EMPTY = new ServiceListenerTable(
+                Collections.<Module, List<ServiceListenerRegistration>> emptyMap(),
+                Collections.<String, List<ServiceListenerRegistration>> emptyMap(),
+                Collections.<Long, List<ServiceListenerRegistration>> emptyMap(),
+                Collections.<ServiceListenerRegistration> emptyList());
+
+        final Map<Module, List<ServiceListenerRegistration>> moduleListeners;
+        final Map<String, List<ServiceListenerRegistration>> classListeners;
+        final Map<Long, List<ServiceListenerRegistration>> idListeners;
+        final List<ServiceListenerRegistration> unindexedListeners;
+
+        private ServiceListenerTable(Map<Module, List<ServiceListenerRegistration>> moduleListeners, Map<String, List<ServiceListenerRegistration>> classListeners,
+                Map<Long, List<ServiceListenerRegistration>> idListeners, List<ServiceListenerRegistration> unindexedListeners) {
+            this.moduleListeners = moduleListeners;
+            this.classListeners = classListeners;
+            this.idListeners = idListeners;
+            this.unindexedListeners = unindexedListeners;
+        }
+
+        boolean isEmpty() {
+            return moduleListeners.isEmpty();
+        }
+
+        ServiceListenerTable add(ServiceListenerRegistration slreg) {
+            Map<Module, List<ServiceListenerRegistration>> modules = with(moduleListeners, slreg.getModule(), slreg);
+            Map<String, List<ServiceListenerRegistration>> classes = classListeners;
+            Map<Long, List<ServiceListenerRegistration>> ids = idListeners;
+            List<ServiceListenerRegistration> unindexed = unindexedListeners;
+            String clazz = slreg.getRequiredObjectClass();
+            Long serviceId = slreg.getRequiredServiceId();
+            if (clazz != null) {
+                classes = with(classes, clazz, slreg);
+            } else if (serviceId != null) {
+                ids = with(ids, serviceId, slreg);
+            } else {
+                unindexed = with(unindexed, slreg);
+            }
+            return new ServiceListenerTable(modules, classes, ids, unindexed);
+        }
+
+        ServiceListenerTable remove(ServiceListenerRegistration slreg) {
+            Map<Module, List<ServiceListenerRegistration>> modules = without(moduleListeners, slreg.getModule(), slreg);
+            Map<String, List<ServiceListenerRegistration>> classes = classListeners;
+            Map<Long, List<ServiceListenerRegistration>> ids = idListeners;
+            List<ServiceListenerRegistration> unindexed = unindexedListeners;
+            String clazz = slreg.getRequiredObjectClass();
+            Long serviceId = slreg.getRequiredServiceId();
+            if (clazz != null) {
+                classes = without(classes, clazz, slreg);
+            } else if (serviceId != null) {
+                ids = without(ids, serviceId, slreg);
+            } else {
+                unindexed = without(unindexed, slreg);
+            }
+            return new ServiceListenerTable(modules, classes, ids, unindexed);
+        }
 
-                    // The MODIFIED_ENDMATCH event is synchronously delivered after the service properties have been modified.
-                    // This event is only delivered to listeners which were added with a non-null filter where
-                    // the filter matched the service properties prior to the modification but the filter does
-                    // not match the modified service properties.
-                    else if (filterstr != null && ServiceEvent.MODIFIED == event.getType()) {
-                        Filter filter = listenerReg.filter;
-                        if (/* filter.match(reference.getPreviousProperties()) && */ !filter.match(reference)) {
-                            ServiceEvent endmatch = new ServiceEventImpl(ServiceEvent.MODIFIED_ENDMATCH, reference);
-                            listener.serviceChanged(endmatch);
-                        }
-                    }
-                } catch (Throwable th) {
-                    LOGGER.warn("Error while firing service event " + typeName + " for: " + reference, th);
+        private static <K> Map<K, List<ServiceListenerRegistration>> with(Map<K, List<ServiceListenerRegistration>> map, K key, ServiceListenerRegistration slreg) {
+            Map<K, List<ServiceListenerRegistration>> result = new HashMap<K, List<ServiceListenerRegistration>>(map);
+            List<ServiceListenerRegistration> list = map.get(key);
+            result.put(key, with(list != null ? list : Collections.<ServiceListenerRegistration> emptyList(), slreg));
+            return Collections.unmodifiableMap(result);
+        }
+
+        private static <K> Map<K, List<ServiceListenerRegistration>> without(Map<K, List<ServiceListenerRegistration>> map, K key, ServiceListenerRegistration slreg) {
+            List<ServiceListenerRegistration> list = map.get(key);
+            if (list == null)
+                return map;
+            Map<K, List<ServiceListenerRegistration>> result = new HashMap<K, List<ServiceListenerRegistration>>(map);
+            list = without(list, slreg);
+            if (list.isEmpty()) {
+                result.remove(key);
+            } else {
+                result.put(key, list);
+            }
+            return Collections.unmodifiableMap(result);
+        }
+
+        private static List<ServiceListenerRegistration> with(List<ServiceListenerRegistration> list, ServiceListenerRegistration slreg) {
+            List<ServiceListenerRegistration> result = new ArrayList<ServiceListenerRegistration>(list.size() + 1);
+            result.addAll(list);
+            result.add(slreg);
+            return Collections.unmodifiableList(result);
+        }
+
+        // Registrations are removed by identity, equal listeners may be registered by other modules
+        private static List<ServiceListenerRegistration> without(List<ServiceListenerRegistration> list, ServiceListenerRegistration slreg) {
+            List<ServiceListenerRegistration> result = new ArrayList<ServiceListenerRegistration>(list.size());
+            for (ServiceListenerRegistration aux : list) {
+                if (aux != slreg) {
+                    result.add(aux);
                 }
             }
+            return Collections.unmodifiableList(result);
         }
     }
 
@@ -392,6 +500,19 @@ public final class RuntimeEventsManager {
             this.info = new ListenerInfo(moduleContext, this);
         }
 
+        String getRequiredObjectClass() {
+            return filter instanceof IndexableFilter ? ((IndexableFilter) filter).getRequiredValue(org.jboss.gravia.Constants.OBJECTCLASS) : null;
+        }
+
+        Long getRequiredServiceId() {
+            String value = filter instanceof IndexableFilter ? ((IndexableFilter) filter).getRequiredValue(org.jboss.gravia.Constants.SERVICE_ID) : null;
+            try {
+                return value != null ? Long.valueOf(value.trim()) : null;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
         Module getModule() {
             return module;
         }
@@ -440,6 +561,7 @@ public final class RuntimeEventsManager {
     private static class ModuleListenerRegistration {
         private final ModuleListener listener;
         private final Module module;
+        private final ModuleEventDispatcher.EventQueue eventQueue = new ModuleEventDispatcher.EventQueue();
 
         ModuleListenerRegistration(Module module, ModuleListener listener) {
             this.listener = listener;
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+/**
+ * A plugin point that records latencies and counters of the runtime's hot paths.
+ *
+ * Callers obtain the active instance from {@link RuntimeMetricsLocator} and
+ * bracket an operation like this
+ *
+ * <pre>
+ * RuntimeMetrics metrics = RuntimeMetricsLocator.getMetrics();
+ * long start = metrics.startTimer();
+ * ...
+ * metrics.recordLatency(RuntimeMetrics.MODULE_START, module, start);
+ * </pre>
+ *
+ * When metrics are disabled, all methods are no-ops.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+public interface RuntimeMetrics {
+
+    /** The latency of {@code Runtime.installModule} */
+    String MODULE_INSTALL = "module.install";
+
+    /** The latency of {@code Module.start} */
+    String MODULE_START = "module.start";
+
+    /** The latency of a resolver run */
+    String RESOLVER_RESOLVE = "resolver.resolve";
+
+    /** The latency of {@code Provisioner.findResources} */
+    String PROVISIONER_FIND_RESOURCES = "provisioner.findResources";
+
+    /** The latency of a synchronous service event delivery */
+    String SERVICE_EVENT = "service.event";
+
+    /** The number of service listener invocations */
+    String SERVICE_LISTENER_CALLS = "service.listener.calls";
+
+    /**
+     * True if this instance records anything.
+     */
+    boolean isEnabled();
+
+    /**
+     * Get the start time of an operation in nanoseconds, or zero if disabled.
+     */
+    long startTimer();
+
+    /**
+     * Record the latency of an operation that started at the given time.
+     *
+     * @param name The name of the operation
+     * @param subject A short label that is added to the timeline, or null if the operation is not part of the timeline
+     * @param startTime The value returned by {@link #startTimer()}
+     */
+    void recordLatency(String name, Object subject, long startTime);
+
+    /**
+     * Increment the counter with the given name.
+     */
+    void incrementCounter(String name);
+}
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Locates the active {@link RuntimeMetrics}.
+ *
+ * Unless metrics are installed, a no-op instance is returned.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+public final class RuntimeMetricsLocator {
+
+    private static final RuntimeMetrics NOOP = new NoopMetrics();
+    private static final AtomicReference<RuntimeMetrics> metricsReference = new AtomicReference<RuntimeMetrics>(NOOP);
+
+    // Hide ctor
+    private RuntimeMetricsLocator() {
+    }
+
+    /**
+     * Get the active metrics, never null.
+     */
+    public static RuntimeMetrics getMetrics() {
+        return metricsReference.get();
+    }
+
+    /**
+     * Install the given metrics.
+     * @param metrics The metrics to install or null to disable metrics
+     */
+    public static void setMetrics(RuntimeMetrics metrics) {
+        metricsReference.set(metrics != null ? metrics : NOOP);
+    }
+
+    /**
+     * Disable metrics if the given metrics are still installed.
+     * @return true if the given metrics were released
+     */
+    public static boolean releaseMetrics(RuntimeMetrics metrics) {
+        return metrics != NOOP && metricsReference.compareAndSet(metrics, NOOP);
+    }
+
+    static final class NoopMetrics implements RuntimeMetrics {
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public long startTimer() {
+            return 0;
+        }
+
+        @Override
+        public void recordLatency(String name, Object subject, long startTime) {
+        }
+
+        @Override
+        public void incrementCounter(String name) {
+        }
+    }
+}
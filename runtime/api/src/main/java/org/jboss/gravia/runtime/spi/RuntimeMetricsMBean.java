@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import javax.management.ObjectName;
+
+import org.jboss.gravia.utils.ObjectNameFactory;
+
+/**
+ * The management view of the default {@link RuntimeMetrics}.
+ *
+ * Latencies are reported in milliseconds.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface RuntimeMetricsMBean {
+
+    ObjectName OBJECT_NAME = ObjectNameFactory.create("org.jboss.gravia:type=RuntimeMetrics");
+
+    /**
+     * Get the names of the operations with recorded latencies
+     */
+    String[] getLatencyNames();
+
+    /**
+     * Get the number of recorded latencies for the given operation
+     */
+    long getLatencyCount(String name);
+
+    /**
+     * Get the mean latency of the given operation
+     */
+    double getMeanLatency(String name);
+
+    /**
+     * Get the maximum latency of the given operation
+     */
+    double getMaxLatency(String name);
+
+    /**
+     * Get the upper bound of the histogram bucket that contains the given percentile (0-100)
+     */
+    double getLatencyPercentile(String name, double percentile);
+
+    /**
+     * Get the names of the counters
+     */
+    String[] getCounterNames();
+
+    /**
+     * Get the value of the given counter
+     */
+    long getCounter(String name);
+
+    /**
+     * Get the timeline of the recorded startup operations as JSON
+     */
+    String getStartupTimeline();
+
+    /**
+     * Clear all latencies, counters and the timeline
+     */
+    void reset();
+}
@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.utils.IllegalArgumentAssertion;
+
+/**
+ * An immutable snapshot of service properties.
+ *
+ * Keys are looked up in a case insensitive manner. The keys are normalized once when the
+ * snapshot is created, so that a lookup with a key that has been normalized with
+ * {@link #normalize(String)} does not need to fold the case again.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @Immutable
+ */
+public final class ServiceProperties {
+
+    private final Map<String, Object> values;
+    private final String[] keys;
+
+    /**
+     * A {@link ServiceReference} that provides its current properties as a snapshot.
+     */
+    public interface Provider {
+
+        /**
+         * Get the current snapshot of the service properties
+         */
+        ServiceProperties getServiceProperties();
+    }
+
+    /**
+     * Create a snapshot of the given properties.
+     *
+     * @throws IllegalArgumentException If the properties contain case variants of the same key
+     */
+    public ServiceProperties(Dictionary<String, ?> properties) {
+        IllegalArgumentAssertion.assertNotNull(properties, "properties");
+        values = new HashMap<String, Object>(properties.size() * 4 / 3 + 1);
+        keys = new String[properties.size()];
+        int index = 0;
+        Enumeration<String> e = properties.keys();
+        while (e.hasMoreElements()) {
+            String key = e.nextElement();
+            if (values.put(normalize(key), properties.get(key)) != null)
+                throw new IllegalArgumentException("Duplicates for key [" + key + "] in: " + properties);
+            keys[index++] = key;
+        }
+    }
+
+    /**
+     * Get the normalized form of the given property key
+     */
+    public static String normalize(String key) {
+        return key.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Get the value for the given key, ignoring case
+     */
+    public Object get(String key) {
+        return key != null ? values.get(normalize(key)) : null;
+    }
+
+    /**
+     * Get the value for a key that has already been normalized
+     */
+    public Object getNormalized(String normalizedKey) {
+        return values.get(normalizedKey);
+    }
+
+    /**
+     * Get the keys as they were given
+     */
+    public String[] getKeys() {
+        return keys.clone();
+    }
+
+    /**
+     * Get a new dictionary with the keys as they were given
+     */
+    public Dictionary<String, Object> toDictionary() {
+        Dictionary<String, Object> result = new Hashtable<String, Object>();
+        for (String key : keys) {
+            result.put(key, getNormalized(normalize(key)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
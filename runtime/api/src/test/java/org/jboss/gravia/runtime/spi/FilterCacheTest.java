@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import org.jboss.gravia.runtime.Filter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link FilterCache}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class FilterCacheTest {
+
+    @Test
+    public void testCachedFilter() throws Exception {
+        FilterCache cache = new FilterCache(16);
+        Filter f1 = cache.createFilter("(objectClass=org.acme.Foo)");
+        Filter f2 = cache.createFilter("(objectClass=org.acme.Foo)");
+        Assert.assertSame(f1, f2);
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testNormalizedFilter() throws Exception {
+        FilterCache cache = new FilterCache(16);
+        Filter f1 = cache.createFilter("(&(objectClass=org.acme.Foo)(service.pid=foo))");
+        Filter f2 = cache.createFilter("(& (objectClass=org.acme.Foo) (service.pid=foo))");
+        Assert.assertSame(f1, f2);
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(2, cache.getMissCount());
+
+        Assert.assertSame(f1, cache.createFilter("(& (objectClass=org.acme.Foo) (service.pid=foo))"));
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        FilterCache cache = new FilterCache(10);
+        Filter first = cache.createFilter("(service.pid=0)");
+        for (int i = 1; i < 10; i++) {
+            cache.createFilter("(service.pid=" + i + ")");
+            // Keep the first filter recently used
+            Assert.assertSame(first, cache.createFilter("(service.pid=0)"));
+        }
+        Assert.assertEquals(10, cache.getSize());
+        Assert.assertEquals(0, cache.getEvictionCount());
+
+        cache.createFilter("(service.pid=10)");
+        Assert.assertEquals(9, cache.getSize());
+        Assert.assertEquals(2, cache.getEvictionCount());
+        Assert.assertSame(first, cache.createFilter("(service.pid=0)"));
+        Assert.assertNotNull(cache.createFilter("(service.pid=10)"));
+        Assert.assertEquals(9, cache.getSize());
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        FilterCache cache = new FilterCache(0);
+        Filter f1 = cache.createFilter("(service.pid=foo)");
+        Filter f2 = cache.createFilter("(service.pid=foo)");
+        Assert.assertNotSame(f1, f2);
+        Assert.assertEquals(f1, f2);
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidFilter() throws Exception {
+        FilterCache cache = new FilterCache(16);
+        try {
+            cache.createFilter("(service.pid=foo");
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
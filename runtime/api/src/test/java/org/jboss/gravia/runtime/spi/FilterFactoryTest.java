@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.jboss.gravia.runtime.Filter;
+import org.jboss.gravia.runtime.ServiceReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link Filter} implementation of the {@link FilterFactory}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class FilterFactoryTest {
+
+    @Test
+    public void testStringOperations() throws Exception {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put("service.pid", "org.acme.foo");
+        props.put("objectClass", new String[] { "org.acme.Foo", "org.acme.Bar" });
+        props.put("name", "Babs Jensen");
+
+        Assert.assertTrue(match("(service.pid=org.acme.foo)", props));
+        Assert.assertFalse(match("(service.pid=org.acme.bar)", props));
+        Assert.assertTrue(match("(service.pid=org.acme.*)", props));
+        Assert.assertTrue(match("(name~=babsjensen)", props));
+        Assert.assertTrue(match("(name>=Babs)", props));
+        Assert.assertTrue(match("(&(objectClass=org.acme.Bar)(service.pid=org.acme.foo))", props));
+        Assert.assertFalse(match("(&(objectClass=org.acme.Baz)(service.pid=org.acme.foo))", props));
+        Assert.assertTrue(match("(|(objectClass=org.acme.Baz)(name=*))", props));
+        Assert.assertTrue(match("(!(objectClass=org.acme.Baz))", props));
+        Assert.assertFalse(match("(missing=*)", props));
+    }
+
+    @Test
+    public void testTypedOperations() throws Exception {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put("int", 10);
+        props.put("long", 20L);
+        props.put("float", 1.5f);
+        props.put("bool", Boolean.TRUE);
+        props.put("char", 'x');
+        props.put("decimal", new BigDecimal("2.50"));
+        props.put("ints", new int[] { 1, 2, 3 });
+        props.put("list", Arrays.asList(5L, 6L));
+
+        Assert.assertTrue(match("(int= 10 )", props));
+        Assert.assertTrue(match("(int<=10)", props));
+        Assert.assertFalse(match("(int>=11)", props));
+        Assert.assertFalse(match("(int=ten)", props));
+        Assert.assertTrue(match("(long=20)", props));
+        Assert.assertTrue(match("(float>=1.25)", props));
+        Assert.assertTrue(match("(bool=true)", props));
+        Assert.assertTrue(match("(char~=X)", props));
+        Assert.assertTrue(match("(decimal=2.5)", props));
+        Assert.assertTrue(match("(ints=2)", props));
+        Assert.assertTrue(match("(list=6)", props));
+        Assert.assertFalse(match("(list=7)", props));
+    }
+
+    @Test
+    public void testConversionCache() throws Exception {
+        // The same filter is matched against values of different types
+        Filter filter = FilterFactory.createFilter("(value=42)");
+        Map<String, Object> props = new HashMap<String, Object>();
+        for (Object value : new Object[] { 42, 42L, "42", (short) 42, 42.0d, 43, "43", 42 }) {
+            props.put("value", value);
+            boolean expected = !value.toString().startsWith("43");
+            Assert.assertEquals("Match " + value.getClass().getName(), expected, filter.matches(props));
+        }
+    }
+
+    @Test
+    public void testDictionaryMatch() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("Service.PID", "org.acme.foo");
+        Filter filter = FilterFactory.createFilter("(service.pid=org.acme.foo)");
+        Assert.assertTrue(filter.match(props));
+        Assert.assertFalse(filter.matchCase(props));
+    }
+
+    @Test
+    public void testServicePropertiesMatch() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("Service.PID", "org.acme.foo");
+        props.put("objectClass", new String[] { "org.acme.Foo" });
+        props.put("service.ranking", 10);
+        final ServiceProperties snapshot = new ServiceProperties(props);
+        Assert.assertEquals("org.acme.foo", snapshot.get("SERVICE.pid"));
+        Assert.assertEquals("org.acme.foo", snapshot.getNormalized("service.pid"));
+        Assert.assertEquals(3, snapshot.getKeys().length);
+
+        ServiceReference<?> sref = newServiceReference(snapshot);
+        Assert.assertTrue(FilterFactory.createFilter("(&(service.pid=org.acme.foo)(OBJECTCLASS=org.acme.Foo))").match(sref));
+        Assert.assertTrue(FilterFactory.createFilter("(&(service.ranking>=5)(!(missing=*)))").match(sref));
+        Assert.assertFalse(FilterFactory.createFilter("(|(service.pid=org.acme.bar)(service.ranking<=5))").match(sref));
+
+        props.put("SERVICE.pid", "org.acme.bar");
+        try {
+            new ServiceProperties(props);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNormalizedString() throws Exception {
+        // Evaluation order does not change the filter string
+        Filter filter = FilterFactory.createFilter("(&(name=*)(objectClass=org.acme.Foo)(service.pid=foo))");
+        Assert.assertEquals("(&(name=*)(objectClass=org.acme.Foo)(service.pid=foo))", filter.toString());
+    }
+
+    private boolean match(String filter, Map<String, Object> props) {
+        return FilterFactory.createFilter(filter).matches(props);
+    }
+
+    private ServiceReference<?> newServiceReference(final ServiceProperties snapshot) {
+        // A reference that only provides its properties as a snapshot
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getServiceProperties"))
+                    return snapshot;
+                throw new UnsupportedOperationException(method.getName());
+            }
+        };
+        ClassLoader classLoader = getClass().getClassLoader();
+        Class<?>[] interfaces = new Class<?>[] { ServiceReference.class, ServiceProperties.Provider.class };
+        return (ServiceReference<?>) Proxy.newProxyInstance(classLoader, interfaces, handler);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.StandardMBean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link ModuleEventDispatcher}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ModuleEventDispatcherTest {
+
+    @Test
+    public void testOrderedDelivery() throws Exception {
+        ModuleEventDispatcher dispatcher = new ModuleEventDispatcher("TestEvents", 4, 100);
+        try {
+            int listeners = 10;
+            int events = 500;
+            final CountDownLatch latch = new CountDownLatch(listeners * events);
+            List<List<Integer>> received = new ArrayList<List<Integer>>();
+            List<ModuleEventDispatcher.EventQueue> queues = new ArrayList<ModuleEventDispatcher.EventQueue>();
+            for (int i = 0; i < listeners; i++) {
+                received.add(Collections.synchronizedList(new ArrayList<Integer>()));
+                queues.add(new ModuleEventDispatcher.EventQueue());
+            }
+            for (int j = 0; j < events; j++) {
+                for (int i = 0; i < listeners; i++) {
+                    final List<Integer> list = received.get(i);
+                    final int value = j;
+                    dispatcher.dispatch(queues.get(i), new Runnable() {
+                        @Override
+                        public void run() {
+                            list.add(value);
+                            latch.countDown();
+                        }
+                    });
+                }
+            }
+            Assert.assertTrue("All events delivered", latch.await(10, TimeUnit.SECONDS));
+            for (List<Integer> list : received) {
+                Assert.assertEquals(events, list.size());
+                for (int j = 0; j < events; j++) {
+                    Assert.assertEquals(Integer.valueOf(j), list.get(j));
+                }
+            }
+            awaitDelivered(dispatcher, listeners * events);
+            Assert.assertEquals(listeners * events, dispatcher.getDeliveredEvents());
+            Assert.assertTrue("Events are batched", dispatcher.getDeliveredBatches() < dispatcher.getDeliveredEvents());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final ModuleEventDispatcher dispatcher = new ModuleEventDispatcher("TestEvents", 1, 2);
+        try {
+            final CountDownLatch blocking = new CountDownLatch(1);
+            final ModuleEventDispatcher.EventQueue queue = new ModuleEventDispatcher.EventQueue();
+            Runnable blocked = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocking.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            dispatcher.dispatch(queue, blocked);
+            dispatcher.dispatch(queue, blocked);
+
+            // The third event waits for capacity
+            final CountDownLatch dispatched = new CountDownLatch(1);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    dispatcher.dispatch(queue, new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    });
+                    dispatched.countDown();
+                }
+            };
+            thread.start();
+            Assert.assertFalse("Dispatch blocked", dispatched.await(200, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, dispatcher.getBlockedEvents());
+
+            blocking.countDown();
+            Assert.assertTrue("Dispatch completed", dispatched.await(10, TimeUnit.SECONDS));
+            thread.join();
+            awaitDelivered(dispatcher, 3);
+            Assert.assertEquals(0, dispatcher.getPendingEvents());
+            Assert.assertEquals(3, dispatcher.getDeliveredEvents());
+            Assert.assertEquals(0, dispatcher.getOverflowEvents());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testManagementView() throws Exception {
+        RuntimeEventsManager eventsManager = new RuntimeEventsManager(null);
+        ModuleEventDispatcher dispatcher = eventsManager.getModuleEventDispatcher();
+        dispatcher.dispatch(new ModuleEventDispatcher.EventQueue(), new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        awaitDelivered(dispatcher, 1);
+
+        StandardMBean mbean = new StandardMBean(dispatcher, ModuleEventDispatcherMBean.class);
+        Assert.assertEquals(ModuleEventDispatcher.DEFAULT_THREADS, mbean.getAttribute("ThreadCount"));
+        Assert.assertEquals(1L, mbean.getAttribute("DeliveredEvents"));
+        Assert.assertEquals(0, mbean.getAttribute("PendingEvents"));
+        Assert.assertEquals(Boolean.FALSE, mbean.getAttribute("Shutdown"));
+
+        // Runtime shutdown stops the dispatcher
+        eventsManager.shutdown();
+        Assert.assertEquals(Boolean.TRUE, mbean.getAttribute("Shutdown"));
+    }
+
+    private void awaitDelivered(ModuleEventDispatcher dispatcher, long count) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (dispatcher.getDeliveredEvents() < count && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+}
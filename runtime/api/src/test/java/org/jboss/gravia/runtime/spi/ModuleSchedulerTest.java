@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.gravia.resource.DefaultResourceBuilder;
+import org.jboss.gravia.resource.Resource;
+import org.jboss.gravia.resource.ResourceBuilder;
+import org.jboss.gravia.runtime.Module;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link ModuleScheduler}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ModuleSchedulerTest {
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+        Module modC = newModule(1, "C", null, "B");
+        Module modB = newModule(2, "B", null, "A");
+        Module modA = newModule(3, "A", null);
+        Module modD = newModule(4, "D", null);
+
+        ModuleScheduler scheduler = new ModuleScheduler(Arrays.asList(modD, modC, modB, modA));
+        Assert.assertEquals(Arrays.asList(modA, modB, modC, modD), scheduler.getStartOrder());
+        Assert.assertEquals(Arrays.asList(modD, modC, modB, modA), scheduler.getStopOrder());
+        Assert.assertEquals(Arrays.asList(modA), scheduler.getDependencies(modB));
+        Assert.assertTrue(scheduler.getDependencies(modD).isEmpty());
+    }
+
+    @Test
+    public void testDependencyCycle() throws Exception {
+        Module modA = newModule(1, "A", null, "B");
+        Module modB = newModule(2, "B", null, "A");
+        Module modC = newModule(3, "C", null, "B");
+
+        ModuleScheduler scheduler = new ModuleScheduler(Arrays.asList(modC, modB, modA));
+        Assert.assertEquals(Arrays.asList(modA, modB, modC), scheduler.getStartOrder());
+        Assert.assertEquals(Arrays.asList(modA), scheduler.getDependencies(modB));
+        Assert.assertTrue(scheduler.getDependencies(modA).isEmpty());
+    }
+
+    @Test
+    public void testDuplicateIdentity() throws Exception {
+        Module modA1 = newModule(1, "A", null);
+        Module modB = newModule(2, "B", null, "A");
+        Module modA2 = newModule(3, "A", null);
+
+        ModuleScheduler scheduler = new ModuleScheduler(Arrays.asList(modB, modA2, modA1));
+        Assert.assertEquals(Arrays.asList(modA1, modA2, modB), scheduler.getStartOrder());
+        Assert.assertEquals(Arrays.asList(modA1, modA2), scheduler.getDependencies(modB));
+    }
+
+    @Test
+    public void testManyModules() throws Exception {
+        // Every module depends on its successor in installation order
+        int count = 5000;
+        List<Module> modules = new ArrayList<Module>();
+        for (int i = 0; i < count; i++) {
+            modules.add(newModule(i, "M" + i, null, i + 1 < count ? "M" + (i + 1) : "M0"));
+        }
+
+        ModuleScheduler scheduler = new ModuleScheduler(modules);
+        List<Module> startOrder = scheduler.getStartOrder();
+        Assert.assertEquals(count, startOrder.size());
+
+        // The cycle is broken at the first module, the others start in reverse order
+        Assert.assertEquals(modules.get(0), startOrder.get(0));
+        for (int i = 1; i < count; i++) {
+            Assert.assertEquals(modules.get(count - i), startOrder.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentStart() throws Exception {
+        // A and B can only start together, C must wait for both
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final AtomicBoolean startedA = new AtomicBoolean();
+        final AtomicBoolean startedB = new AtomicBoolean();
+        final AtomicBoolean orderedC = new AtomicBoolean();
+        Module modA = newModule(1, "A", new Runnable() {
+            @Override
+            public void run() {
+                awaitBarrier(barrier);
+                startedA.set(true);
+            }
+        });
+        Module modB = newModule(2, "B", new Runnable() {
+            @Override
+            public void run() {
+                awaitBarrier(barrier);
+                startedB.set(true);
+            }
+        });
+        Module modC = newModule(3, "C", new Runnable() {
+            @Override
+            public void run() {
+                orderedC.set(startedA.get() && startedB.get());
+            }
+        }, "A", "B");
+
+        ModuleScheduler scheduler = new ModuleScheduler(Arrays.asList(modA, modB, modC));
+        ExecutorService executor = ModuleScheduler.createExecutor("ModuleStart", 2);
+        try {
+            Map<Module, Long> latencies = scheduler.startModules(executor);
+            Assert.assertEquals(Arrays.asList(modA, modB, modC), Arrays.asList(latencies.keySet().toArray()));
+            Assert.assertTrue(orderedC.get());
+            for (Long latency : latencies.values()) {
+                Assert.assertTrue(latency >= 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedDependency() throws Exception {
+        final AtomicBoolean startedB = new AtomicBoolean();
+        Module modA = newModule(1, "A", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        });
+        Module modB = newModule(2, "B", new Runnable() {
+            @Override
+            public void run() {
+                startedB.set(true);
+            }
+        }, "A");
+
+        ModuleScheduler scheduler = new ModuleScheduler(Arrays.asList(modA, modB));
+        ExecutorService executor = ModuleScheduler.createExecutor("ModuleStart", 2);
+        try {
+            Map<Module, Long> latencies = scheduler.startModules(executor);
+            Assert.assertEquals(2, latencies.size());
+            Assert.assertTrue(startedB.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitBarrier(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Module newModule(final long moduleId, final String symbolicName, final Runnable activator, String... requirements) {
+        ResourceBuilder builder = new DefaultResourceBuilder();
+        builder.addIdentityCapability(symbolicName, "1.0.0");
+        for (String req : requirements) {
+            builder.addIdentityRequirement(req);
+        }
+        final Resource resource = builder.getResource();
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("getModuleId")) {
+                    return moduleId;
+                } else if (name.equals("adapt")) {
+                    return args[0] == Resource.class ? resource : null;
+                } else if (name.equals("start")) {
+                    if (activator != null)
+                        activator.run();
+                    return null;
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("toString")) {
+                    return "Module[" + symbolicName + "]";
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        };
+        return (Module) Proxy.newProxyInstance(Module.class.getClassLoader(), new Class<?>[] { Module.class }, handler);
+    }
+}
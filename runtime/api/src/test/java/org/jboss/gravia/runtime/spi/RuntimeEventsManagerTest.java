@@ -0,0 +1,267 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.runtime.Module;
+import org.jboss.gravia.runtime.ModuleContext;
+import org.jboss.gravia.runtime.ServiceEvent;
+import org.jboss.gravia.runtime.ServiceListener;
+import org.jboss.gravia.runtime.ServiceReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the service listener routing in the {@link RuntimeEventsManager}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class RuntimeEventsManagerTest {
+
+    private RuntimeEventsManager eventsManager;
+
+    @Before
+    public void setUp() {
+        eventsManager = new RuntimeEventsManager(null);
+    }
+
+    @After
+    public void tearDown() {
+        eventsManager.shutdown();
+    }
+
+    @Test
+    public void testIndexedListeners() throws Exception {
+        Module module = newModule("moduleA");
+        RecordingListener classListener = new RecordingListener();
+        RecordingListener idListener = new RecordingListener();
+        RecordingListener otherListener = new RecordingListener();
+        eventsManager.addServiceListener(module, classListener, "(objectClass=org.acme.Foo)");
+        eventsManager.addServiceListener(module, idListener, "(service.id=20)");
+        eventsManager.addServiceListener(module, otherListener, "(objectClass=org.acme.Other)");
+
+        ServiceReference<?> srefA = newServiceReference(10L, "org.acme.Foo");
+        ServiceReference<?> srefB = newServiceReference(20L, "org.acme.Bar");
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, srefA);
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, srefB);
+
+        Assert.assertEquals(Arrays.asList(srefA), classListener.references);
+        Assert.assertEquals(Arrays.asList(srefB), idListener.references);
+        Assert.assertTrue(otherListener.events.isEmpty());
+    }
+
+    @Test
+    public void testUnindexedListeners() throws Exception {
+        Module module = newModule("moduleA");
+        RecordingListener compoundListener = new RecordingListener();
+        RecordingListener propertyListener = new RecordingListener();
+        RecordingListener allListener = new RecordingListener();
+        eventsManager.addServiceListener(module, compoundListener, "(|(objectClass=org.acme.Foo)(objectClass=org.acme.Bar))");
+        eventsManager.addServiceListener(module, propertyListener, "(service.pid=pidB)");
+        eventsManager.addServiceListener(module, allListener, null);
+
+        ServiceReference<?> srefA = newServiceReference(10L, "org.acme.Foo");
+        ServiceReference<?> srefB = newServiceReference(20L, "org.acme.Bar");
+        ServiceReference<?> srefC = newServiceReference(30L, "org.acme.Baz");
+        getProperties(srefB).put(Constants.SERVICE_PID, "pidB");
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, srefA);
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, srefB);
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, srefC);
+
+        Assert.assertEquals(Arrays.asList(srefA, srefB), compoundListener.references);
+        Assert.assertEquals(Arrays.asList(srefB), propertyListener.references);
+        Assert.assertEquals(Arrays.asList(srefA, srefB, srefC), allListener.references);
+    }
+
+    @Test
+    public void testRemoveServiceListener() throws Exception {
+        Module module = newModule("moduleA");
+        RecordingListener listener = new RecordingListener();
+        RecordingListener retained = new RecordingListener();
+        eventsManager.addServiceListener(module, listener, "(objectClass=org.acme.Foo)");
+        eventsManager.addServiceListener(module, retained, "(objectClass=org.acme.Foo)");
+
+        // Replacing the filter moves the listener to the id bucket
+        eventsManager.addServiceListener(module, listener, "(service.id=10)");
+        ServiceReference<?> sref = newServiceReference(10L, "org.acme.Foo");
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, sref);
+        Assert.assertEquals(1, listener.events.size());
+        Assert.assertEquals(1, retained.events.size());
+
+        eventsManager.removeServiceListener(module, listener);
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, sref);
+        Assert.assertEquals(1, listener.events.size());
+        Assert.assertEquals(2, retained.events.size());
+        Assert.assertEquals(1, eventsManager.getServiceListenerInfos(module).size());
+    }
+
+    @Test
+    public void testRemoveServiceListeners() throws Exception {
+        Module moduleA = newModule("moduleA");
+        Module moduleB = newModule("moduleB");
+        RecordingListener classListener = new RecordingListener();
+        RecordingListener idListener = new RecordingListener();
+        RecordingListener unindexedListener = new RecordingListener();
+        RecordingListener otherListener = new RecordingListener();
+        eventsManager.addServiceListener(moduleA, classListener, "(objectClass=org.acme.Foo)");
+        eventsManager.addServiceListener(moduleA, idListener, "(service.id=10)");
+        eventsManager.addServiceListener(moduleA, unindexedListener, null);
+        eventsManager.addServiceListener(moduleB, otherListener, "(objectClass=org.acme.Foo)");
+
+        eventsManager.removeServiceListeners(moduleA);
+        Assert.assertTrue(eventsManager.getServiceListenerInfos(moduleA).isEmpty());
+
+        ServiceReference<?> sref = newServiceReference(10L, "org.acme.Foo");
+        eventsManager.fireServiceEvent(moduleB, ServiceEvent.REGISTERED, sref);
+        Assert.assertTrue(classListener.events.isEmpty());
+        Assert.assertTrue(idListener.events.isEmpty());
+        Assert.assertTrue(unindexedListener.events.isEmpty());
+        Assert.assertEquals(Arrays.asList(sref), otherListener.references);
+    }
+
+    @Test
+    public void testModifiedEndMatch() throws Exception {
+        Module module = newModule("moduleA");
+        RecordingListener indexedListener = new RecordingListener();
+        RecordingListener unindexedListener = new RecordingListener();
+        RecordingListener allListener = new RecordingListener();
+        RecordingListener otherListener = new RecordingListener();
+        eventsManager.addServiceListener(module, indexedListener, "(&(objectClass=org.acme.Foo)(color=red))");
+        eventsManager.addServiceListener(module, unindexedListener, "(color=red)");
+        eventsManager.addServiceListener(module, allListener, null);
+        eventsManager.addServiceListener(module, otherListener, "(objectClass=org.acme.Other)");
+
+        ServiceReference<?> sref = newServiceReference(10L, "org.acme.Foo");
+        getProperties(sref).put("color", "red");
+        eventsManager.fireServiceEvent(module, ServiceEvent.REGISTERED, sref);
+
+        // Modify the service properties so that the filters no longer match
+        getProperties(sref).put("color", "blue");
+        eventsManager.fireServiceEvent(module, ServiceEvent.MODIFIED, sref);
+
+        Assert.assertEquals(Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED_ENDMATCH), indexedListener.events);
+        Assert.assertEquals(Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED_ENDMATCH), unindexedListener.events);
+        Assert.assertEquals(Arrays.asList(ServiceEvent.REGISTERED, ServiceEvent.MODIFIED), allListener.events);
+        Assert.assertTrue(otherListener.events.isEmpty());
+    }
+
+    private Module newModule(final String name) {
+        final ModuleContext[] context = new ModuleContext[1];
+        final Module module = (Module) Proxy.newProxyInstance(Module.class.getClassLoader(), new Class<?>[] { Module.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String methodName = method.getName();
+                if (methodName.equals("getModuleContext")) {
+                    return context[0];
+                } else if (methodName.equals("getState")) {
+                    return Module.State.ACTIVE;
+                } else if (methodName.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (methodName.equals("equals")) {
+                    return proxy == args[0];
+                } else if (methodName.equals("toString")) {
+                    return name;
+                }
+                throw new UnsupportedOperationException(methodName);
+            }
+        });
+        context[0] = (ModuleContext) Proxy.newProxyInstance(ModuleContext.class.getClassLoader(), new Class<?>[] { ModuleContext.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String methodName = method.getName();
+                if (methodName.equals("getModule")) {
+                    return module;
+                } else if (methodName.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (methodName.equals("equals")) {
+                    return proxy == args[0];
+                } else if (methodName.equals("toString")) {
+                    return name;
+                }
+                throw new UnsupportedOperationException(methodName);
+            }
+        });
+        return module;
+    }
+
+    private ServiceReference<?> newServiceReference(Long serviceId, String className) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(Constants.SERVICE_ID, serviceId);
+        properties.put(Constants.OBJECTCLASS, new String[] { className });
+        return (ServiceReference<?>) Proxy.newProxyInstance(ServiceReference.class.getClassLoader(), new Class<?>[] { ServiceReference.class }, new PropertiesHandler(properties));
+    }
+
+    private Map<String, Object> getProperties(ServiceReference<?> sref) {
+        return ((PropertiesHandler) Proxy.getInvocationHandler(sref)).properties;
+    }
+
+    static class PropertiesHandler implements InvocationHandler {
+
+        private final Map<String, Object> properties;
+
+        PropertiesHandler(Map<String, Object> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (methodName.equals("getProperty")) {
+                return properties.get(args[0]);
+            } else if (methodName.equals("getPropertyKeys")) {
+                return properties.keySet().toArray(new String[properties.size()]);
+            } else if (methodName.equals("isAssignableTo")) {
+                return true;
+            } else if (methodName.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (methodName.equals("equals")) {
+                return proxy == args[0];
+            } else if (methodName.equals("toString")) {
+                return "ServiceReference" + properties;
+            }
+            throw new UnsupportedOperationException(methodName);
+        }
+    }
+
+    static class RecordingListener implements ServiceListener {
+
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<ServiceReference<?>> references = Collections.synchronizedList(new ArrayList<ServiceReference<?>>());
+
+        @Override
+        public void serviceChanged(ServiceEvent event) {
+            events.add(event.getType());
+            references.add(event.getServiceReference());
+        }
+    }
+}
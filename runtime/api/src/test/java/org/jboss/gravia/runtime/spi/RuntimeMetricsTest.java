@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: API
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.spi;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the {@link RuntimeMetrics}
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class RuntimeMetricsTest {
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        RuntimeMetrics metrics = RuntimeMetricsLocator.getMetrics();
+        Assert.assertFalse(metrics.isEnabled());
+        Assert.assertEquals(0, metrics.startTimer());
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, "foo", 0);
+        metrics.incrementCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS);
+    }
+
+    @Test
+    public void testInstallAndRelease() throws Exception {
+        DefaultRuntimeMetrics metrics = new DefaultRuntimeMetrics();
+        RuntimeMetricsLocator.setMetrics(metrics);
+        try {
+            Assert.assertSame(metrics, RuntimeMetricsLocator.getMetrics());
+            Assert.assertFalse(RuntimeMetricsLocator.releaseMetrics(new DefaultRuntimeMetrics()));
+            Assert.assertSame(metrics, RuntimeMetricsLocator.getMetrics());
+            Assert.assertTrue(RuntimeMetricsLocator.releaseMetrics(metrics));
+            Assert.assertFalse(RuntimeMetricsLocator.getMetrics().isEnabled());
+        } finally {
+            RuntimeMetricsLocator.setMetrics(null);
+        }
+    }
+
+    @Test
+    public void testLatencies() throws Exception {
+        DefaultRuntimeMetrics metrics = new DefaultRuntimeMetrics();
+        long now = System.nanoTime();
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, null, now - 1000000);
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, null, now - 100000000);
+
+        Assert.assertEquals(Arrays.asList(RuntimeMetrics.MODULE_START), Arrays.asList(metrics.getLatencyNames()));
+        Assert.assertEquals(2, metrics.getLatencyCount(RuntimeMetrics.MODULE_START));
+        Assert.assertEquals(0, metrics.getLatencyCount(RuntimeMetrics.MODULE_INSTALL));
+        Assert.assertTrue(metrics.getMaxLatency(RuntimeMetrics.MODULE_START) >= 100.0);
+        Assert.assertTrue(metrics.getMeanLatency(RuntimeMetrics.MODULE_START) >= 50.5);
+        Assert.assertEquals(0.0, metrics.getMeanLatency(RuntimeMetrics.MODULE_INSTALL), 0.0);
+    }
+
+    @Test
+    public void testHistogramPercentiles() throws Exception {
+        DefaultRuntimeMetrics.Histogram histogram = new DefaultRuntimeMetrics.Histogram();
+        Assert.assertEquals(0.0, histogram.percentile(50), 0.0);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3000));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3000));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(5000));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100000));
+
+        // Percentiles report the upper bound of the power of two bucket in microseconds
+        Assert.assertEquals(4.096, histogram.percentile(50), 0.0);
+        Assert.assertEquals(8.192, histogram.percentile(75), 0.0);
+        Assert.assertEquals(100.0, histogram.percentile(99), 0.0);
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        DefaultRuntimeMetrics metrics = new DefaultRuntimeMetrics();
+        metrics.incrementCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS);
+        metrics.incrementCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS);
+        Assert.assertEquals(Arrays.asList(RuntimeMetrics.SERVICE_LISTENER_CALLS), Arrays.asList(metrics.getCounterNames()));
+        Assert.assertEquals(2, metrics.getCounter(RuntimeMetrics.SERVICE_LISTENER_CALLS));
+        Assert.assertEquals(0, metrics.getCounter("foo"));
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getCounterNames().length);
+    }
+
+    @Test
+    public void testStartupTimeline() throws Exception {
+        DefaultRuntimeMetrics metrics = new DefaultRuntimeMetrics(2);
+        metrics.recordLatency(RuntimeMetrics.MODULE_INSTALL, "mod\"A\"", metrics.startTimer());
+        metrics.recordLatency(RuntimeMetrics.SERVICE_EVENT, null, metrics.startTimer());
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, "modA", metrics.startTimer());
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, "modB", metrics.startTimer());
+
+        // A full timeline does not convert the subject
+        metrics.recordLatency(RuntimeMetrics.MODULE_START, new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("Subject converted");
+            }
+        }, metrics.startTimer());
+
+        String json = metrics.getStartupTimeline();
+        Assert.assertTrue(json, json.startsWith("{\"startTime\":"));
+        Assert.assertTrue(json, json.contains("\"dropped\":2,"));
+        Assert.assertTrue(json, json.contains("{\"name\":\"module.install\",\"subject\":\"mod\\\"A\\\"\",\"thread\":"));
+        Assert.assertTrue(json, json.contains("{\"name\":\"module.start\",\"subject\":\"modA\",\"thread\":"));
+        Assert.assertFalse(json, json.contains("modB"));
+        Assert.assertFalse(json, json.contains("service.event"));
+        Assert.assertTrue(json, json.endsWith("}]}"));
+
+        metrics.reset();
+        Assert.assertTrue(metrics.getStartupTimeline().endsWith("\"dropped\":0,\"events\":[]}"));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.embedded.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.gravia.runtime.embedded.spi.AssignabilityCacheMBean;
+
+/**
+ * Caches whether a class name resolves to the same class in the class space of a
+ * requesting module and of the module that registered a service.
+ *
+ * The class loaders are held weakly, so that the cache does not pin the class loaders
+ * of uninstalled modules. Results for a class loader are invalidated when its module
+ * is uninstalled, or removed when the class loader is collected.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class AssignabilityCache implements AssignabilityCacheMBean {
+
+    private final ConcurrentMap<CacheKey, Boolean> entries = new ConcurrentHashMap<CacheKey, Boolean>();
+    private final ReferenceQueue<ClassLoader> staleLoaders = new ReferenceQueue<ClassLoader>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * Get the cached result, or null if there is none.
+     */
+    Boolean get(ClassLoader requester, ClassLoader owner, String className) {
+        Boolean result = entries.get(new LookupKey(requester, owner, className));
+        if (result != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    void put(ClassLoader requester, ClassLoader owner, String className, boolean assignable) {
+        expungeStaleEntries();
+        entries.put(new StoredKey(requester, owner, className, staleLoaders), assignable);
+    }
+
+    /**
+     * Remove all results that involve the given class loader.
+     */
+    void invalidate(ClassLoader classLoader) {
+        Iterator<CacheKey> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            CacheKey key = iterator.next();
+            if (key.getRequester() == classLoader || key.getOwner() == classLoader) {
+                iterator.remove();
+                invalidationCount.incrementAndGet();
+            }
+        }
+        expungeStaleEntries();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends ClassLoader> ref;
+        while ((ref = staleLoaders.poll()) != null) {
+            if (entries.remove(((LoaderReference) ref).key) != null) {
+                invalidationCount.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        hitCount.set(0);
+        missCount.set(0);
+        invalidationCount.set(0);
+    }
+
+    /**
+     * A key that compares the class loaders by identity.
+     */
+    private static abstract class CacheKey {
+
+        private final String className;
+        private final int hash;
+
+        CacheKey(ClassLoader requester, ClassLoader owner, String className) {
+            this.className = className;
+            this.hash = (31 * System.identityHashCode(requester) + System.identityHashCode(owner)) * 31 + className.hashCode();
+        }
+
+        abstract ClassLoader getRequester();
+
+        abstract ClassLoader getOwner();
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof CacheKey))
+                return false;
+            CacheKey other = (CacheKey) obj;
+            if (hash != other.hash || !className.equals(other.className))
+                return false;
+            ClassLoader requester = getRequester();
+            ClassLoader owner = getOwner();
+            return requester != null && owner != null && requester == other.getRequester() && owner == other.getOwner();
+        }
+    }
+
+    /**
+     * A short lived key that is used for lookups only.
+     */
+    private static final class LookupKey extends CacheKey {
+
+        private final ClassLoader requester;
+        private final ClassLoader owner;
+
+        LookupKey(ClassLoader requester, ClassLoader owner, String className) {
+            super(requester, owner, className);
+            this.requester = requester;
+            this.owner = owner;
+        }
+
+        @Override
+        ClassLoader getRequester() {
+            return requester;
+        }
+
+        @Override
+        ClassLoader getOwner() {
+            return owner;
+        }
+    }
+
+    /**
+     * The key of a cached result, which does not prevent the class loaders from being collected.
+     */
+    private static final class StoredKey extends CacheKey {
+
+        private final LoaderReference requester;
+        private final LoaderReference owner;
+
+        StoredKey(ClassLoader requester, ClassLoader owner, String className, ReferenceQueue<ClassLoader> queue) {
+            super(requester, owner, className);
+            this.requester = new LoaderReference(requester, this, queue);
+            this.owner = new LoaderReference(owner, this, queue);
+        }
+
+        @Override
+        ClassLoader getRequester() {
+            return requester.get();
+        }
+
+        @Override
+        ClassLoader getOwner() {
+            return owner.get();
+        }
+    }
+
+    private static final class LoaderReference extends WeakReference<ClassLoader> {
+
+        private final StoredKey key;
+
+        LoaderReference(ClassLoader classLoader, StoredKey key, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            this.key = key;
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.jboss.gravia.runtime.embedded.spi.BundleAdaptor;
 import org.jboss.gravia.runtime.spi.AbstractModule;
 import org.jboss.gravia.runtime.spi.AbstractRuntime;
 import org.jboss.gravia.runtime.spi.RuntimeEventsManager;
+import org.jboss.gravia.runtime.spi.RuntimeMetrics;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 
@@ -131,6 +132,9 @@ final class EmbeddedModule extends AbstractModule {
                 return;
             }
 
+            RuntimeMetrics metrics = getRuntime().adapt(RuntimeMetrics.class);
+            long start = metrics.startTimer();
+
             // #3 This bundle's state is set to {@code STARTING}.
             setState(State.STARTING);
 
@@ -200,6 +204,7 @@ final class EmbeddedModule extends AbstractModule {
             // #7 A module event of type {@link ModuleEvent#STARTED} is fired.
             eventHandler.fireModuleEvent(this, ModuleEvent.STARTED);
 
+            metrics.recordLatency(RuntimeMetrics.MODULE_START, this, start);
             LOGGER.info("Started: {}", this);
         } catch (InterruptedException ex) {
             throw ModuleException.launderThrowable(ex);
@@ -32,11 +32,17 @@ import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
 import javax.management.MBeanServer;
 import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import org.jboss.gravia.Constants;
 import org.jboss.gravia.resource.Attachable;
@@ -49,12 +55,17 @@ import org.jboss.gravia.runtime.ModuleException;
 import org.jboss.gravia.runtime.Runtime;
 import org.jboss.gravia.runtime.ServiceLocator;
 import org.jboss.gravia.runtime.ServiceRegistration;
+import org.jboss.gravia.runtime.embedded.spi.AssignabilityCacheMBean;
 import org.jboss.gravia.runtime.spi.AbstractModule;
 import org.jboss.gravia.runtime.spi.AbstractRuntime;
 import org.jboss.gravia.runtime.spi.ClassLoaderEntriesProvider;
+import org.jboss.gravia.runtime.spi.FilterCacheMBean;
 import org.jboss.gravia.runtime.spi.ModuleEntriesProvider;
+import org.jboss.gravia.runtime.spi.ModuleEventDispatcherMBean;
+import org.jboss.gravia.runtime.spi.ModuleScheduler;
 import org.jboss.gravia.runtime.spi.PropertiesProvider;
 import org.jboss.gravia.runtime.spi.RuntimeEventsManager;
+import org.jboss.gravia.runtime.spi.RuntimeMetricsMBean;
 import org.jboss.gravia.runtime.spi.RuntimePlugin;
 import org.jboss.gravia.utils.IllegalArgumentAssertion;
 import org.osgi.service.cm.Configuration;
@@ -72,9 +83,13 @@ public class EmbeddedRuntime extends AbstractRuntime {
     private final RuntimeServicesManager serviceManager;
     private final RuntimeStorageHandler storageHandler;
     private final List<ServiceRegistration<?>> systemServices = new ArrayList<ServiceRegistration<?>>();
+    private final List<ObjectName> runtimeMBeans = new ArrayList<ObjectName>();
+    private MBeanServer runtimeMBeanServer;
+    private final int startThreads;
 
     public EmbeddedRuntime(PropertiesProvider propertiesProvider, Attachable context) {
         super(propertiesProvider);
+        startThreads = getStartThreads();
         serviceManager = new RuntimeServicesManager(adapt(RuntimeEventsManager.class));
         storageHandler = new RuntimeStorageHandler(propertiesProvider, true);
 
@@ -103,7 +118,12 @@ public class EmbeddedRuntime extends AbstractRuntime {
         systemServices.add(registerLogService(syscontext));
 
         // Register the MBeanServer service
-        systemServices.add(registerMBeanServer(syscontext));
+        ServiceRegistration<MBeanServer> mbeanServerReg = registerMBeanServer(syscontext);
+        systemServices.add(mbeanServerReg);
+
+        // Register the runtime MBeans
+        MBeanServer mbeanServer = syscontext.getService(mbeanServerReg.getReference());
+        registerRuntimeMBeans(mbeanServer);
 
         // Install the plugin modules
         List<Module> pluginModules = installPluginModules();
@@ -128,6 +148,30 @@ public class EmbeddedRuntime extends AbstractRuntime {
         return syscontext.registerService(MBeanServer.class, mbeanServer, null);
     }
 
+    protected void registerRuntimeMBeans(MBeanServer mbeanServer) {
+        runtimeMBeanServer = mbeanServer;
+        registerRuntimeMBean(adapt(FilterCacheMBean.class), FilterCacheMBean.class, FilterCacheMBean.OBJECT_NAME);
+        registerRuntimeMBean(adapt(AssignabilityCacheMBean.class), AssignabilityCacheMBean.class, AssignabilityCacheMBean.OBJECT_NAME);
+        registerRuntimeMBean(adapt(ModuleEventDispatcherMBean.class), ModuleEventDispatcherMBean.class, ModuleEventDispatcherMBean.OBJECT_NAME);
+        RuntimeMetricsMBean metrics = adapt(RuntimeMetricsMBean.class);
+        if (metrics != null) {
+            registerRuntimeMBean(metrics, RuntimeMetricsMBean.class, RuntimeMetricsMBean.OBJECT_NAME);
+        }
+    }
+
+    private <T> void registerRuntimeMBean(T implementation, Class<T> mbeanInterface, ObjectName objectName) {
+        if (runtimeMBeanServer.isRegistered(objectName)) {
+            LOGGER.debug("MBean already registered: {}", objectName);
+            return;
+        }
+        try {
+            runtimeMBeanServer.registerMBean(new StandardMBean(implementation, mbeanInterface), objectName);
+            runtimeMBeans.add(objectName);
+        } catch (JMException ex) {
+            LOGGER.warn("Cannot register MBean: " + objectName, ex);
+        }
+    }
+
     protected List<Module> installPluginModules() {
         List<Module> pluginModules = new ArrayList<Module>();
         ClassLoader classLoader = getClass().getClassLoader();
@@ -148,15 +192,36 @@ public class EmbeddedRuntime extends AbstractRuntime {
     }
 
     protected void startPluginModules(List<Module> pluginModules) {
-        for (Module module : pluginModules) {
-            try {
-                module.start();
-            } catch (ModuleException ex) {
-                LOGGER.error("Cannot start plugin: " + module, ex);
+        ModuleScheduler scheduler = new ModuleScheduler(pluginModules);
+        ExecutorService executor = startThreads > 1 && pluginModules.size() > 1 ? ModuleScheduler.createExecutor("ModuleStart", startThreads) : null;
+        try {
+            long start = System.nanoTime();
+            Map<Module, Long> latencies = scheduler.startModules(executor);
+            LOGGER.debug("Started {} plugin modules in {}ms: {}", latencies.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), latencies);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while starting plugins", ex);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
             }
         }
     }
 
+    private int getStartThreads() {
+        Object value = getProperty(Constants.RUNTIME_START_THREADS);
+        if (value == null)
+            return 1;
+        int threads;
+        try {
+            threads = Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + Constants.RUNTIME_START_THREADS + ", expected a positive integer: " + value, ex);
+        }
+        IllegalArgumentAssertion.assertTrue(threads > 0, "Invalid " + Constants.RUNTIME_START_THREADS + ", expected a positive integer: " + value);
+        return threads;
+    }
+
     protected void loadInitialConfigurations(ModuleContext syscontext) {
         String configs = (String) getProperty(Constants.RUNTIME_CONFIGURATIONS_DIR);
         if (configs != null) {
@@ -192,6 +257,8 @@ public class EmbeddedRuntime extends AbstractRuntime {
                 result = (A) serviceManager;
             } else if (type.isAssignableFrom(RuntimeStorageHandler.class)) {
                 result = (A) storageHandler;
+            } else if (type.isAssignableFrom(AssignabilityCacheMBean.class)) {
+                result = (A) serviceManager.getAssignabilityCache();
             }
         }
         return result;
@@ -199,12 +266,23 @@ public class EmbeddedRuntime extends AbstractRuntime {
 
     @Override
     protected void uninstallModule(Module module) {
+        ClassLoader classLoader = module.adapt(ClassLoader.class);
         super.uninstallModule(module);
+        if (classLoader != null) {
+            serviceManager.getAssignabilityCache().invalidate(classLoader);
+        }
     }
 
     @Override
     protected void doShutdown() {
         super.doShutdown();
+        for (ObjectName objectName : runtimeMBeans) {
+            try {
+                runtimeMBeanServer.unregisterMBean(objectName);
+            } catch (JMException ex) {
+                LOGGER.warn("Cannot unregister MBean: " + objectName, ex);
+            }
+        }
         for (ServiceRegistration<?> sreg : systemServices) {
             sreg.unregister();
         }
@@ -24,12 +24,7 @@ import static org.jboss.gravia.runtime.spi.RuntimeLogger.LOGGER;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Dictionary;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.gravia.runtime.Filter;
@@ -54,17 +49,29 @@ import org.osgi.framework.Bundle;
 final class RuntimeServicesManager {
 
     private final RuntimeEventsManager frameworkEvents;
-    private final Map<String, List<ServiceState<?>>> serviceMap = new ConcurrentHashMap<String, List<ServiceState<?>>>();
+    private final ServiceRegistry serviceRegistry = new ServiceRegistry();
+    private final AssignabilityCache assignabilityCache = new AssignabilityCache();
     private final AtomicLong identityGenerator = new AtomicLong();
 
     RuntimeServicesManager(RuntimeEventsManager frameworkEvents) {
         this.frameworkEvents = frameworkEvents;
     }
 
+    AssignabilityCache getAssignabilityCache() {
+        return assignabilityCache;
+    }
+
     void fireServiceEvent(Module module, int type, ServiceState<?> serviceState) {
         frameworkEvents.fireServiceEvent(module, type, serviceState);
     }
 
+    /**
+     * Reindex the given service after its properties have been modified.
+     */
+    void updateServiceProperties(ServiceState<?> serviceState) {
+        serviceRegistry.updateService(serviceState);
+    }
+
     private long getNextServiceId() {
         return identityGenerator.incrementAndGet();
     }
@@ -101,17 +108,7 @@ final class RuntimeServicesManager {
         ServiceState<?> serviceState = new ServiceState<Object>(this, context.getModule(), serviceId, classNames, valueProvider, properties);
         LOGGER.debug("Register service: {}", serviceState);
 
-        for (String className : classNames) {
-            List<ServiceState<?>> serviceStates;
-            synchronized (serviceMap) {
-                serviceStates = serviceMap.get(className);
-                if (serviceStates == null) {
-                    serviceStates = new CopyOnWriteArrayList<ServiceState<?>>();
-                    serviceMap.put(className, serviceStates);
-                }
-            }
-            serviceStates.add(serviceState);
-        }
+        serviceRegistry.addService(serviceState);
         //module.addRegisteredService(serviceState);
 
         // This event is synchronously delivered after the service has been registered with the Framework.
@@ -130,12 +127,15 @@ final class RuntimeServicesManager {
     ServiceState<?> getServiceReference(ModuleContext context, String clazz) {
         assert clazz != null : "Null clazz";
 
-        List<ServiceState<?>> result = getServiceReferencesInternal(context, clazz, NoFilter.INSTANCE, true);
-        if (result.isEmpty())
-            return null;
-
-        int lastIndex = result.size() - 1;
-        return result.get(lastIndex);
+        // The best service comes last
+        List<ServiceState<?>> candidates = serviceRegistry.getCandidates(clazz, NoFilter.INSTANCE);
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            ServiceState<?> serviceState = candidates.get(i);
+            if (isMatchingService(context, serviceState, clazz, NoFilter.INSTANCE, true)) {
+                return serviceState;
+            }
+        }
+        return null;
     }
 
     /**
@@ -163,33 +163,18 @@ final class RuntimeServicesManager {
         assert module != null : "Null module";
         assert filter != null : "Null filter";
 
-        Set<ServiceState<?>> initialSet = new HashSet<ServiceState<?>>();
-        if (className != null) {
-            List<ServiceState<?>> list = serviceMap.get(className);
-            if (list != null) {
-                initialSet.addAll(list);
-            }
-        } else {
-            for (List<ServiceState<?>> list : serviceMap.values()) {
-                initialSet.addAll(list);
-            }
-        }
-
-        if (initialSet.isEmpty())
+        List<ServiceState<?>> candidates = serviceRegistry.getCandidates(className, filter);
+        if (candidates.isEmpty())
             return Collections.emptyList();
 
-        Set<ServiceState<?>> resultset = new HashSet<ServiceState<?>>();
-        for (ServiceState<?> serviceState : initialSet) {
+        // The candidates are already sorted
+        List<ServiceState<?>> resultList = new ArrayList<ServiceState<?>>(candidates.size());
+        for (ServiceState<?> serviceState : candidates) {
             if (isMatchingService(module, serviceState, className, filter, checkAssignable)) {
-                resultset.add(serviceState);
+                resultList.add(serviceState);
             }
         }
 
-        // Sort the result
-        List<ServiceState<?>> resultList = new ArrayList<ServiceState<?>>(resultset);
-        if (resultList.size() > 1)
-            Collections.sort(resultList, ServiceReferenceComparator.getInstance());
-
         return Collections.unmodifiableList(resultList);
     }
 
@@ -212,15 +197,16 @@ final class RuntimeServicesManager {
         if (serviceState.isUnregistered())
             return null;
 
-        // Add the given service ref to the list of used services
-        serviceState.addUsingModule((AbstractModule) context.getModule());
+        // Increment the use count of the context module
+        AbstractModule module = (AbstractModule) context.getModule();
+        serviceState.addUsingModule(module);
 
-        S value = serviceState.getScopedValue(context.getModule());
+        S value = serviceState.getScopedValue(module);
 
         // If the factory returned an invalid value
         // restore the service usage counts
         if (value == null) {
-            serviceState.removeUsingModule((AbstractModule) context.getModule());
+            serviceState.removeUsingModule(module);
         }
 
         return value;
@@ -234,15 +220,10 @@ final class RuntimeServicesManager {
             return;
 
         LOGGER.debug("Unregister service: {}", serviceState);
-        for (String className : serviceState.getClassNames()) {
-            try {
-                List<ServiceState<?>> serviceStates = serviceMap.get(className);
-                if (serviceStates != null) {
-                    serviceStates.remove(serviceState);
-                }
-            } catch (RuntimeException ex) {
-                LOGGER.error("Cannot unregister service: " + className, ex);
-            }
+        try {
+            serviceRegistry.removeService(serviceState);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Cannot unregister service: " + serviceState, ex);
         }
 
         Module serviceOwner = serviceState.getServiceOwner();
@@ -266,11 +247,11 @@ final class RuntimeServicesManager {
      *         unregistered; <code>true</code> otherwise.
      */
     boolean ungetService(AbstractModule module, ServiceState<?> serviceState) {
+        int useCount = serviceState.removeUsingModule(module);
+        if (useCount < 0)
+            return false;
+
         serviceState.ungetScopedValue(module);
-        int useCount = module.removeServiceInUse(serviceState);
-        if (useCount == 0) {
-            serviceState.removeUsingModule(module);
-        }
-        return useCount >= 0;
+        return true;
     }
 }
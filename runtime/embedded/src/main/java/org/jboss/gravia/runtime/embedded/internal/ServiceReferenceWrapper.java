@@ -21,6 +21,7 @@ package org.jboss.gravia.runtime.embedded.internal;
 
 import org.jboss.gravia.runtime.Module;
 import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.runtime.spi.ServiceProperties;
 
 
 /**
@@ -29,7 +30,7 @@ import org.jboss.gravia.runtime.ServiceReference;
  * @author thomas.diesler@jboss.com
  * @since 29-Jun-2010
  */
-final class ServiceReferenceWrapper<T> implements ServiceReference<T> {
+final class ServiceReferenceWrapper<T> implements ServiceReference<T>, ServiceProperties.Provider {
 
     private ServiceState<T> delegate;
 
@@ -42,6 +43,11 @@ final class ServiceReferenceWrapper<T> implements ServiceReference<T> {
         return delegate;
     }
 
+    @Override
+    public ServiceProperties getServiceProperties() {
+        return delegate.getServiceProperties();
+    }
+
     @Override
     public Object getProperty(String key) {
         return delegate.getProperty(key);
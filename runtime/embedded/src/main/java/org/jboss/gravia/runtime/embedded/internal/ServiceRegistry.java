@@ -0,0 +1,331 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.embedded.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.gravia.runtime.Filter;
+import org.jboss.gravia.runtime.spi.IndexableFilter;
+
+/**
+ * The registered services, indexed by class name and commonly filtered properties.
+ *
+ * Every index holds an immutable list that is sorted by service ranking and id,
+ * such that the best service comes last. Lookups read the lists without locking.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ *
+ * @ThreadSafe
+ */
+final class ServiceRegistry {
+
+    static final String COMPONENT_NAME = "component.name";
+
+    // The properties that have a secondary index
+    private static final String[] INDEXED_PROPERTIES = new String[] { org.jboss.gravia.Constants.SERVICE_PID, COMPONENT_NAME };
+
+    private static final Comparator<ServiceState<?>> COMPARATOR = new Comparator<ServiceState<?>>() {
+        @Override
+        public int compare(ServiceState<?> state1, ServiceState<?> state2) {
+            // Lower ranking first, then higher id first
+            int ranking1 = state1.getServiceRanking();
+            int ranking2 = state2.getServiceRanking();
+            if (ranking1 != ranking2)
+                return ranking1 < ranking2 ? -1 : 1;
+            long id1 = state1.getServiceId();
+            long id2 = state2.getServiceId();
+            return id1 == id2 ? 0 : (id1 > id2 ? -1 : 1);
+        }
+    };
+
+    private final Map<String, List<ServiceState<?>>> classIndex = new ConcurrentHashMap<String, List<ServiceState<?>>>();
+    private final PropertyIndex[] propertyIndexes = new PropertyIndex[INDEXED_PROPERTIES.length];
+    private volatile List<ServiceState<?>> allServices = Collections.emptyList();
+
+    // The property values a service was indexed with
+    private final Map<ServiceState<?>, Object[]> indexedValues = new IdentityHashMap<ServiceState<?>, Object[]>();
+
+    ServiceRegistry() {
+        for (int i = 0; i < propertyIndexes.length; i++) {
+            propertyIndexes[i] = new PropertyIndex();
+        }
+    }
+
+    synchronized void addService(ServiceState<?> serviceState) {
+        assert serviceState != null : "Null serviceState";
+        if (indexedValues.containsKey(serviceState))
+            return;
+
+        for (String className : serviceState.getClassNames()) {
+            List<ServiceState<?>> list = classIndex.get(className);
+            classIndex.put(className, insert(list, serviceState));
+        }
+        allServices = insert(allServices, serviceState);
+
+        Object[] values = new Object[INDEXED_PROPERTIES.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = serviceState.getProperty(INDEXED_PROPERTIES[i]);
+            propertyIndexes[i].add(serviceState, values[i]);
+        }
+        indexedValues.put(serviceState, values);
+    }
+
+    synchronized void removeService(ServiceState<?> serviceState) {
+        assert serviceState != null : "Null serviceState";
+        Object[] values = indexedValues.remove(serviceState);
+        if (values == null)
+            return;
+
+        for (String className : serviceState.getClassNames()) {
+            List<ServiceState<?>> list = remove(classIndex.get(className), serviceState);
+            if (list.isEmpty()) {
+                classIndex.remove(className);
+            } else {
+                classIndex.put(className, list);
+            }
+        }
+        allServices = remove(allServices, serviceState);
+
+        for (int i = 0; i < values.length; i++) {
+            propertyIndexes[i].remove(serviceState, values[i]);
+        }
+    }
+
+    /**
+     * Reindex a service after its properties have changed.
+     */
+    synchronized void updateService(ServiceState<?> serviceState) {
+        Object[] oldValues = indexedValues.get(serviceState);
+        if (oldValues == null)
+            return;
+
+        serviceState.updateServiceRanking();
+
+        // Every list is replaced with a single write, so that no lookup misses the service
+        for (String className : serviceState.getClassNames()) {
+            classIndex.put(className, reinsert(classIndex.get(className), serviceState));
+        }
+        allServices = reinsert(allServices, serviceState);
+
+        Object[] values = new Object[INDEXED_PROPERTIES.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = serviceState.getProperty(INDEXED_PROPERTIES[i]);
+            propertyIndexes[i].update(serviceState, oldValues[i], values[i]);
+        }
+        indexedValues.put(serviceState, values);
+    }
+
+    /**
+     * Get the sorted services that are candidates for the given class name and filter.
+     *
+     * The filter still needs to be matched against the returned services.
+     * The smallest applicable index is used.
+     *
+     * @param className The class name or <code>null</code> for all classes
+     * @param filter The filter
+     */
+    List<ServiceState<?>> getCandidates(String className, Filter filter) {
+        assert filter != null : "Null filter";
+
+        if (className == null && filter instanceof IndexableFilter) {
+            className = ((IndexableFilter) filter).getRequiredValue(org.jboss.gravia.Constants.OBJECTCLASS);
+        }
+
+        List<ServiceState<?>> result;
+        if (className != null) {
+            result = classIndex.get(className);
+            if (result == null)
+                return Collections.emptyList();
+        } else {
+            result = allServices;
+        }
+
+        if (filter instanceof IndexableFilter) {
+            IndexableFilter indexable = (IndexableFilter) filter;
+            for (int i = 0; i < INDEXED_PROPERTIES.length && result.size() > 1; i++) {
+                String value = indexable.getRequiredValue(INDEXED_PROPERTIES[i]);
+                if (value != null) {
+                    List<ServiceState<?>> candidates = propertyIndexes[i].getCandidates(value);
+                    if (candidates.size() < result.size()) {
+                        result = className != null ? withClassName(candidates, className) : candidates;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // A property bucket spans all classes, keep the services registered under the given class
+    private static List<ServiceState<?>> withClassName(List<ServiceState<?>> candidates, String className) {
+        List<ServiceState<?>> result = new ArrayList<ServiceState<?>>(candidates.size());
+        for (ServiceState<?> serviceState : candidates) {
+            if (serviceState.getClassNames().contains(className)) {
+                result.add(serviceState);
+            }
+        }
+        return result;
+    }
+
+    private static List<ServiceState<?>> insert(List<ServiceState<?>> list, ServiceState<?> serviceState) {
+        ServiceState<?>[] source = list != null ? list.toArray(new ServiceState<?>[list.size()]) : new ServiceState<?>[0];
+        int index = Arrays.binarySearch(source, serviceState, COMPARATOR);
+        if (index >= 0)
+            return list;
+        index = -(index + 1);
+        ServiceState<?>[] target = new ServiceState<?>[source.length + 1];
+        System.arraycopy(source, 0, target, 0, index);
+        target[index] = serviceState;
+        System.arraycopy(source, index, target, index + 1, source.length - index);
+        return Collections.unmodifiableList(Arrays.asList(target));
+    }
+
+    // Move the service to the position of its current ranking
+    private static List<ServiceState<?>> reinsert(List<ServiceState<?>> list, ServiceState<?> serviceState) {
+        return insert(remove(list, serviceState), serviceState);
+    }
+
+    private static List<ServiceState<?>> remove(List<ServiceState<?>> list, ServiceState<?> serviceState) {
+        if (list == null || !list.contains(serviceState))
+            return list != null ? list : Collections.<ServiceState<?>> emptyList();
+        List<ServiceState<?>> result = new ArrayList<ServiceState<?>>(list);
+        result.remove(serviceState);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * An index on the string values of a property.
+     *
+     * Services with a value that is not a string, string array or string collection
+     * cannot be indexed and are candidates for every value.
+     */
+    private static final class PropertyIndex {
+
+        private final Map<String, List<ServiceState<?>>> values = new ConcurrentHashMap<String, List<ServiceState<?>>>();
+        private volatile List<ServiceState<?>> unindexed = Collections.emptyList();
+
+        void add(ServiceState<?> serviceState, Object value) {
+            if (value == null)
+                return;
+            List<String> keys = getIndexKeys(value);
+            if (keys == null) {
+                unindexed = insert(unindexed, serviceState);
+            } else {
+                for (String key : keys) {
+                    values.put(key, insert(values.get(key), serviceState));
+                }
+            }
+        }
+
+        void remove(ServiceState<?> serviceState, Object value) {
+            if (value == null)
+                return;
+            List<String> keys = getIndexKeys(value);
+            if (keys == null) {
+                unindexed = ServiceRegistry.remove(unindexed, serviceState);
+            } else {
+                for (String key : keys) {
+                    removeKey(serviceState, key);
+                }
+            }
+        }
+
+        private void removeKey(ServiceState<?> serviceState, String key) {
+            List<ServiceState<?>> list = ServiceRegistry.remove(values.get(key), serviceState);
+            if (list.isEmpty()) {
+                values.remove(key);
+            } else {
+                values.put(key, list);
+            }
+        }
+
+        void update(ServiceState<?> serviceState, Object oldValue, Object newValue) {
+            List<String> oldKeys = oldValue != null ? getIndexKeys(oldValue) : Collections.<String> emptyList();
+            List<String> newKeys = newValue != null ? getIndexKeys(newValue) : Collections.<String> emptyList();
+
+            // Add the service to the buckets of the new value first, then drop it from the others
+            if (newKeys == null) {
+                unindexed = reinsert(unindexed, serviceState);
+            } else {
+                for (String key : newKeys) {
+                    values.put(key, reinsert(values.get(key), serviceState));
+                }
+            }
+            if (oldKeys == null) {
+                if (newKeys != null) {
+                    unindexed = ServiceRegistry.remove(unindexed, serviceState);
+                }
+            } else {
+                for (String key : oldKeys) {
+                    if (newKeys == null || !newKeys.contains(key)) {
+                        removeKey(serviceState, key);
+                    }
+                }
+            }
+        }
+
+        List<ServiceState<?>> getCandidates(String value) {
+            List<ServiceState<?>> list = values.get(value);
+            List<ServiceState<?>> others = unindexed;
+            if (others.isEmpty()) {
+                return list != null ? list : Collections.<ServiceState<?>> emptyList();
+            }
+            if (list == null) {
+                return others;
+            }
+            List<ServiceState<?>> result = new ArrayList<ServiceState<?>>(list);
+            result.addAll(others);
+            Collections.sort(result, COMPARATOR);
+            return result;
+        }
+
+        private static List<String> getIndexKeys(Object value) {
+            if (value instanceof String) {
+                return Collections.singletonList((String) value);
+            }
+            Collection<?> elements = null;
+            if (value instanceof String[]) {
+                elements = Arrays.asList((String[]) value);
+            } else if (value instanceof Collection) {
+                elements = (Collection<?>) value;
+            }
+            if (elements == null)
+                return null;
+            List<String> result = new ArrayList<String>();
+            for (Object element : elements) {
+                if (!(element instanceof String))
+                    return null;
+                if (!result.contains(element)) {
+                    result.add((String) element);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -21,12 +21,10 @@ package org.jboss.gravia.runtime.embedded.internal;
 
 import static org.jboss.gravia.runtime.spi.RuntimeLogger.LOGGER;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Dictionary;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
@@ -34,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.gravia.resource.ResourceIdentity;
@@ -44,7 +43,7 @@ import org.jboss.gravia.runtime.ServiceFactory;
 import org.jboss.gravia.runtime.ServiceReference;
 import org.jboss.gravia.runtime.ServiceRegistration;
 import org.jboss.gravia.runtime.spi.AbstractModule;
-import org.jboss.gravia.utils.CaseInsensitiveDictionary;
+import org.jboss.gravia.runtime.spi.ServiceProperties;
 import org.jboss.gravia.utils.IllegalArgumentAssertion;
 import org.jboss.gravia.utils.UnmodifiableDictionary;
 
@@ -57,21 +56,23 @@ import org.jboss.gravia.utils.UnmodifiableDictionary;
  * @ThreadSafe
  */
 @SuppressWarnings("rawtypes")
-final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<S> {
+final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<S>, ServiceProperties.Provider {
 
     private final RuntimeServicesManager serviceManager;
     private final Module ownerModule;
+    private final long serviceId;
     private final String[] classNames;
     private final ValueProvider<S> valueProvider;
     private final ServiceReference<S> reference;
-    private final Set<AbstractModule> usingModules = new HashSet<AbstractModule>();
+    private final ConcurrentMap<AbstractModule, AtomicInteger> usageCounts = new ConcurrentHashMap<AbstractModule, AtomicInteger>();
     private final Map<ResourceIdentity, ServiceFactoryHolder<S>> factoryValues;
     private final ServiceRegistration<S> registration;
 
-    // The properties
-    private CaseInsensitiveDictionary<Object> prevProperties;
-    private CaseInsensitiveDictionary<Object> currProperties;
-    private Object propsLock = new Object();
+    // The properties, replaced on every change
+    private volatile ServiceProperties prevProperties;
+    private volatile ServiceProperties currProperties;
+    private final Object propsLock = new Object();
+    private volatile int serviceRanking;
 
     private String cachedToString;
 
@@ -90,6 +91,7 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
 
         this.serviceManager = serviceManager;
         this.ownerModule = owner;
+        this.serviceId = serviceId;
         this.valueProvider = valueProvider;
         this.classNames = classNames;
 
@@ -101,7 +103,8 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
 
         properties.put(org.jboss.gravia.Constants.SERVICE_ID, serviceId);
         properties.put(org.jboss.gravia.Constants.OBJECTCLASS, classNames);
-        this.currProperties = new CaseInsensitiveDictionary(properties);
+        this.currProperties = new ServiceProperties(properties);
+        this.serviceRanking = getServiceRanking(currProperties);
         this.cachedToString = updateCachedToString();
 
         // Create the {@link ServiceRegistration} and {@link ServiceReference}
@@ -177,6 +180,33 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
         return registration;
     }
 
+    long getServiceId() {
+        return serviceId;
+    }
+
+    int getServiceRanking() {
+        return serviceRanking;
+    }
+
+    /**
+     * Refresh the cached service ranking from the current properties.
+     * This is called by the service registry while the service is not indexed.
+     */
+    void updateServiceRanking() {
+        serviceRanking = getServiceRanking(currProperties);
+    }
+
+    private static int getServiceRanking(ServiceProperties properties) {
+        Object value = properties.get(org.jboss.gravia.Constants.SERVICE_RANKING);
+        if (value == null)
+            return 0;
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
     List<String> getClassNames() {
         return Arrays.asList(classNames);
     }
@@ -197,22 +227,19 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
         serviceManager.unregisterService(this);
     }
 
+    @Override
+    public ServiceProperties getServiceProperties() {
+        return currProperties;
+    }
+
     @Override
     public Object getProperty(String key) {
-        synchronized (propsLock) {
-            return key != null ? currProperties.get(key) : null;
-        }
+        return currProperties.get(key);
     }
 
     @Override
     public String[] getPropertyKeys() {
-        synchronized (propsLock) {
-            List<String> result = new ArrayList<String>();
-            Enumeration<String> keys = currProperties.keys();
-            while (keys.hasMoreElements())
-                result.add(keys.nextElement());
-            return result.toArray(new String[result.size()]);
-        }
+        return currProperties.getKeys();
     }
 
     @Override
@@ -220,28 +247,30 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
     public void setProperties(Dictionary properties) {
         assertNotUnregistered();
 
+        if (properties == null)
+            properties = new Hashtable();
+
         // Remember the previous properties for a potential
         // delivery of the MODIFIED_ENDMATCH event
         synchronized (propsLock) {
+            properties.put(org.jboss.gravia.Constants.SERVICE_ID, serviceId);
+            properties.put(org.jboss.gravia.Constants.OBJECTCLASS, classNames);
+            ServiceProperties snapshot = new ServiceProperties(properties);
             prevProperties = currProperties;
-
-            if (properties == null)
-                properties = new Hashtable();
-
-            properties.put(org.jboss.gravia.Constants.SERVICE_ID, currProperties.get(org.jboss.gravia.Constants.SERVICE_ID));
-            properties.put(org.jboss.gravia.Constants.OBJECTCLASS, currProperties.get(org.jboss.gravia.Constants.OBJECTCLASS));
-            currProperties = new CaseInsensitiveDictionary(properties);
+            currProperties = snapshot;
         }
 
+        // Update the service registry before the event is delivered
+        serviceManager.updateServiceProperties(this);
+
         // This event is synchronously delivered after the service properties have been modified.
         serviceManager.fireServiceEvent(ownerModule, ServiceEvent.MODIFIED, this);
     }
 
     @SuppressWarnings("unchecked")
     Dictionary<String, ?> getPreviousProperties() {
-        synchronized (propsLock) {
-            return new UnmodifiableDictionary(prevProperties);
-        }
+        ServiceProperties properties = prevProperties;
+        return properties != null ? new UnmodifiableDictionary(properties.toDictionary()) : null;
     }
 
     Module getServiceOwner() {
@@ -253,23 +282,71 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
         return (isUnregistered() ? null : ownerModule);
     }
 
-    void addUsingModule(AbstractModule module) {
-        synchronized (usingModules) {
-            usingModules.add(module);
+    /**
+     * Increment the use count of the given module.
+     *
+     * The counter of a module is created on first use and removed when the count drops to zero,
+     * so that no module or class loader is retained after it stopped using the service.
+     * A removed counter is marked with -1, so that a concurrent increment retries with a new one.
+     *
+     * @return The new use count
+     */
+    int addUsingModule(AbstractModule module) {
+        while (true) {
+            AtomicInteger count = usageCounts.get(module);
+            if (count == null) {
+                AtomicInteger newCount = new AtomicInteger();
+                count = usageCounts.putIfAbsent(module, newCount);
+                count = count != null ? count : newCount;
+            }
+            int current = count.get();
+            if (current < 0) {
+                usageCounts.remove(module, count);
+            } else if (count.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
         }
     }
 
-    void removeUsingModule(AbstractModule module) {
-        synchronized (usingModules) {
-            usingModules.remove(module);
+    /**
+     * Decrement the use count of the given module.
+     *
+     * @return The remaining use count or -1 if the module does not use this service
+     */
+    int removeUsingModule(AbstractModule module) {
+        AtomicInteger count = usageCounts.get(module);
+        if (count == null)
+            return -1;
+
+        while (true) {
+            int current = count.get();
+            if (current <= 0)
+                return -1;
+            if (current == 1) {
+                if (count.compareAndSet(1, -1)) {
+                    usageCounts.remove(module, count);
+                    return 0;
+                }
+            } else if (count.compareAndSet(current, current - 1)) {
+                return current - 1;
+            }
         }
     }
 
+    int getUsageCount(AbstractModule module) {
+        AtomicInteger count = usageCounts.get(module);
+        return count != null ? Math.max(count.get(), 0) : 0;
+    }
+
     Set<AbstractModule> getUsingModulesInternal() {
-        // Return an unmodifieable snapshot of the set
-        synchronized (usingModules) {
-            return Collections.unmodifiableSet(new HashSet<AbstractModule>(usingModules));
+        // Return an unmodifieable snapshot of the modules with a positive use count
+        Set<AbstractModule> result = new HashSet<AbstractModule>();
+        for (Map.Entry<AbstractModule, AtomicInteger> entry : usageCounts.entrySet()) {
+            if (entry.getValue().get() > 0) {
+                result.add(entry.getKey());
+            }
         }
+        return Collections.unmodifiableSet(result);
     }
 
     @Override
@@ -289,6 +366,26 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
             return false;
         }
 
+        ClassLoader ownerClassLoader = ownerModule.adapt(ClassLoader.class);
+        if (ownerClassLoader == null) {
+            LOGGER.trace("Registrant module [{}] has no class loader for: {}", ownerModule, className);
+            return true;
+        }
+
+        if (moduleClassLoader == ownerClassLoader)
+            return true;
+
+        AssignabilityCache assignabilityCache = serviceManager.getAssignabilityCache();
+        Boolean cached = assignabilityCache.get(moduleClassLoader, ownerClassLoader, className);
+        if (cached != null)
+            return cached;
+
+        boolean result = isAssignableTo(module, moduleClassLoader, ownerClassLoader, className);
+        assignabilityCache.put(moduleClassLoader, ownerClassLoader, className, result);
+        return result;
+    }
+
+    private boolean isAssignableTo(Module module, ClassLoader moduleClassLoader, ClassLoader ownerClassLoader, String className) {
         Class<?> targetClass;
         try {
             targetClass = moduleClassLoader.loadClass(className);
@@ -299,12 +396,6 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
             return true;
         }
 
-        ClassLoader ownerClassLoader = ownerModule.adapt(ClassLoader.class);
-        if (ownerClassLoader == null) {
-            LOGGER.trace("Registrant module [{}] has no class loader for: {}", ownerModule, className);
-            return true;
-        }
-
         // For the module that registered the service referenced by this ServiceReference (registrant module);
         // find the source for the package. If no source is found then return true if the registrant module
         // is equal to the specified module; otherwise return false
@@ -379,23 +470,25 @@ final class ServiceState<S> implements ServiceRegistration<S>, ServiceReference<
     }
 
     private String updateCachedToString() {
-        synchronized (propsLock) {
-            Map<String, Object> clone = new LinkedHashMap<String, Object>(currProperties);
-            Map<String, Object> props = new LinkedHashMap<String, Object>();
-            // service.id
-            props.put(org.jboss.gravia.Constants.SERVICE_ID, clone.remove(org.jboss.gravia.Constants.SERVICE_ID));
-            // service.pid
-            String pid = (String) clone.remove(org.jboss.gravia.Constants.SERVICE_PID);
-            if (pid != null) {
-                props.put(org.jboss.gravia.Constants.SERVICE_PID, pid);
-            }
-            // objectClass
-            String[] classes = (String[]) clone.remove(org.jboss.gravia.Constants.OBJECTCLASS);
-            props.put(org.jboss.gravia.Constants.OBJECTCLASS, Arrays.asList(classes));
-            // all other props
-            props.putAll(clone);
-            return "ServiceState" + props;
+        ServiceProperties properties = currProperties;
+        Map<String, Object> clone = new LinkedHashMap<String, Object>();
+        for (String key : properties.getKeys()) {
+            clone.put(key, properties.get(key));
+        }
+        Map<String, Object> props = new LinkedHashMap<String, Object>();
+        // service.id
+        props.put(org.jboss.gravia.Constants.SERVICE_ID, clone.remove(org.jboss.gravia.Constants.SERVICE_ID));
+        // service.pid
+        String pid = (String) clone.remove(org.jboss.gravia.Constants.SERVICE_PID);
+        if (pid != null) {
+            props.put(org.jboss.gravia.Constants.SERVICE_PID, pid);
         }
+        // objectClass
+        String[] classes = (String[]) clone.remove(org.jboss.gravia.Constants.OBJECTCLASS);
+        props.put(org.jboss.gravia.Constants.OBJECTCLASS, Arrays.asList(classes));
+        // all other props
+        props.putAll(clone);
+        return "ServiceState" + props;
     }
 
     @Override
@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.gravia.runtime.embedded.spi;
+
+import javax.management.ObjectName;
+
+import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.utils.ObjectNameFactory;
+
+/**
+ * The management view of the cache that backs {@link ServiceReference#isAssignableTo(org.jboss.gravia.runtime.Module, String)}.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface AssignabilityCacheMBean {
+
+    ObjectName OBJECT_NAME = ObjectNameFactory.create("org.jboss.gravia:type=AssignabilityCache");
+
+    /**
+     * Get the current number of cached results
+     */
+    int getSize();
+
+    /**
+     * Get the number of checks that found a cached result
+     */
+    long getHitCount();
+
+    /**
+     * Get the number of checks that had to load the class
+     */
+    long getMissCount();
+
+    /**
+     * Get the ratio of hits to checks, or zero if there was no check yet
+     */
+    double getHitRate();
+
+    /**
+     * Get the number of results that were removed because a class loader was uninstalled or collected
+     */
+    long getInvalidationCount();
+
+    /**
+     * Remove all results from the cache and reset the statistics
+     */
+    void clear();
+}
@@ -49,7 +49,7 @@ final class ServiceReferenceComparator implements Comparator<ServiceReference<?>
     @Override
     public int compare(ServiceReference<?> ref1, ServiceReference<?> ref2) {
         long thisId = getProperty(ref1, Constants.SERVICE_ID);
-        long otherId = getProperty(ref1, Constants.SERVICE_ID);
+        long otherId = getProperty(ref2, Constants.SERVICE_ID);
 
         // If this ServiceReference and the specified ServiceReference have the same service id they are equal
         if (thisId == otherId)
@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.runtime.embedded;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.jar.Manifest;
+
+import org.jboss.gravia.resource.ManifestBuilder;
+import org.jboss.gravia.runtime.Module;
+import org.jboss.gravia.runtime.ModuleContext;
+import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.runtime.ServiceRegistration;
+import org.jboss.gravia.runtime.embedded.spi.AssignabilityCacheMBean;
+import org.jboss.gravia.runtime.spi.ManifestHeadersProvider;
+import org.jboss.test.gravia.runtime.embedded.support.AbstractEmbeddedRuntimeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the cached class space checks of service lookups.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ServiceAssignabilityTestCase extends AbstractEmbeddedRuntimeTest {
+
+    @Test
+    public void testAssignabilityCache() throws Exception {
+
+        AssignabilityCacheMBean cache = getRuntime().adapt(AssignabilityCacheMBean.class);
+        cache.clear();
+
+        Module modA = installModule("moduleA", getClass().getClassLoader());
+        Module modB = installModule("moduleB", new URLClassLoader(new URL[0], getClass().getClassLoader()));
+
+        ServiceRegistration<Foo> sreg = modA.getModuleContext().registerService(Foo.class, new Foo(), null);
+
+        // The first lookup loads the class in both class spaces
+        ModuleContext context = modB.getModuleContext();
+        Collection<ServiceReference<Foo>> srefs = context.getServiceReferences(Foo.class, null);
+        Assert.assertEquals(1, srefs.size());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getSize());
+
+        // The second lookup uses the cached result
+        srefs = context.getServiceReferences(Foo.class, null);
+        Assert.assertEquals(1, srefs.size());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        // Uninstall invalidates the results of the module class loader
+        modB.uninstall();
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+
+        sreg.unregister();
+        modA.uninstall();
+    }
+
+    private Module installModule(String symbolicName, ClassLoader classLoader) throws Exception {
+        Manifest manifest = new ManifestBuilder().addIdentityCapability(symbolicName, "1.0.0").getManifest();
+        ManifestHeadersProvider headersProvider = new ManifestHeadersProvider(manifest);
+        Module module = getRuntime().installModule(classLoader, headersProvider.getHeaders());
+        module.start();
+        return module;
+    }
+
+    public static class Foo {
+    }
+}
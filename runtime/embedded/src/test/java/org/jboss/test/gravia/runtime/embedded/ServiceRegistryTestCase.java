@@ -0,0 +1,211 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.runtime.embedded;
+
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Manifest;
+
+import org.jboss.gravia.Constants;
+import org.jboss.gravia.resource.ManifestBuilder;
+import org.jboss.gravia.runtime.Module;
+import org.jboss.gravia.runtime.ModuleContext;
+import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.runtime.ServiceRegistration;
+import org.jboss.gravia.runtime.spi.ManifestHeadersProvider;
+import org.jboss.test.gravia.runtime.embedded.support.AbstractEmbeddedRuntimeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test service lookup through the service registry indexes.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ServiceRegistryTestCase extends AbstractEmbeddedRuntimeTest {
+
+    @Test
+    public void testServiceLookup() throws Exception {
+
+        Manifest manifest = new ManifestBuilder().addIdentityCapability("moduleA", "1.0.0").getManifest();
+        ManifestHeadersProvider headersProvider = new ManifestHeadersProvider(manifest);
+
+        Module modA = getRuntime().installModule(getClass().getClassLoader(), headersProvider.getHeaders());
+        modA.start();
+
+        ModuleContext context = modA.getModuleContext();
+        ServiceRegistration<String> sregA = context.registerService(String.class, new String("A"), getProperties("pidA", 0));
+        ServiceRegistration<String> sregB = context.registerService(String.class, new String("B"), getProperties("pidB", 10));
+        ServiceRegistration<String> sregC = context.registerService(String.class, new String("C"), getProperties("pidC", 0));
+
+        // Highest ranking wins
+        ServiceReference<String> sref = context.getServiceReference(String.class);
+        Assert.assertEquals("B", context.getService(sref));
+
+        // Equality on an indexed property
+        Collection<ServiceReference<String>> srefs = context.getServiceReferences(String.class, "(service.pid=pidC)");
+        Assert.assertEquals(1, srefs.size());
+        Assert.assertEquals("C", context.getService(srefs.iterator().next()));
+
+        // Equality on an indexed property combined with other terms
+        srefs = context.getServiceReferences(String.class, "(&(service.pid=pidA)(service.ranking<=0))");
+        Assert.assertEquals(1, srefs.size());
+        srefs = context.getServiceReferences(String.class, "(&(service.pid=pidA)(service.ranking>=1))");
+        Assert.assertEquals(0, srefs.size());
+
+        // Modified properties are reindexed
+        sregC.setProperties(getProperties("pidD", 20));
+        sref = context.getServiceReference(String.class);
+        Assert.assertEquals("C", context.getService(sref));
+        Assert.assertEquals(0, context.getServiceReferences(String.class, "(service.pid=pidC)").size());
+        Assert.assertEquals(1, context.getServiceReferences(String.class, "(service.pid=pidD)").size());
+
+        // With equal ranking the lower service id wins
+        sregB.unregister();
+        sregC.unregister();
+        ServiceRegistration<String> sregE = context.registerService(String.class, new String("E"), getProperties("pidE", 0));
+        sref = context.getServiceReference(String.class);
+        Assert.assertEquals("A", context.getService(sref));
+
+        sregA.unregister();
+        sref = context.getServiceReference(String.class);
+        Assert.assertEquals("E", context.getService(sref));
+
+        sregE.unregister();
+        Assert.assertNull(context.getServiceReference(String.class));
+
+        modA.uninstall();
+    }
+
+    @Test
+    public void testIndexedPropertyWithClassName() throws Exception {
+
+        Manifest manifest = new ManifestBuilder().addIdentityCapability("moduleB", "1.0.0").getManifest();
+        ManifestHeadersProvider headersProvider = new ManifestHeadersProvider(manifest);
+
+        Module modB = getRuntime().installModule(getClass().getClassLoader(), headersProvider.getHeaders());
+        modB.start();
+
+        ModuleContext context = modB.getModuleContext();
+        ServiceRegistration<Foo> sregA = context.registerService(Foo.class, new FooImpl("A"), getProperties("pidX", 0));
+        ServiceRegistration<Bar> sregB = context.registerService(Bar.class, new BarImpl("B"), getProperties("pidB", 0));
+        ServiceRegistration<Bar> sregC = context.registerService(Bar.class, new BarImpl("C"), getProperties("pidC", 0));
+        ServiceRegistration<Bar> sregX = context.registerService(Bar.class, new BarImpl("X"), getProperties("pidX", 0));
+
+        // The pid bucket is smaller than the Bar bucket, but also holds the Foo service
+        Collection<ServiceReference<Bar>> barRefs = context.getServiceReferences(Bar.class, "(service.pid=pidX)");
+        Assert.assertEquals(1, barRefs.size());
+        Assert.assertEquals("X", context.getService(barRefs.iterator().next()).toString());
+
+        Collection<ServiceReference<Foo>> fooRefs = context.getServiceReferences(Foo.class, "(service.pid=pidX)");
+        Assert.assertEquals(1, fooRefs.size());
+        Assert.assertEquals("A", context.getService(fooRefs.iterator().next()).toString());
+
+        sregX.unregister();
+        Assert.assertEquals(0, context.getServiceReferences(Bar.class, "(service.pid=pidX)").size());
+
+        sregA.unregister();
+        sregB.unregister();
+        sregC.unregister();
+        modB.uninstall();
+    }
+
+    @Test
+    public void testConcurrentLookupDuringUpdate() throws Exception {
+
+        Manifest manifest = new ManifestBuilder().addIdentityCapability("moduleC", "1.0.0").getManifest();
+        ManifestHeadersProvider headersProvider = new ManifestHeadersProvider(manifest);
+
+        Module modC = getRuntime().installModule(getClass().getClassLoader(), headersProvider.getHeaders());
+        modC.start();
+
+        final ModuleContext context = modC.getModuleContext();
+        ServiceRegistration<String> sregA = context.registerService(String.class, new String("A"), getProperties("pidA", 0));
+        ServiceRegistration<String> sregB = context.registerService(String.class, new String("B"), getProperties("pidB", 5));
+
+        // A lookup never misses a service while its ranking is modified
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger misses = new AtomicInteger();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    if (context.getServiceReferences(String.class, null).size() != 2)
+                        misses.incrementAndGet();
+                    if (context.getServiceReferences(String.class, "(service.pid=pidA)").size() != 1)
+                        misses.incrementAndGet();
+                }
+            }
+        };
+        reader.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                sregA.setProperties(getProperties("pidA", i % 10));
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+        Assert.assertEquals(0, misses.get());
+
+        sregA.unregister();
+        sregB.unregister();
+        modC.uninstall();
+    }
+
+    private Dictionary<String, Object> getProperties(String pid, int ranking) {
+        Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(Constants.SERVICE_PID, pid);
+        props.put(Constants.SERVICE_RANKING, ranking);
+        return props;
+    }
+
+    public interface Foo {
+    }
+
+    public interface Bar {
+    }
+
+    static class FooImpl implements Foo {
+        private final String name;
+        FooImpl(String name) {
+            this.name = name;
+        }
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static class BarImpl implements Bar {
+        private final String name;
+        BarImpl(String name) {
+            this.name = name;
+        }
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
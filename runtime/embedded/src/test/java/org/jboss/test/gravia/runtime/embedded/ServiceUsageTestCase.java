@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * Gravia :: Runtime :: Embedded
+ * %%
+ * Copyright (C) 2013 - 2014 JBoss by Red Hat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.jboss.test.gravia.runtime.embedded;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Manifest;
+
+import org.jboss.gravia.resource.ManifestBuilder;
+import org.jboss.gravia.runtime.Module;
+import org.jboss.gravia.runtime.ModuleContext;
+import org.jboss.gravia.runtime.ServiceFactory;
+import org.jboss.gravia.runtime.ServiceReference;
+import org.jboss.gravia.runtime.ServiceRegistration;
+import org.jboss.gravia.runtime.spi.ManifestHeadersProvider;
+import org.jboss.test.gravia.runtime.embedded.support.AbstractEmbeddedRuntimeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the service use counts of a module.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ServiceUsageTestCase extends AbstractEmbeddedRuntimeTest {
+
+    @Test
+    public void testServiceFactoryUsage() throws Exception {
+
+        Module modA = installModule("moduleA");
+        ModuleContext context = modA.getModuleContext();
+
+        CountingFactory factory = new CountingFactory();
+        ServiceRegistration<?> sreg = context.registerService(String.class.getName(), factory, null);
+        ServiceReference<?> sref = sreg.getReference();
+
+        Assert.assertEquals("A", context.getService(sref));
+        Assert.assertEquals("A", context.getService(sref));
+        Assert.assertEquals(1, factory.getCount.get());
+
+        Assert.assertTrue(context.ungetService(sref));
+        Assert.assertEquals(0, factory.ungetCount.get());
+        Assert.assertTrue(context.ungetService(sref));
+        Assert.assertEquals(1, factory.ungetCount.get());
+        Assert.assertFalse(context.ungetService(sref));
+
+        // Unregister releases the outstanding usage
+        Assert.assertEquals("A", context.getService(sref));
+        Assert.assertEquals("A", context.getService(sref));
+        sreg.unregister();
+        Assert.assertEquals(2, factory.ungetCount.get());
+        Assert.assertFalse(context.ungetService(sref));
+
+        modA.uninstall();
+    }
+
+    @Test
+    public void testConcurrentUsage() throws Exception {
+
+        Module modA = installModule("moduleA");
+        Module modB = installModule("moduleB");
+        final ServiceRegistration<String> sreg = modA.getModuleContext().registerService(String.class, new String("A"), null);
+
+        int threads = 8;
+        final int iterations = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threads; i++) {
+                final ModuleContext context = (i % 2 == 0 ? modA : modB).getModuleContext();
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        ServiceReference<String> sref = sreg.getReference();
+                        for (int j = 0; j < iterations; j++) {
+                            if (!"A".equals(context.getService(sref)) || !context.ungetService(sref))
+                                return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // All use counts have been released
+        Assert.assertFalse(modA.getModuleContext().ungetService(sreg.getReference()));
+        Assert.assertFalse(modB.getModuleContext().ungetService(sreg.getReference()));
+
+        sreg.unregister();
+        modB.uninstall();
+        modA.uninstall();
+    }
+
+    private Module installModule(String symbolicName) throws Exception {
+        Manifest manifest = new ManifestBuilder().addIdentityCapability(symbolicName, "1.0.0").getManifest();
+        ManifestHeadersProvider headersProvider = new ManifestHeadersProvider(manifest);
+        Module module = getRuntime().installModule(getClass().getClassLoader(), headersProvider.getHeaders());
+        module.start();
+        return module;
+    }
+
+    static class CountingFactory implements ServiceFactory<String> {
+
+        final AtomicInteger getCount = new AtomicInteger();
+        final AtomicInteger ungetCount = new AtomicInteger();
+
+        @Override
+        public String getService(Module module, ServiceRegistration<String> registration) {
+            getCount.incrementAndGet();
+            return "A";
+        }
+
+        @Override
+        public void ungetService(Module module, ServiceRegistration<String> registration, String service) {
+            ungetCount.incrementAndGet();
+        }
+    }
+}